@@ -23,8 +23,11 @@ import static java.lang.System.out;
 import static org.icgc.dcc.storage.client.cli.Parameters.checkCommand;
 import static org.icgc.dcc.storage.client.command.ClientCommand.APPLICATION_NAME;
 import static org.icgc.dcc.storage.client.command.ClientCommand.FAILURE_STATUS;
+import static org.icgc.dcc.storage.client.util.LazyBeansInitializer.lazyBeans;
 import static org.icgc.dcc.storage.client.util.SingletonBeansInitializer.singletonBeans;
+import static org.icgc.dcc.storage.client.util.StartupReport.startupReport;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -32,13 +35,19 @@ import java.util.function.Consumer;
 import org.icgc.dcc.storage.client.cli.ConverterFactory;
 import org.icgc.dcc.storage.client.cli.Terminal;
 import org.icgc.dcc.storage.client.command.ClientCommand;
+import org.icgc.dcc.storage.client.config.ClientBanner;
+import org.icgc.dcc.storage.client.daemon.DaemonClient;
 import org.icgc.dcc.storage.client.metadata.EntityNotFoundException;
+import org.icgc.dcc.storage.client.util.StartupReport;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.Banner.Mode;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.MissingCommandException;
@@ -78,6 +87,8 @@ public class ClientMain implements CommandLineRunner {
   private boolean version = false;
   @Parameter(names = "--help", description = "Show help information", required = false, help = true)
   private boolean help = false;
+  @Parameter(names = "--startup-report", description = "Report the time spent on startup", required = false)
+  private boolean startupReport = false;
 
   /**
    * Dependencies.
@@ -87,13 +98,29 @@ public class ClientMain implements CommandLineRunner {
   @Autowired
   private Terminal terminal;
   @Autowired
-  private Map<String, ClientCommand> commands;
+  private ApplicationContext context;
+  @Autowired
+  private StartupReport report;
+
+  /**
+   * State.
+   * <p>
+   * Commands by bean name, only used for parsing until resolved.
+   */
+  private final Map<String, ClientCommand> commands = new LinkedHashMap<>();
 
   public static void main(String[] args) {
     try {
       // Bootstrap
       val profiles = bootstrap(args);
 
+      // Delegate to a running daemon if there is one
+      val status = DaemonClient.submit(System.getProperty("storage.profile"), args);
+      if (status.isPresent()) {
+        exit(status.getAsInt());
+        return;
+      }
+
       // Setup
       err.print("Starting...");
       val cli = new JCommander();
@@ -104,6 +131,8 @@ public class ClientMain implements CommandLineRunner {
       new SpringApplicationBuilder(ClientMain.class)
           .bannerMode(Mode.OFF)
           .initializers(singletonBeans(cli)) // Add cli to context
+          .initializers(lazyBeans(ClientBanner.class)) // Only create what the command needs
+          .initializers(startupReport())
           .addCommandLineProperties(false) // Only use formal parameters defined in cli
           .profiles(profiles)
           .run(args);
@@ -123,6 +152,7 @@ public class ClientMain implements CommandLineRunner {
    */
   @Override
   public void run(String... params) throws Exception {
+    report.ready();
     terminal.printStatus("Running...");
 
     try {
@@ -131,6 +161,10 @@ public class ClientMain implements CommandLineRunner {
 
       // Resolve
       val command = resolveCommand();
+      report.commandReady();
+      if (startupReport) {
+        report.print(terminal);
+      }
 
       // Execute
       exit(command.execute());
@@ -162,6 +196,12 @@ public class ClientMain implements CommandLineRunner {
   private void parseParams(String... params) {
     cli.addObject(this);
 
+    // Parsing only needs the options of the commands, so their dependencies are not created
+    for (val beanName : context.getBeanNamesForType(ClientCommand.class, true, false)) {
+      val type = ClassUtils.getUserClass(context.getType(beanName));
+      commands.put(beanName, (ClientCommand) BeanUtils.instantiateClass(type));
+    }
+
     for (val entry : commands.entrySet()) {
       val beanName = entry.getKey();
       val commandName = getCommandName(beanName);
@@ -227,9 +267,21 @@ public class ClientMain implements CommandLineRunner {
     return options.profile == null ? new String[] {} : new String[] { options.profile };
   }
 
+  /**
+   * Wires the parsed command with its dependencies, which are only created at this point.
+   * 
+   * @return the initialized command, which post processors may have replaced with a proxy
+   */
   private ClientCommand getCommand(String commandName) {
     val beanName = commandName + "Command";
-    return commands.get(beanName);
+    val command = commands.get(beanName);
+    if (command == null) {
+      return null;
+    }
+
+    val beanFactory = context.getAutowireCapableBeanFactory();
+    beanFactory.autowireBean(command);
+    return (ClientCommand) beanFactory.initializeBean(command, beanName);
   }
 
   private static String getCommandName(String beanName) {
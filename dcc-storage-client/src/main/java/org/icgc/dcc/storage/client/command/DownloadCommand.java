@@ -31,12 +31,15 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.icgc.dcc.storage.client.cli.ConverterFactory.OutputLayoutConverter;
 import org.icgc.dcc.storage.client.cli.CreatableDirectoryValidator;
 import org.icgc.dcc.storage.client.cli.ObjectIdListValidator;
 import org.icgc.dcc.storage.client.download.DownloadRequest;
+import org.icgc.dcc.storage.client.download.DownloadScheduler;
 import org.icgc.dcc.storage.client.download.DownloadService;
 import org.icgc.dcc.storage.client.manifest.ManifestResource;
 import org.icgc.dcc.storage.client.manifest.ManifestService;
@@ -62,7 +65,7 @@ public class DownloadCommand extends RepositoryAccessCommand {
   /**
    * Options
    */
-  @Parameter(names = "--output-dir", description = "Path to output directory", required = true, validateValueWith = CreatableDirectoryValidator.class)
+  @Parameter(names = "--output-dir", description = "Path to output directory. Required unless --stdout is specified", validateValueWith = CreatableDirectoryValidator.class)
   private File outputDir;
   @Parameter(names = "--output-layout", description = "Layout of the output-dir. One of 'bundle' (saved according to filename under GNOS bundle id directory), 'filename' (saved according to filename in output directory), or 'id' (saved according to object id in output directory)", converter = OutputLayoutConverter.class)
   private OutputLayout layout = OutputLayout.FILENAME;
@@ -82,6 +85,8 @@ public class DownloadCommand extends RepositoryAccessCommand {
   private boolean validate = true;
   @Parameter(names = "--verify-connection", description = "Verify connection to repository", arity = 1)
   private boolean verifyConnection = true;
+  @Parameter(names = "--stdout", description = "Switch to stream the object to stdout (or a named pipe it is redirected to) without storing it locally. Only used with a single --object-id")
+  private boolean stdout = false;
 
   /**
    * Dependencies
@@ -92,6 +97,8 @@ public class DownloadCommand extends RepositoryAccessCommand {
   private MetadataService metadataService;
   @Autowired
   private DownloadService downloadService;
+  @Autowired
+  private DownloadScheduler downloadScheduler;
 
   @Override
   public int execute() throws Exception {
@@ -99,6 +106,10 @@ public class DownloadCommand extends RepositoryAccessCommand {
     if (verifyConnection) {
       verifyRepoConnection();
     }
+
+    if (stdout) {
+      return streamObject(objectId.get(0));
+    }
     validateOutputDirectory();
 
     terminal.printStatus("Downloading...");
@@ -134,12 +145,13 @@ public class DownloadCommand extends RepositoryAccessCommand {
   private int downloadObjects(List<String> objectIds) throws IOException {
     // Entities are defined in Meta service
     val entities = resolveEntities(objectIds);
+    val sizes = downloadService.getObjectSizes(entities);
 
-    if (!verifyLocalAvailableSpace(entities)) {
+    if (!verifyLocalAvailableSpace(sizes)) {
       return FAILURE_STATUS;
     }
 
-    int i = 1;
+    val counter = new AtomicInteger(1);
     terminal.println("");
 
     // Filtering based on file name only applies to FILENAME and BUNDLE layouts
@@ -148,26 +160,56 @@ public class DownloadCommand extends RepositoryAccessCommand {
       entitySet = filterEntities(entities);
     }
 
+    val requests = new ArrayList<DownloadRequest>();
     for (val entity : entitySet) {
-      terminal
-          .printLine()
-          .printf("[%s/%s] Downloading object: %s (%s)%n", i++, entities.size(), terminal.value(entity.getId()),
-              entity.getFileName())
-          .printLine();
-
       val builder = DownloadRequest.builder();
       val request = builder.outputDir(outputDir).entity(entity).objectId(entity.getId()).offset(offset).length(length)
           .validate(validate).build();
+      requests.add(request);
+    }
 
-      downloadService.download(request, force);
-      finalizeDownload(entity);
+    downloadScheduler.download(requests, sizes, force, new DownloadScheduler.Listener() {
 
-      terminal.println("Done.");
-    }
+      @Override
+      public void started(DownloadRequest request) {
+        val entity = request.getEntity();
+        synchronized (terminal) {
+          terminal
+              .printLine()
+              .printf("[%s/%s] Downloading object: %s (%s)%n", counter.getAndIncrement(), entities.size(),
+                  terminal.value(entity.getId()), entity.getFileName())
+              .printLine();
+        }
+      }
+
+      @Override
+      public void completed(DownloadRequest request) throws IOException {
+        finalizeDownload(request.getEntity());
+
+        terminal.println("Done: " + request.getEntity().getFileName());
+      }
+
+    });
 
     return SUCCESS_STATUS;
   }
 
+  /**
+   * Stream the object to stdout in order while its parts are fetched in parallel.
+   */
+  private int streamObject(String objectId) throws IOException {
+    // Resolving ensures the object is registered and accessible
+    val entity = metadataService.getEntity(objectId);
+    terminal.printStatus("Streaming object: " + entity.getId() + " (" + entity.getFileName() + ")");
+
+    val request = DownloadRequest.builder().entity(entity).objectId(entity.getId()).offset(offset).length(length)
+        .validate(validate).build();
+    downloadService.stream(request, System.out);
+
+    terminal.printStatus("Done.");
+    return SUCCESS_STATUS;
+  }
+
   /**
    * Move the entity into its final destination. File is initially downloaded into file named with object id. To
    * complete download, it is renamed to filename stored in Metadata record
@@ -287,8 +329,8 @@ public class DownloadCommand extends RepositoryAccessCommand {
     return fs.getUsableSpace();
   }
 
-  private boolean verifyLocalAvailableSpace(Set<Entity> entities) {
-    val spaceRequired = downloadService.getSpaceRequired(entities);
+  private boolean verifyLocalAvailableSpace(Map<String, Long> sizes) {
+    val spaceRequired = sizes.values().stream().mapToLong(Long::longValue).sum();
     val spaceAvailable = getLocalAvailableSpace();
     log.warn("Space required: {} ({})  Space available: {} ({})",
         formatBytes(spaceRequired), spaceRequired, formatBytes(spaceAvailable), spaceAvailable);
@@ -305,5 +347,11 @@ public class DownloadCommand extends RepositoryAccessCommand {
 
   private void validateParms() {
     checkParameter(objectId != null || manifestResource != null, "One of --object-id or --manifest must be specified");
+    if (stdout) {
+      checkParameter(manifestResource == null && objectId.size() == 1,
+          "Output to stdout only permitted with a single --object-id. Not compatible with --manifest.");
+    } else {
+      checkParameter(outputDir != null, "--output-dir must be specified unless --stdout is specified");
+    }
   }
 }
@@ -54,7 +54,7 @@ public class UploadCommand extends RepositoryAccessCommand {
   private boolean isForce = false;
   @Parameter(names = "--object-id", description = "Object id assigned to upload file", validateValueWith = ObjectIdValidator.class)
   private String objectId;
-  @Parameter(names = "--md5", description = "MD5 checksum of file to upload")
+  @Parameter(names = "--md5", description = "MD5 checksum of file to upload (computed while uploading if omitted)")
   private String md5;
   @Parameter(names = "--verify-connection", description = "Verify connection to repository", arity = 1)
   private boolean verifyConnection = true;
@@ -91,7 +91,6 @@ public class UploadCommand extends RepositoryAccessCommand {
       }
     } else {
       checkParameter(file != null, "--file must be specified if --object-id is specified");
-      checkParameter(md5 != null, "--md5 must be specified if --object-id is specified");
       uploadFile(objectId, file, md5);
     }
 
@@ -22,7 +22,9 @@ import static java.lang.String.format;
 import static java.util.Collections.singletonList;
 import static javax.ws.rs.core.HttpHeaders.AUTHORIZATION;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
@@ -32,17 +34,26 @@ import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.http.client.HttpClient;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.ssl.SSLContexts;
 import org.icgc.dcc.storage.client.download.DownloadStateStore;
+import org.icgc.dcc.storage.client.download.ObjectCache;
 import org.icgc.dcc.storage.client.exception.AmazonS3RetryableResponseErrorHandler;
 import org.icgc.dcc.storage.client.exception.ConnectivityResponseHandler;
 import org.icgc.dcc.storage.client.exception.NotResumableException;
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
 import org.icgc.dcc.storage.client.exception.RetryableException;
 import org.icgc.dcc.storage.client.exception.ServiceRetryableResponseErrorHandler;
+import org.icgc.dcc.storage.client.transport.BandwidthShaper;
+import org.icgc.dcc.storage.client.transport.ConcurrencyController;
+import org.icgc.dcc.storage.client.transport.PartHedger;
 import org.icgc.dcc.storage.client.upload.UploadStateStore;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.PropertyPlaceholderAutoConfiguration;
@@ -51,7 +62,6 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
@@ -76,11 +86,13 @@ public class ClientConfig {
 
   /**
    * Dependencies.
+   * <p>
+   * Resolved on first use, since loading trust material is only worth it for commands that talk to the services.
    */
   @Autowired
-  private SSLContext sslContext;
+  private ObjectProvider<SSLContext> sslContext;
   @Autowired
-  private HostnameVerifier hostnameVerifier;
+  private ObjectProvider<HostnameVerifier> hostnameVerifier;
 
   @Bean
   public String clientVersion() {
@@ -92,11 +104,46 @@ public class ClientConfig {
     return new DownloadStateStore();
   }
 
+  /**
+   * Local object cache, disabled unless {@code cache.dir} is set. The capacity is in GB.
+   */
+  @Bean
+  public ObjectCache objectCache(@Value("${cache.dir:}") String dir, @Value("${cache.size:100}") long size) {
+    return new ObjectCache(dir.isEmpty() ? null : new File(dir), size * 1024 * 1024 * 1024);
+  }
+
   @Bean
   public UploadStateStore uploadStateStore() {
     return new UploadStateStore();
   }
 
+  @Bean
+  public ConcurrencyController concurrencyController(TransportProperties transport) {
+    val initial = Math.max(1, transport.getParallel());
+    if (transport.getMaxParallel() <= initial) {
+      return new ConcurrencyController(initial, initial, initial);
+    }
+
+    val min = transport.getMinParallel() > 0 ? Math.min(transport.getMinParallel(), initial) : 1;
+    log.debug("Adaptive part concurrency between {} and {}", min, transport.getMaxParallel());
+    return new ConcurrencyController(min, initial, transport.getMaxParallel());
+  }
+
+  @Bean
+  public PartHedger partHedger(TransportProperties transport, ConcurrencyController concurrency) {
+    return new PartHedger(transport.getHedgePercentile(), concurrency);
+  }
+
+  @Bean
+  public BandwidthShaper downloadShaper(TransportProperties transport) {
+    return new BandwidthShaper(transport.getDownloadRate() * 1024 * 1024);
+  }
+
+  @Bean
+  public BandwidthShaper uploadShaper(TransportProperties transport) {
+    return new BandwidthShaper(transport.getUploadRate() * 1024 * 1024);
+  }
+
   @Bean
   public RestTemplate serviceTemplate() {
     val serviceTemplate = new RestTemplate(clientHttpRequestFactory());
@@ -106,8 +153,8 @@ public class ClientConfig {
   }
 
   @Bean
-  public RestTemplate dataTemplate() {
-    val dataTemplate = new RestTemplate(streamingClientHttpRequestFactory());
+  public RestTemplate dataTemplate(TransportProperties transport) {
+    val dataTemplate = new RestTemplate(streamingClientHttpRequestFactory(transport.getWorkerThreads()));
     dataTemplate.setErrorHandler(new AmazonS3RetryableResponseErrorHandler());
 
     return dataTemplate;
@@ -175,10 +222,13 @@ public class ClientConfig {
     return factory;
   }
 
-  private SimpleClientHttpRequestFactory streamingClientHttpRequestFactory() {
-    val factory = new SimpleClientHttpRequestFactory();
+  /**
+   * Request Factory for part transfers. Request bodies are streamed rather than buffered.
+   */
+  private HttpComponentsClientHttpRequestFactory streamingClientHttpRequestFactory(int workerThreads) {
+    val factory = new HttpComponentsClientHttpRequestFactory(dataClient(workerThreads));
 
-    // SimpleClientHttpRequestFactory *will 100%* ignore these, but lets do it anyways in hopes
+    // HttpComponentsClientHttpRequestFactory *may* ignore these, but lets do it anyways in hopes
     // to maximize the number of places that it may be used elsewhere
     configureSystemHttpTimeouts();
 
@@ -186,20 +236,55 @@ public class ClientConfig {
     factory.setConnectTimeout(properties.getConnectTimeoutSeconds() * 1000);
     factory.setReadTimeout(properties.getReadTimeoutSeconds() * 1000);
 
-    factory.setOutputStreaming(true);
     factory.setBufferRequestBody(false);
 
     return factory;
   }
 
+  /**
+   * @return instance of HttpClient with a pool of keep-alive connections to the object store, so that consecutive parts
+   * reuse established TCP and TLS connections
+   */
+  private HttpClient dataClient(int workerThreads) {
+    val data = properties.getData();
+    val maxPerHost = data.getMaxConnectionsPerHost() > 0 ? data.getMaxConnectionsPerHost() : workerThreads;
+    val maxTotal = data.getMaxConnections() > 0 ? data.getMaxConnections() : maxPerHost * 2;
+    val keepAlive = TimeUnit.SECONDS.toMillis(data.getKeepAliveSeconds());
+    log.debug("Data connection pool: {} per host, {} total, keep-alive {} ms", maxPerHost, maxTotal, keepAlive);
+
+    val socketConfig = SocketConfig.custom()
+        .setSoKeepAlive(true)
+        .setTcpNoDelay(true)
+        .setSndBufSize(data.getSendBufferSize())
+        .setRcvBufSize(data.getReceiveBufferSize())
+        .build();
+
+    // Pre-signed URLs must not carry the OAuth header, and a single SSL context shares its TLS session cache
+    return HttpClients.custom()
+        .setSSLContext(SSLContexts.createSystemDefault())
+        .setSSLHostnameVerifier(new DefaultHostnameVerifier())
+        .setMaxConnPerRoute(maxPerHost)
+        .setMaxConnTotal(maxTotal)
+        .setDefaultSocketConfig(socketConfig)
+        .setKeepAliveStrategy((response, context) -> {
+          val duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+          return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+        })
+        .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+        .disableContentCompression()
+        .disableCookieManagement()
+        .disableAutomaticRetries() // Parts are retried by the retry template
+        .build();
+  }
+
   @SneakyThrows
   /**
    * @return instance of HttpClient with SSL and OAuth configuration
    */
   private HttpClient secureClient() {
     val client = HttpClients.custom();
-    client.setSSLContext(sslContext);
-    client.setSSLHostnameVerifier(hostnameVerifier);
+    client.setSSLContext(sslContext.getObject());
+    client.setSSLHostnameVerifier(hostnameVerifier.getObject());
     configureOAuth(client);
 
     return client.build();
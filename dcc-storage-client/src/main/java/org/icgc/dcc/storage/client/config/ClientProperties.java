@@ -35,6 +35,29 @@ public class ClientProperties {
   private int parallelism = Runtime.getRuntime().availableProcessors();
 
   private SSLProperties ssl = new SSLProperties();
+  private DataProperties data = new DataProperties();
+
+  /**
+   * Connection settings for part transfers to and from the object store.
+   */
+  @Data
+  public static class DataProperties {
+
+    /** Pooled connections per object store host. Defaults to the number of transport worker threads */
+    private int maxConnectionsPerHost;
+    /** Pooled connections across all hosts. Defaults to twice the per-host limit */
+    private int maxConnections;
+    /** How long an idle connection is kept alive for reuse */
+    private int keepAliveSeconds = 30;
+
+    /*
+     * Socket buffer sizes in bytes. 0 leaves the operating system default.
+     */
+
+    private int sendBufferSize;
+    private int receiveBufferSize;
+
+  }
 
   @Data
   public static class SSLProperties {
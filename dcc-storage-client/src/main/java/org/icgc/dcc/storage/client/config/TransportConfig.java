@@ -17,16 +17,23 @@
  */
 package org.icgc.dcc.storage.client.config;
 
+import org.icgc.dcc.storage.client.transport.MemoryBudget;
 import org.icgc.dcc.storage.client.transport.MemoryMappedParallelPartObjectTransport;
 import org.icgc.dcc.storage.client.transport.ParallelPartObjectTransport;
 import org.icgc.dcc.storage.client.transport.PipedParallelPartObjectTransport;
+import org.icgc.dcc.storage.client.transport.PooledBufferParallelPartObjectTransport;
+import org.icgc.dcc.storage.client.transport.PositionalParallelPartObjectTransport;
 import org.icgc.dcc.storage.client.transport.SequentialPartObjectTransport;
 import org.icgc.dcc.storage.client.transport.StorageService;
+import org.icgc.dcc.storage.client.transport.StreamingParallelPartObjectTransport;
+import org.icgc.dcc.storage.client.transport.StreamingParallelPartObjectTransport.StreamingParallelBuilder;
 import org.icgc.dcc.storage.client.transport.Transport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
+import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -42,6 +49,7 @@ public class TransportConfig {
   StorageService proxy;
 
   @Bean
+  @Primary
   public Transport.Builder builder() {
     Transport.Builder builder;
     switch (properties.getFileFrom()) {
@@ -49,7 +57,11 @@ public class TransportConfig {
       log.debug("Transport: {}", "Memory");
       builder = MemoryMappedParallelPartObjectTransport.builder()
           .withMemory(properties.getMemory() * 1024 * 1024 * 1024)
-          .withNumberOfWorkerThreads(properties.getParallel())
+          .withMemoryBudget(memoryBudget())
+          .withReadAhead(properties.getReadAhead())
+          .withVerifyThreads(properties.getVerifyThreads())
+          .withVerifyRate(properties.getVerifyRate() * 1024 * 1024)
+          .withNumberOfWorkerThreads(properties.getWorkerThreads())
           .withProxy(proxy);
       break;
     case "remote":
@@ -57,7 +69,32 @@ public class TransportConfig {
       builder =
           ParallelPartObjectTransport.builder()
               .withMemory(properties.getMemory() * 1024 * 1024 * 1024)
-              .withNumberOfWorkerThreads(properties.getParallel())
+              .withMemoryBudget(memoryBudget())
+              .withVerifyThreads(properties.getVerifyThreads())
+              .withVerifyRate(properties.getVerifyRate() * 1024 * 1024)
+              .withNumberOfWorkerThreads(properties.getWorkerThreads())
+              .withProxy(proxy);
+      break;
+    case "positional":
+      log.debug("Transport: {}", "Positional");
+      builder =
+          PositionalParallelPartObjectTransport.builder()
+              .withMemory(properties.getMemory() * 1024 * 1024 * 1024)
+              .withMemoryBudget(memoryBudget())
+              .withVerifyThreads(properties.getVerifyThreads())
+              .withVerifyRate(properties.getVerifyRate() * 1024 * 1024)
+              .withNumberOfWorkerThreads(properties.getWorkerThreads())
+              .withProxy(proxy);
+      break;
+    case "buffer":
+      log.debug("Transport: {}", "Pooled Buffer");
+      builder =
+          PooledBufferParallelPartObjectTransport.builder()
+              .withMemory(properties.getMemory() * 1024 * 1024 * 1024)
+              .withMemoryBudget(memoryBudget())
+              .withVerifyThreads(properties.getVerifyThreads())
+              .withVerifyRate(properties.getVerifyRate() * 1024 * 1024)
+              .withNumberOfWorkerThreads(properties.getWorkerThreads())
               .withProxy(proxy);
       break;
     case "sequential":
@@ -69,7 +106,10 @@ public class TransportConfig {
     default:
       builder = PipedParallelPartObjectTransport.builder()
           .withMemory(properties.getMemory() * 1024 * 1024 * 1024)
-          .withNumberOfWorkerThreads(properties.getParallel())
+          .withMemoryBudget(memoryBudget())
+          .withVerifyThreads(properties.getVerifyThreads())
+          .withVerifyRate(properties.getVerifyRate() * 1024 * 1024)
+          .withNumberOfWorkerThreads(properties.getWorkerThreads())
           .withProxy(proxy);
       log.debug("Transport: {}, Builder: {}", "local", builder);
 
@@ -78,4 +118,26 @@ public class TransportConfig {
     return builder;
   }
 
+  /**
+   * Memory shared by the transports of all objects that are transferred at the same time.
+   */
+  @Bean
+  public MemoryBudget memoryBudget() {
+    return new MemoryBudget(properties.getMemory() * 1024 * 1024 * 1024);
+  }
+
+  /**
+   * Transport used to stream downloads to stdout regardless of the configured {@code fileFrom}.
+   */
+  @Bean
+  public StreamingParallelBuilder streamingBuilder() {
+    val builder = StreamingParallelPartObjectTransport.builder();
+    builder
+        .withMemory(properties.getMemory() * 1024 * 1024 * 1024)
+        .withNumberOfWorkerThreads(properties.getWorkerThreads())
+        .withProxy(proxy);
+
+    return builder;
+  }
+
 }
@@ -31,4 +31,55 @@ public class TransportProperties {
   long memory;
   int parallel;
 
+  /**
+   * Bounds of the adaptive part concurrency. Concurrency starts at {@code parallel} and stays fixed unless
+   * {@code maxParallel} is larger.
+   */
+  int minParallel;
+  int maxParallel;
+
+  /**
+   * Number of objects of a manifest that are downloaded at the same time. Their parts share the memory and part
+   * concurrency above.
+   */
+  int parallelObjects;
+
+  /**
+   * Threads and read rate (MB/s, {@code 0} for unlimited) used to verify completed parts when resuming a download.
+   */
+  int verifyThreads;
+  long verifyRate;
+
+  /**
+   * Number of parts whose pages are loaded ahead of the memory mapped upload workers, within the memory budget.
+   */
+  int readAhead;
+
+  /**
+   * Hints sent to the server when it divides an object into parts: preferred part size (MB) and expected link speed
+   * (MB/s). {@code 0} leaves the choice to the server.
+   */
+  long partSize;
+  long bandwidth;
+
+  /**
+   * Percentile of recent part download times after which a duplicate request is raced against a slow part, {@code 0}
+   * to disable.
+   */
+  int hedgePercentile;
+
+  /**
+   * Limits (MB/s, {@code 0} for unlimited) on the combined rate of all downloads and of all uploads of the process.
+   */
+  long downloadRate;
+  long uploadRate;
+
+  public int getWorkerThreads() {
+    return Math.max(parallel, maxParallel);
+  }
+
+  public int getParallelObjects() {
+    return Math.max(1, parallelObjects);
+  }
+
 }
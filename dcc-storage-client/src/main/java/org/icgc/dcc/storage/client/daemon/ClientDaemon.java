@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.daemon;
+
+import static org.icgc.dcc.storage.client.command.ClientCommand.APPLICATION_NAME;
+import static org.icgc.dcc.storage.client.command.ClientCommand.FAILURE_STATUS;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.icgc.dcc.storage.client.cli.ConverterFactory;
+import org.icgc.dcc.storage.client.cli.Terminal;
+import org.icgc.dcc.storage.client.command.ClientCommand;
+import org.icgc.dcc.storage.client.metadata.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the application context warm and executes commands submitted by other invocations of the client.
+ * <p>
+ * Every submitted command runs against the same HTTP connection pools, caches and transfer components, so concurrent
+ * transfers share one {@link org.icgc.dcc.storage.client.transport.ConcurrencyController}, memory budget and bandwidth
+ * limit instead of each competing for them.
+ */
+@Slf4j
+@Component
+public class ClientDaemon {
+
+  /**
+   * Constants.
+   */
+  public static final Set<String> COMMANDS = ImmutableSet.of("download", "upload", "url");
+
+  /**
+   * Configuration.
+   */
+  @Value("${storage.profile}")
+  private String profile;
+  @Value("${client.quiet}")
+  private boolean quiet;
+  @Value("${client.silent}")
+  private boolean silent;
+
+  /**
+   * Dependencies.
+   */
+  @Autowired
+  private ApplicationContext context;
+  @Autowired
+  private Terminal terminal;
+
+  /**
+   * State.
+   */
+  private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+      .setNameFormat("daemon-%s").setDaemon(true).build());
+
+  /**
+   * Accepts requests until the process is terminated.
+   */
+  public void serve() throws IOException {
+    val token = UUID.randomUUID().toString();
+    val file = DaemonFile.getLocation(profile);
+
+    // Beans are created on demand, so warm up everything the commands depend on before the first request
+    COMMANDS.forEach(this::createCommand);
+
+    try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      new DaemonFile(server.getLocalPort(), token, quiet, silent).write(file);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteFile(file, token)));
+      RequestOutput.install();
+
+      terminal.printStatus("Serving '" + profile + "' requests on port " + terminal.value(server.getLocalPort())
+          + " (" + file + ")\n");
+      log.info("Daemon listening on port {}, token in {}", server.getLocalPort(), file);
+
+      while (true) {
+        val socket = server.accept();
+        executor.execute(() -> handle(socket, token));
+      }
+    } finally {
+      deleteFile(file, token);
+    }
+  }
+
+  private void handle(Socket socket, String token) {
+    try (Socket s = socket) {
+      val in = new DataInputStream(s.getInputStream());
+      val out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+      val request = DaemonProtocol.readRequest(in);
+      if (!DaemonProtocol.isAuthorized(request, token)) {
+        log.warn("Rejecting request from {} with an invalid token", s.getRemoteSocketAddress());
+        return;
+      }
+
+      val status = execute(request.getArgs(), out);
+      DaemonProtocol.writeStatus(out, status);
+    } catch (IOException e) {
+      log.warn("Error handling request: {}", e.getMessage());
+    }
+  }
+
+  private int execute(List<String> args, DataOutputStream out) {
+    val stdout = new PrintStream(DaemonProtocol.output(out, DaemonProtocol.STDOUT), true);
+    val stderr = new PrintStream(DaemonProtocol.output(out, DaemonProtocol.STDERR), true);
+
+    RequestOutput.set(stdout, stderr);
+    try {
+      log.info("Executing request: {}", args);
+      val command = parseCommand(args);
+
+      return command.execute();
+    } catch (ParameterException e) {
+      log.error("Bad parameter(s): ", e);
+      terminal.printError("Bad parameter(s): " + e.getMessage());
+    } catch (EntityNotFoundException e) {
+      log.error("Entity not found: ", e);
+      terminal.printError("Entity not found: " + e.getMessage());
+    } catch (Throwable t) {
+      log.error("Unknown error: ", t);
+      terminal.printError("Command error: " + t.getMessage() + "\n\nPlease check the log for detailed error messages");
+    } finally {
+      RequestOutput.clear();
+    }
+
+    return FAILURE_STATUS;
+  }
+
+  /**
+   * Commands hold their parsed options, so each request gets its own instance wired with the shared singletons.
+   */
+  private ClientCommand parseCommand(List<String> args) {
+    val cli = new JCommander();
+    cli.setProgramName(APPLICATION_NAME);
+    cli.addConverterFactory(new ConverterFactory());
+
+    for (val name : COMMANDS) {
+      cli.addCommand(name, createCommand(name));
+    }
+
+    cli.parse(args.toArray(new String[args.size()]));
+
+    val name = cli.getParsedCommand();
+    if (name == null) {
+      throw new ParameterException("Command name is empty. Please specify one of " + COMMANDS);
+    }
+
+    return (ClientCommand) cli.getCommands().get(name).getObjects().get(0);
+  }
+
+  private ClientCommand createCommand(String name) {
+    val type = ClassUtils.getUserClass(context.getType(name + "Command"));
+    return (ClientCommand) context.getAutowireCapableBeanFactory().createBean(type);
+  }
+
+  private static void deleteFile(File file, String token) {
+    try {
+      // Only remove the file if it is still ours
+      if (file.exists() && token.equals(DaemonFile.read(file).getToken())) {
+        file.delete();
+      }
+    } catch (IOException e) {
+      log.warn("Could not remove {}: {}", file, e.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.daemon;
+
+import static lombok.AccessLevel.PRIVATE;
+import static org.icgc.dcc.storage.client.command.ClientCommand.FAILURE_STATUS;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+/**
+ * Submits a command to the {@link ClientDaemon} of a profile, if one is running, instead of starting the application.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class DaemonClient {
+
+  /**
+   * Constants.
+   */
+  private static final int CONNECT_TIMEOUT = 500;
+  private static final Set<String> PATH_OPTIONS = ImmutableSet.of("--output-dir", "--file");
+  private static final String MANIFEST_OPTION = "--manifest";
+  private static final String STDOUT_OPTION = "--stdout";
+  private static final String PROFILE_OPTION = "--profile";
+  private static final String QUIET_OPTION = "--quiet";
+  private static final String SILENT_OPTION = "--silent";
+
+  /**
+   * @return the status of the command executed by the daemon, or empty if it must be executed locally
+   */
+  public static OptionalInt submit(String profile, String... args) {
+    val file = DaemonFile.getLocation(profile);
+    val invocation = parse(args);
+    if (!file.isFile() || invocation == null) {
+      return OptionalInt.empty();
+    }
+
+    DaemonFile daemon;
+    Socket socket = new Socket();
+    try {
+      daemon = DaemonFile.read(file);
+      if (!isSubmittable(daemon, invocation)) {
+        return OptionalInt.empty();
+      }
+
+      socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), daemon.getPort()), CONNECT_TIMEOUT);
+    } catch (IOException e) {
+      // Stale file of a daemon that is no longer running
+      closeQuietly(socket);
+      return OptionalInt.empty();
+    }
+
+    try (Socket s = socket) {
+      val out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+      DaemonProtocol.writeRequest(out, new DaemonProtocol.Request(daemon.getToken(), resolve(invocation.getArgs())));
+
+      val in = new DataInputStream(s.getInputStream());
+      while (true) {
+        val frame = DaemonProtocol.read(in);
+        if (frame.getType() == DaemonProtocol.STATUS) {
+          return OptionalInt.of(Integer.parseInt(new String(frame.getPayload(), Charsets.UTF_8)));
+        }
+
+        val target = frame.getType() == DaemonProtocol.STDOUT ? System.out : System.err;
+        write(target, frame.getPayload());
+      }
+    } catch (IOException e) {
+      System.err.println("\nLost connection to the client daemon: " + e.getMessage());
+      return OptionalInt.of(FAILURE_STATUS);
+    }
+  }
+
+  /**
+   * Splits the global options, which precede the command, from the command and its options in the same way as
+   * {@code ClientMain}.
+   * 
+   * @return the invocation, or {@code null} if it can only be executed locally
+   */
+  static Invocation parse(String... args) {
+    boolean quiet = false;
+    boolean silent = false;
+
+    int i = 0;
+    for (; i < args.length && args[i].startsWith("--"); i++) {
+      val arg = args[i];
+      if (arg.equals(PROFILE_OPTION)) {
+        // The profile selects the daemon, its value follows
+        i++;
+      } else if (arg.startsWith(PROFILE_OPTION + "=")) {
+        // The profile selects the daemon
+      } else if (arg.equals(QUIET_OPTION)) {
+        quiet = true;
+      } else if (arg.equals(SILENT_OPTION)) {
+        silent = true;
+      } else {
+        // --version, --help, --startup-report or an option the daemon does not know about
+        return null;
+      }
+    }
+
+    if (i >= args.length || !ClientDaemon.COMMANDS.contains(args[i])) {
+      return null;
+    }
+
+    val commandArgs = Arrays.asList(args).subList(i, args.length);
+    for (val arg : commandArgs) {
+      // Streaming to stdout relies on the caller's own stdout being the sink
+      if (arg.equals(STDOUT_OPTION) || arg.startsWith(STDOUT_OPTION + "=")) {
+        return null;
+      }
+    }
+
+    return new Invocation(quiet, silent, commandArgs);
+  }
+
+  /**
+   * The daemon's output settings are fixed when it starts, so invocations asking for others run locally.
+   */
+  static boolean isSubmittable(DaemonFile daemon, Invocation invocation) {
+    return daemon.isQuiet() == invocation.isQuiet() && daemon.isSilent() == invocation.isSilent();
+  }
+
+  /**
+   * The daemon has its own working directory, so relative paths are resolved against the caller's.
+   */
+  static List<String> resolve(List<String> args) {
+    val resolved = Lists.<String> newArrayList();
+    for (int i = 0; i < args.size(); i++) {
+      val arg = args.get(i);
+      val separator = arg.indexOf('=');
+      val name = separator < 0 ? arg : arg.substring(0, separator);
+      if (!isPathOption(name)) {
+        resolved.add(arg);
+      } else if (separator >= 0) {
+        resolved.add(name + "=" + resolve(name, arg.substring(separator + 1)));
+      } else if (i + 1 < args.size()) {
+        resolved.add(arg);
+        resolved.add(resolve(name, args.get(++i)));
+      } else {
+        resolved.add(arg);
+      }
+    }
+
+    return resolved;
+  }
+
+  private static boolean isPathOption(String name) {
+    return PATH_OPTIONS.contains(name) || MANIFEST_OPTION.equals(name);
+  }
+
+  private static String resolve(String name, String value) {
+    val file = new File(value);
+    if (MANIFEST_OPTION.equals(name) && !file.isFile()) {
+      // Manifest id or url
+      return value;
+    }
+
+    return file.getAbsolutePath();
+  }
+
+  private static void write(PrintStream target, byte[] payload) {
+    target.write(payload, 0, payload.length);
+    target.flush();
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // Ignore
+    }
+  }
+
+  /**
+   * A command with its options and the output settings requested for it.
+   */
+  @lombok.Value
+  static class Invocation {
+
+    boolean quiet;
+    boolean silent;
+    List<String> args;
+
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.daemon;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+/**
+ * Where a running daemon of a profile can be reached, and the token that callers must present.
+ * <p>
+ * Only the owner may read the file, so only the owner's processes can submit commands.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DaemonFile {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private int port;
+  private String token;
+
+  /**
+   * Output settings of the daemon, which apply to every command it executes.
+   */
+  private boolean quiet;
+  private boolean silent;
+
+  /**
+   * @return the file of the daemon serving {@code profile}, {@code storage.daemon.file} if set
+   */
+  public static File getLocation(String profile) {
+    val configured = System.getProperty("storage.daemon.file");
+    if (configured != null) {
+      return new File(configured);
+    }
+
+    return new File(System.getProperty("user.home"), ".icgc-storage/daemon-" + profile + ".json");
+  }
+
+  public static DaemonFile read(File file) throws IOException {
+    return MAPPER.readValue(file, DaemonFile.class);
+  }
+
+  public void write(File file) throws IOException {
+    Files.createDirectories(file.getParentFile().toPath());
+
+    val temp = new File(file.getParentFile(), file.getName() + ".tmp");
+    Files.deleteIfExists(temp.toPath());
+    Files.createFile(temp.toPath());
+    try {
+      Files.setPosixFilePermissions(temp.toPath(), PosixFilePermissions.fromString("rw-------"));
+    } catch (UnsupportedOperationException e) {
+      temp.setReadable(false, false);
+      temp.setReadable(true, true);
+    }
+
+    MAPPER.writeValue(temp, this);
+    Files.move(temp.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.daemon;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static lombok.AccessLevel.PRIVATE;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Frames exchanged over a daemon connection: a type byte, a length and a payload.
+ * <p>
+ * The caller sends a single {@link #REQUEST}. The daemon answers with any number of {@link #STDOUT} and {@link #STDERR}
+ * frames, carrying what the command prints, followed by the {@link #STATUS} of the command.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class DaemonProtocol {
+
+  /**
+   * Frame types.
+   */
+  public static final byte REQUEST = 'q';
+  public static final byte STDOUT = 'o';
+  public static final byte STDERR = 'e';
+  public static final byte STATUS = 's';
+
+  /**
+   * Requests are read before the caller is authenticated, so anyone able to connect must not make the daemon allocate
+   * more than this.
+   */
+  public static final int MAX_REQUEST_SIZE = 16 * 1024;
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  public static void writeRequest(DataOutputStream out, Request request) throws IOException {
+    write(out, REQUEST, MAPPER.writeValueAsBytes(request));
+    out.flush();
+  }
+
+  public static Request readRequest(DataInputStream in) throws IOException {
+    val frame = read(in, MAX_REQUEST_SIZE);
+    if (frame.getType() != REQUEST) {
+      throw new IOException("Expected a request, received frame type " + (char) frame.getType());
+    }
+
+    return MAPPER.readValue(frame.getPayload(), Request.class);
+  }
+
+  /**
+   * Compares tokens in constant time.
+   */
+  public static boolean isAuthorized(Request request, String token) {
+    return request.getToken() != null
+        && MessageDigest.isEqual(request.getToken().getBytes(UTF_8), token.getBytes(UTF_8));
+  }
+
+  public static void writeStatus(DataOutputStream out, int status) throws IOException {
+    write(out, STATUS, Integer.toString(status).getBytes(UTF_8));
+    out.flush();
+  }
+
+  /**
+   * Frames may be written by several threads of a command, e.g. its progress display.
+   */
+  public static void write(DataOutputStream out, byte type, byte[] payload) throws IOException {
+    synchronized (out) {
+      out.writeByte(type);
+      out.writeInt(payload.length);
+      out.write(payload);
+    }
+  }
+
+  public static Frame read(DataInputStream in) throws IOException {
+    return read(in, Integer.MAX_VALUE);
+  }
+
+  public static Frame read(DataInputStream in, int maxLength) throws IOException {
+    val type = in.readByte();
+    val length = in.readInt();
+    if (length < 0 || length > maxLength) {
+      throw new IOException("Invalid length " + length + " of frame type " + (char) type);
+    }
+
+    val payload = new byte[length];
+    in.readFully(payload);
+
+    return new Frame(type, payload);
+  }
+
+  /**
+   * @return a stream that sends whatever is written to it as frames of {@code type}
+   */
+  public static OutputStream output(DataOutputStream out, byte type) {
+    return new FrameOutputStream(out, type);
+  }
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Request {
+
+    private String token;
+    private List<String> args;
+
+  }
+
+  @Data
+  @AllArgsConstructor
+  public static class Frame {
+
+    private byte type;
+    private byte[] payload;
+
+  }
+
+  @RequiredArgsConstructor
+  private static class FrameOutputStream extends OutputStream {
+
+    private final DataOutputStream out;
+    private final byte type;
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      val payload = new byte[len];
+      System.arraycopy(b, off, payload, 0, len);
+      DaemonProtocol.write(out, type, payload);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+  }
+
+}
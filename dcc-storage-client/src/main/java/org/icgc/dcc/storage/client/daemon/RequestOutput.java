@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.daemon;
+
+import static lombok.AccessLevel.PRIVATE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.Function;
+
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Routes {@code System.out} and {@code System.err} to the caller of the request being executed by the current thread.
+ * <p>
+ * Commands and the {@link org.icgc.dcc.storage.client.cli.Terminal} print to the standard streams directly. Once
+ * {@link #install()}ed, whatever a request's threads (and the threads they start) print is sent back to the invocation
+ * that submitted it, while output of the daemon itself still goes to the original streams.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class RequestOutput {
+
+  /**
+   * State.
+   */
+  private static final InheritableThreadLocal<Streams> CURRENT = new InheritableThreadLocal<>();
+  private static boolean installed;
+
+  public static synchronized void install() {
+    if (installed) {
+      return;
+    }
+
+    System.setOut(route(System.out, Streams::getOut));
+    System.setErr(route(System.err, Streams::getErr));
+    installed = true;
+  }
+
+  /**
+   * Routes the output of the current thread to {@code out} and {@code err} until {@link #clear()}.
+   */
+  public static void set(PrintStream out, PrintStream err) {
+    CURRENT.set(new Streams(out, err));
+  }
+
+  public static void clear() {
+    val streams = CURRENT.get();
+    CURRENT.remove();
+    if (streams != null) {
+      streams.getOut().flush();
+      streams.getErr().flush();
+    }
+  }
+
+  private static PrintStream route(PrintStream original, Function<Streams, PrintStream> selector) {
+    return new PrintStream(new RoutingOutputStream(original, selector), true);
+  }
+
+  @lombok.Value
+  private static class Streams {
+
+    PrintStream out;
+    PrintStream err;
+
+  }
+
+  @RequiredArgsConstructor
+  private static class RoutingOutputStream extends OutputStream {
+
+    private final PrintStream original;
+    private final Function<Streams, PrintStream> selector;
+
+    @Override
+    public void write(int b) throws IOException {
+      target().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      target().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      target().flush();
+    }
+
+    private PrintStream target() {
+      val streams = CURRENT.get();
+      return streams == null ? original : selector.apply(streams);
+    }
+
+  }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.download;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only record of the parts of an object that have been downloaded.
+ * <p>
+ * Each record carries a CRC32 so that a record torn by a crash is detected and dropped on the next load, along with
+ * anything after it. The journal is replayed once into memory, after which lookups do not touch the file system.
+ * Records are written as they arrive but only forced to disk at most once per {@link #SYNC_INTERVAL}, and on
+ * {@link #close()}. Losing the tail of the journal only means downloading those parts again.
+ */
+@Slf4j
+public class DownloadJournal implements Closeable {
+
+  /**
+   * Constants.
+   */
+  private static final int MAGIC = 0x444A4E4C; // "DJNL"
+  private static final byte VERSION = 1;
+  private static final int HEADER_SIZE = 5;
+  private static final byte COMMIT = 1;
+  private static final byte DELETE = 2;
+  private static final long SYNC_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * State.
+   */
+  private final File file;
+  private final FileChannel channel;
+  private final BitSet completed = new BitSet();
+  private final Map<Integer, String> md5s = new HashMap<>();
+  private long lastSync = System.nanoTime();
+  private boolean dirty;
+
+  public DownloadJournal(File file) throws IOException {
+    this.file = file;
+    this.channel = FileChannel.open(file.toPath(), CREATE, READ, WRITE);
+
+    try {
+      if (channel.size() < HEADER_SIZE) {
+        writeHeader();
+      } else {
+        val end = replay();
+        if (end < channel.size()) {
+          log.warn("Discarding {} bytes of incomplete records from {}", channel.size() - end, file);
+          channel.truncate(end);
+        }
+        channel.position(end);
+      }
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public synchronized boolean isCompleted(int partNumber) {
+    return completed.get(partNumber);
+  }
+
+  /**
+   * @return the MD5 recorded for the part, or {@code null} if it has not been completed
+   */
+  public synchronized String getMd5(int partNumber) {
+    return md5s.get(partNumber);
+  }
+
+  public synchronized int getCompletedCount() {
+    return completed.cardinality();
+  }
+
+  public synchronized void commit(int partNumber, String md5) throws IOException {
+    append(partNumber, COMMIT, md5);
+  }
+
+  public synchronized void delete(int partNumber) throws IOException {
+    append(partNumber, DELETE, null);
+  }
+
+  /**
+   * Forces any records that are not yet on disk.
+   */
+  public synchronized void sync() throws IOException {
+    if (dirty) {
+      channel.force(false);
+      dirty = false;
+    }
+    lastSync = System.nanoTime();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      sync();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    val header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).put(VERSION);
+    header.flip();
+
+    channel.truncate(0);
+    channel.position(0);
+    write(header);
+    channel.force(false);
+  }
+
+  private void append(int partNumber, byte type, String md5) throws IOException {
+    val payload = encode(partNumber, type, md5);
+    val record = ByteBuffer.allocate(payload.length + 4).put(payload).putInt(checksum(payload));
+    record.flip();
+
+    write(record);
+    apply(partNumber, type, md5);
+
+    dirty = true;
+    if (System.nanoTime() - lastSync >= SYNC_INTERVAL) {
+      sync();
+    }
+  }
+
+  private void write(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Applies all intact records in the file.
+   * 
+   * @return the position just after the last intact record
+   */
+  private long replay() throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+        throw new IOException("Unrecognized download journal " + file);
+      }
+
+      long position = HEADER_SIZE;
+      while (true) {
+        try {
+          val partNumber = input.readInt();
+          val type = input.readByte();
+          val md5 = input.readUTF();
+          val checksum = input.readInt();
+
+          val payload = encode(partNumber, type, md5);
+          if (checksum != checksum(payload)) {
+            log.warn("Corrupted record at position {} of {}", position, file);
+            return position;
+          }
+
+          apply(partNumber, type, md5);
+          position += payload.length + 4;
+        } catch (EOFException e) {
+          return position;
+        } catch (UTFDataFormatException e) {
+          log.warn("Corrupted record at position {} of {}: {}", position, file, e.getMessage());
+          return position;
+        }
+      }
+    }
+  }
+
+  private void apply(int partNumber, byte type, String md5) {
+    if (type == COMMIT) {
+      completed.set(partNumber);
+      md5s.put(partNumber, md5 == null ? "" : md5);
+    } else {
+      completed.clear(partNumber);
+      md5s.remove(partNumber);
+    }
+  }
+
+  private static byte[] encode(int partNumber, byte type, String md5) throws IOException {
+    val bytes = new ByteArrayOutputStream(32);
+    val output = new DataOutputStream(bytes);
+    output.writeInt(partNumber);
+    output.writeByte(type);
+    output.writeUTF(md5 == null ? "" : md5);
+
+    return bytes.toByteArray();
+  }
+
+  private static int checksum(byte[] payload) {
+    val crc = new CRC32();
+    crc.update(payload, 0, payload.length);
+    return (int) crc.getValue();
+  }
+
+}
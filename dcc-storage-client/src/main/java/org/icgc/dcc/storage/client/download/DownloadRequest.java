@@ -35,6 +35,11 @@ public class DownloadRequest {
   private boolean validate;
   private Entity entity;
 
+  /**
+   * Suppresses the progress bar, e.g. while other objects are downloaded at the same time.
+   */
+  private boolean quiet;
+
   public File getOutputFilePath() {
     return new File(outputDir, objectId);
   }
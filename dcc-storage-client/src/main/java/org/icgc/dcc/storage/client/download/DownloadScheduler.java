@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.download;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+import static org.icgc.dcc.storage.core.model.IndexFileType.isIndexFile;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+
+import org.icgc.dcc.storage.client.config.TransportProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Downloads the objects of a manifest, several at a time.
+ * <p>
+ * Objects are started smallest first, with index files ahead of everything else, so that many small objects do not
+ * wait behind a large one. The parts of all running objects compete for the same memory budget and part concurrency,
+ * so the parts of several objects are interleaved on the wire.
+ */
+@Slf4j
+@Component
+public class DownloadScheduler {
+
+  /**
+   * Dependencies.
+   */
+  @Autowired
+  private TransportProperties properties;
+  @Autowired
+  private DownloadService downloadService;
+
+  /**
+   * Callbacks that report the progress of each object.
+   */
+  public interface Listener {
+
+    void started(DownloadRequest request);
+
+    void completed(DownloadRequest request) throws IOException;
+
+  }
+
+  /**
+   * Downloads all {@code requests}, failing on the first object that cannot be downloaded.
+   * 
+   * @param sizes object sizes keyed by object id
+   */
+  public void download(List<DownloadRequest> requests, Map<String, Long> sizes, boolean force, Listener listener)
+      throws IOException {
+    val nObjects = Math.min(properties.getParallelObjects(), requests.size());
+    val ordered = prioritize(requests, sizes);
+    if (nObjects <= 1) {
+      for (val request : ordered) {
+        listener.started(request);
+        downloadService.download(request, force);
+        listener.completed(request);
+      }
+
+      return;
+    }
+
+    log.info("Downloading {} objects, {} at a time", requests.size(), nObjects);
+    val executor = Executors.newFixedThreadPool(nObjects, new ThreadFactoryBuilder()
+        .setNameFormat("object-%s").build());
+    val completion = new ExecutorCompletionService<DownloadRequest>(executor);
+    try {
+      for (val request : ordered) {
+        // Concurrent progress bars would overwrite each other
+        request.setQuiet(true);
+        completion.submit(() -> {
+          listener.started(request);
+          downloadService.download(request, force);
+          return request;
+        });
+      }
+
+      for (int i = 0; i < ordered.size(); i++) {
+        // Finalization happens on this thread so it stays in completion order
+        listener.completed(completion.take().get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while downloading", e);
+    } catch (ExecutionException e) {
+      log.error("Failed to download object", e.getCause());
+      throw propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Orders {@code requests} so that index files come first, followed by the remaining objects smallest first.
+   */
+  static List<DownloadRequest> prioritize(List<DownloadRequest> requests, Map<String, Long> sizes) {
+    return requests.stream()
+        .sorted(comparing((DownloadRequest request) -> !isIndexFile(getFileName(request)))
+            .thenComparing(request -> sizes.getOrDefault(request.getObjectId(), Long.MAX_VALUE)))
+        .collect(toList());
+  }
+
+  private static String getFileName(DownloadRequest request) {
+    val entity = request.getEntity();
+    return entity == null || entity.getFileName() == null ? request.getObjectId() : entity.getFileName();
+  }
+
+  private static IOException propagate(Throwable t) {
+    if (t instanceof IOException) {
+      return (IOException) t;
+    }
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+
+    return new IOException(t);
+  }
+
+}
@@ -19,6 +19,7 @@ package org.icgc.dcc.storage.client.download;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterables.getOnlyElement;
+import static java.util.stream.Collectors.toMap;
 
 import lombok.NonNull;
 import lombok.SneakyThrows;
@@ -28,13 +29,17 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import javax.annotation.PostConstruct;
@@ -45,7 +50,10 @@ import org.icgc.dcc.storage.client.exception.NotRetryableException;
 import org.icgc.dcc.storage.client.exception.RetryableException;
 import org.icgc.dcc.storage.client.metadata.Entity;
 import org.icgc.dcc.storage.client.progress.Progress;
+import org.icgc.dcc.storage.client.transport.ObjectDigester;
 import org.icgc.dcc.storage.client.transport.StorageService;
+import org.icgc.dcc.storage.client.transport.StreamingParallelPartObjectTransport;
+import org.icgc.dcc.storage.client.transport.StreamingParallelPartObjectTransport.StreamingParallelBuilder;
 import org.icgc.dcc.storage.client.transport.Transport;
 import org.icgc.dcc.storage.client.transport.Transport.Mode;
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
@@ -55,6 +63,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
 import com.google.common.io.BaseEncoding;
 
 @Slf4j
@@ -77,8 +87,12 @@ public class DownloadService {
   @Autowired
   private DownloadStateStore downloadStateStore;
   @Autowired
+  private ObjectCache objectCache;
+  @Autowired
   private Transport.Builder transportBuilder;
   @Autowired
+  private StreamingParallelBuilder streamingTransportBuilder;
+  @Autowired
   private Terminal terminal;
 
   @PostConstruct
@@ -114,6 +128,33 @@ public class DownloadService {
    * @throws IOException
    */
   public void download(DownloadRequest downloadRequest, boolean redo) throws IOException {
+    val cacheable = getCacheableSpecification(downloadRequest, redo);
+    if (cacheable != null && fetchFromCache(downloadRequest, cacheable, redo)) {
+      return;
+    }
+
+    transfer(downloadRequest, redo);
+
+    if (cacheable != null) {
+      try {
+        objectCache.store(downloadRequest.getObjectId(), cacheable.getObjectMd5(), downloadRequest.getOutputFilePath());
+      } catch (IOException e) {
+        log.warn("Could not add {} to the cache: {}", downloadRequest.getObjectId(), e.getMessage());
+      }
+    }
+  }
+
+  private void transfer(DownloadRequest downloadRequest, boolean redo) throws IOException {
+    try {
+      retryTransfer(downloadRequest, redo);
+    } catch (Throwable e) {
+      // Also for failures thrown sneakily by the transports
+      downloadStateStore.abort(downloadRequest.getOutputDir(), downloadRequest.getObjectId());
+      throw e;
+    }
+  }
+
+  private void retryTransfer(DownloadRequest downloadRequest, boolean redo) throws IOException {
     log.debug("Beginning download of {}", downloadRequest.toString());
     int retry = 0;
     for (; retry < retryNumber; retry++) {
@@ -147,6 +188,65 @@ public class DownloadService {
     }
   }
 
+  /**
+   * @return the specification of the requested object if it can be served from, and added to, the object cache,
+   * otherwise {@code null}
+   */
+  private ObjectSpecification getCacheableSpecification(DownloadRequest request, boolean redo) throws IOException {
+    // Only whole, verified objects go into the cache. A partial download is resumed rather than replaced.
+    val whole = request.getOffset() == 0 && request.getLength() < 0;
+    val resumed = request.getOutputFilePath().exists() && !redo;
+    if (!objectCache.isEnabled() || !whole || !request.isValidate() || resumed) {
+      return null;
+    }
+
+    val spec = storageService.getDownloadSpecification(request.getObjectId());
+    return spec.getObjectMd5() == null ? null : spec;
+  }
+
+  private boolean fetchFromCache(DownloadRequest request, ObjectSpecification spec, boolean redo) throws IOException {
+    if (redo) {
+      resetDownload(request.getOutputFilePath());
+    }
+    if (!objectCache.fetch(request.getObjectId(), spec.getObjectMd5(), spec.getObjectSize(),
+        request.getOutputFilePath())) {
+      return false;
+    }
+
+    terminal.printStatus("Retrieved " + request.getObjectId() + " from the local cache");
+    return true;
+  }
+
+  /**
+   * Streams the requested object range to {@code output} in order, without writing anything to disk. Streams cannot be
+   * resumed, so a failure part way through is not retried.
+   */
+  public void stream(DownloadRequest request, OutputStream output) throws IOException {
+    log.debug("Beginning stream of {}", request.toString());
+    val spec = storageService.getDownloadSpecification(request.getObjectId(), request.getOffset(), request.getLength());
+    val hos = new HashingOutputStream(Hashing.md5(), output);
+
+    val progress = new Progress(terminal, quiet, spec.getParts().size(), 0);
+    StreamingParallelPartObjectTransport transport;
+    synchronized (streamingTransportBuilder) {
+      streamingTransportBuilder.withProxy(storageService)
+          .withProgressBar(progress)
+          .withParts(spec.getParts())
+          .withObjectId(request.getObjectId())
+          .withTransportMode(Mode.DOWNLOAD)
+          .withSessionId(request.getObjectId());
+      transport = streamingTransportBuilder.build();
+    }
+    transport.receive(hos);
+
+    // The object MD5 only applies to the whole object
+    val whole = request.getOffset() == 0 && request.getLength() < 0;
+    if (request.isValidate() && whole) {
+      terminal.printStatus("Verifying checksum...");
+      checkMd5("stream of " + request.getObjectId(), hos.hash().toString(), spec);
+    }
+  }
+
   protected void resetDownload(File objFile) {
     if (objFile.exists()) {
       // Delete if already there
@@ -160,6 +260,7 @@ public class DownloadService {
     ObjectSpecification spec = null;
     try {
       spec = downloadStateStore.getProgress(request.getOutputDir(), request.getObjectId());
+      refreshExpiredUrls(request, spec);
     } catch (NotRetryableException e) {
       log.info("New download: {} because {}", request.getObjectId(), e.getMessage());
       terminal.printStatus("Restarting ");
@@ -170,6 +271,32 @@ public class DownloadService {
     resume(request, spec, checksum);
   }
 
+  /**
+   * Pre-signed URLs expire if a download is not completed in the allotted period. Fresh ones are requested for the
+   * remaining parts, so that the completed parts can be kept. Fails if the object has changed in the meantime.
+   */
+  private void refreshExpiredUrls(DownloadRequest request, ObjectSpecification spec) throws IOException {
+    val expired = downloadStateStore.getExpiredParts(spec);
+    if (expired.isEmpty()) {
+      return;
+    }
+
+    log.info("Refreshing {} expired part URLs of {}", expired.size(), request.getObjectId());
+    val urls = storageService.getPartUrls(request.getObjectId(), spec.getObjectMd5(), expired).stream()
+        .collect(toMap(Part::getPartNumber, Part::getUrl));
+    for (val part : expired) {
+      val url = urls.get(part.getPartNumber());
+      if (url == null) {
+        throw new NotRetryableException(
+            new IllegalStateException("No fresh URL received for part# " + part.getPartNumber()));
+      }
+
+      part.setUrl(url);
+    }
+
+    downloadStateStore.updateSpecification(request.getOutputDir(), spec);
+  }
+
   private void resume(DownloadRequest request, ObjectSpecification spec, boolean checksum) {
     log.info("Resuming from previous download...");
 
@@ -178,13 +305,14 @@ public class DownloadService {
     val remainingParts = totalParts - completedParts;
 
     log.info("Total parts: {}, completed parts: {}, remaining parts: {}", totalParts, completedParts, remainingParts);
-    val progress = new Progress(terminal, quiet, totalParts, completedParts);
+    val progress = new Progress(terminal, quiet || request.isQuiet(), totalParts, completedParts);
+    val digester = createDigester(request, spec);
     downloadParts(spec.getParts(), request.getOutputDir(), request.getObjectId(), request.getObjectId(), progress,
-        checksum);
+        checksum, digester);
 
     if (request.isValidate()) {
       terminal.printStatus("Verifying checksum...");
-      doMd5Checksum(request, spec);
+      doMd5Checksum(request, spec, digester);
       terminal.printStatus("Ok");
     }
   }
@@ -221,14 +349,21 @@ public class DownloadService {
    */
   @SneakyThrows
   public long getSpaceRequired(Set<Entity> entities) {
-    long total = 0L;
+    return getObjectSizes(entities).values().stream().mapToLong(Long::longValue).sum();
+  }
 
+  /**
+   * Looks up the size of each object, keyed by object id.
+   */
+  @SneakyThrows
+  public Map<String, Long> getObjectSizes(Set<Entity> entities) {
+    val sizes = new HashMap<String, Long>();
     for (val entity : entities) {
       val spec = storageService.getDownloadSpecification(entity.getId());
-      total += spec.getObjectSize();
+      sizes.put(entity.getId(), spec.getObjectSize());
     }
 
-    return total;
+    return sizes;
   }
 
   /**
@@ -263,13 +398,14 @@ public class DownloadService {
     downloadStateStore.init(dir, spec);
 
     // TODO: Assign session id
-    val progress = new Progress(terminal, quiet, spec.getParts().size(), 0);
-    downloadParts(spec.getParts(), dir, request.getObjectId(), request.getObjectId(), progress, false);
+    val progress = new Progress(terminal, quiet || request.isQuiet(), spec.getParts().size(), 0);
+    val digester = createDigester(request, spec);
+    downloadParts(spec.getParts(), dir, request.getObjectId(), request.getObjectId(), progress, false, digester);
 
     if (request.isValidate()) {
       terminal.printStatus("Verifying checksum...");
       log.info("Beginning MD5 checksum calculation for {}", request.getOutputFilePath().toString());
-      doMd5Checksum(request, spec);
+      doMd5Checksum(request, spec, digester);
     }
 
   }
@@ -279,26 +415,67 @@ public class DownloadService {
    */
   @SneakyThrows
   private void downloadParts(List<Part> parts, File file, String objectId, String sessionId, Progress progressBar,
-      boolean checksum) {
+      boolean checksum, ObjectDigester digester) {
     log.debug("Setting up download of parts");
-    transportBuilder.withProxy(storageService)
-        .withProgressBar(progressBar)
-        .withParts(parts)
-        .withObjectId(objectId)
-        .withTransportMode(Mode.DOWNLOAD)
-        .withChecksum(checksum)
-        .withSessionId(sessionId);
-    transportBuilder.build().receive(file);
+    Transport transport;
+
+    // The builder is shared by objects that are downloaded concurrently
+    synchronized (transportBuilder) {
+      transportBuilder.withProxy(storageService)
+          .withProgressBar(progressBar)
+          .withParts(parts)
+          .withObjectId(objectId)
+          .withTransportMode(Mode.DOWNLOAD)
+          .withChecksum(checksum)
+          .withDigester(digester)
+          .withSessionId(sessionId);
+      transport = transportBuilder.build();
+    }
+
+    try {
+      transport.receive(file);
+    } catch (Throwable e) {
+      // Also when the transport failed before it could release the digester itself
+      if (digester != null) {
+        digester.close();
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * Creates a digester that hashes the object while its parts arrive, if the object MD5 is going to be verified.
+   */
+  private ObjectDigester createDigester(DownloadRequest request, ObjectSpecification spec) {
+    if (!request.isValidate() || spec.getObjectMd5() == null) {
+      return null;
+    }
+
+    return new ObjectDigester(request.getOutputFilePath(), spec.getParts());
   }
 
-  private void doMd5Checksum(DownloadRequest req, ObjectSpecification spec) {
+  @SneakyThrows
+  private void doMd5Checksum(DownloadRequest req, ObjectSpecification spec, ObjectDigester digester) {
 
     if (spec.getObjectMd5() == null) {
       log.warn("meta file does not contain the object MD5 checksum. Skipping check.");
       return;
     }
     val outputFile = req.getOutputFilePath();
-    val downloadedMd5 = calculateChecksum(outputFile);
+
+    // Only re-read the file if the transport could not hash it during the download
+    val digest = digester == null ? Optional.<String> empty() : digester.getMd5();
+    val downloadedMd5 = digest.isPresent() ? digest.get() : calculateChecksum(outputFile);
+
+    checkMd5(outputFile.getAbsolutePath(), downloadedMd5, spec);
+  }
+
+  private void checkMd5(String description, String downloadedMd5, ObjectSpecification spec) {
+    if (spec.getObjectMd5() == null) {
+      log.warn("meta file does not contain the object MD5 checksum. Skipping check.");
+      return;
+    }
 
     boolean check;
     try {
@@ -310,9 +487,9 @@ public class DownloadService {
     }
 
     if (check) {
-      log.info("MD5 for {} validated correctly", outputFile.getAbsolutePath());
+      log.info("MD5 for {} validated correctly", description);
     } else {
-      val msg = String.format("MD5 for %s was %s but was expecting %s", outputFile.getAbsolutePath(), downloadedMd5,
+      val msg = String.format("MD5 for %s was %s but was expecting %s", description, downloadedMd5,
           spec.getObjectMd5());
       log.error(msg);
       terminal.printWarn(msg);
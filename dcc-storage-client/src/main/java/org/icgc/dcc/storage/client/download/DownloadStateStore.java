@@ -17,6 +17,10 @@
  */
 package org.icgc.dcc.storage.client.download;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.stream.Collectors.toList;
+
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,6 +28,9 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
 import org.icgc.dcc.storage.client.state.TransferState;
@@ -34,6 +41,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+/**
+ * Keeps track of the downloaded parts of each object in a hidden state directory next to the object.
+ * <p>
+ * The state directory holds the object specification ({@code meta}) and a {@link DownloadJournal} of completed parts.
+ * Both are loaded once per object and then served from memory.
+ */
 @Slf4j
 public class DownloadStateStore extends TransferState {
 
@@ -42,11 +55,18 @@ public class DownloadStateStore extends TransferState {
 
   private static final ObjectMapper MAPPER = new ObjectMapper();
 
+  /**
+   * State - keyed by object state directory.
+   */
+  private final Map<File, ObjectSpecification> specs = new ConcurrentHashMap<>();
+  private final Map<File, DownloadJournal> journals = new ConcurrentHashMap<>();
+
   public void init(File stateDir, ObjectSpecification spec) {
     log.debug("Download Specification : {}", spec);
     try {
       byte[] content = MAPPER.writeValueAsBytes(spec);
-      File objectStateDir = getObjectStateDir(stateDir, spec.getObjectId());
+      File objectStateDir = getStateKey(stateDir, spec.getObjectId());
+      release(objectStateDir);
 
       log.debug("About to delete {}", objectStateDir.toString());
       deleteDirectoryIfExist(objectStateDir);
@@ -56,16 +76,15 @@ public class DownloadStateStore extends TransferState {
       log.debug("About to copy content to {}", specFile.toString());
       Files.copy(new ByteArrayInputStream(content), specFile.toPath());
       log.debug("Finished writing specification to {}", specFile.toPath().toString());
+
+      specs.put(objectStateDir, spec);
+      journals.put(objectStateDir, new DownloadJournal(new File(objectStateDir, getJournalName())));
     } catch (IOException e) {
       log.error("Failed to create meta file", e);
       throw new NotRetryableException(e);
     }
   }
 
-  private String getPartName(Part part) {
-    return String.format("%s%08x", getPartPrefix(), (0xFFFFFFFF & part.getPartNumber()));
-  }
-
   private String getPartPrefix() {
     return "part-";
   }
@@ -74,66 +93,80 @@ public class DownloadStateStore extends TransferState {
     return "meta";
   }
 
+  protected String getJournalName() {
+    return "journal";
+  }
+
   public boolean hasStarted(File stateDir, String objectId) {
     return Files.exists(new File(getObjectStateDir(stateDir, objectId), getSpecificationName()).toPath());
   }
 
+  /**
+   * @return a copy of the specification of the download with the MD5s of its completed parts, which callers may change
+   */
   public ObjectSpecification getProgress(File stateDir, String objectId) throws IOException {
     log.debug("Loading local progress for {} from {}", objectId, stateDir.toString());
-    val spec = loadSpecification(stateDir, objectId);
+    val spec = MAPPER.convertValue(loadSpecification(stateDir, objectId), ObjectSpecification.class);
     log.debug("Completed loading local object specification (meta file)");
+    val journal = getJournal(stateDir, objectId);
     for (val part : spec.getParts()) {
-      log.debug("Checking md5 for part {}", part.getPartNumber());
-      if (isCompleted(stateDir, objectId, part)) {
-        val completedPart = loadPart(stateDir, objectId, getPartName(part));
-        // Copy download md5 into ObjectSpecification
-        part.setMd5(completedPart.getMd5());
-      } else {
-        // Part is not complete - check if it has expired
-        if (urlValidator.isUrlExpired(part.getUrl())) {
-          val ise =
-              new IllegalStateException(
-                  "Presigned URL's have expired because download was not completed in allotted period. Restarting.");
-          throw new NotRetryableException(ise);
-        }
-      }
+      // Copy download md5 into ObjectSpecification
+      part.setMd5(journal.getMd5(part.getPartNumber()));
     }
     return spec;
   }
 
   /**
-   * A marker file is written to the working directory after each part is downloaded and the MD5 checksum is verified.
-   * Checking to see if a part was completed previously is based on the presence of this marker file.
+   * @return the parts that still need to be downloaded but whose pre-signed URL has expired
+   */
+  public List<Part> getExpiredParts(ObjectSpecification spec) {
+    return spec.getParts().stream()
+        .filter(part -> !part.isCompleted() && urlValidator.isUrlExpired(part.getUrl()))
+        .collect(toList());
+  }
+
+  /**
+   * Replaces the specification of a download in progress, e.g. after its part URLs were refreshed. Completed parts are
+   * kept.
+   */
+  public void updateSpecification(File stateDir, ObjectSpecification spec) {
+    File objectStateDir = getStateKey(stateDir, spec.getObjectId());
+    try {
+      val specFile = new File(objectStateDir, getSpecificationName());
+      val tempFile = new File(objectStateDir, getSpecificationName() + ".tmp");
+      MAPPER.writeValue(tempFile, spec);
+      Files.move(tempFile.toPath(), specFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+
+      specs.put(objectStateDir, spec);
+    } catch (IOException e) {
+      log.error("Failed to update meta file", e);
+      throw new NotRetryableException(e);
+    }
+  }
+
+  /**
+   * A record is appended to the journal of the object after each part is downloaded and the MD5 checksum is verified.
+   * Checking to see if a part was completed previously is based on the presence of this record.
    * @param stateDir - working directory for download
    * @param objectId - object id
    * @param part - metadata about part - really just for part number
    * @return
    */
   private boolean isCompleted(File stateDir, String objectId, Part part) {
-    val partFile = new File(getObjectStateDir(stateDir, objectId), getPartName(part));
-    return partFile.exists();
+    return getJournal(stateDir, objectId).isCompleted(part.getPartNumber());
   }
 
   public void commit(File stateDir, String objectId, Part part) {
     log.debug("Attempting to commit {} part {} to {}", objectId, part.getPartNumber(), stateDir.toString());
     try {
-      byte[] content = MAPPER.writeValueAsBytes(part);
-      val partFile = new File(getObjectStateDir(stateDir, objectId), getPartName(part));
-      Files.copy(new ByteArrayInputStream(content), partFile.toPath());
-      log.debug("Copied part {} to {}", part.getPartNumber(), partFile.toPath().toString());
+      getJournal(stateDir, objectId).commit(part.getPartNumber(), part.getMd5());
+      log.debug("Committed part {} of {}", part.getPartNumber(), objectId);
     } catch (IOException e) {
-      log.error("Failed to create meta file {} ", stateDir.getAbsolutePath(), e);
+      log.error("Failed to record part in journal {} ", stateDir.getAbsolutePath(), e);
       throw new NotRetryableException(e);
     }
   }
 
-  private Part loadPart(File stateDir, String objectId, String partFileName) {
-    File objectStateDir = getObjectStateDir(stateDir, objectId);
-    File partFile = new File(objectStateDir, partFileName);
-
-    return readPart(partFile);
-  }
-
   protected Part readPart(File partFile) {
     try {
       val part = MAPPER.readValue(partFile, Part.class);
@@ -144,10 +177,9 @@ public class DownloadStateStore extends TransferState {
   }
 
   public ObjectSpecification loadSpecification(File stateDir, String objectId) {
-    File objectStateDir = getObjectStateDir(stateDir, objectId);
-    File specFile = new File(objectStateDir, getSpecificationName());
+    File objectStateDir = getStateKey(stateDir, objectId);
 
-    return readMeta(specFile);
+    return specs.computeIfAbsent(objectStateDir, dir -> readMeta(new File(dir, getSpecificationName())));
   }
 
   protected ObjectSpecification readMeta(File specFile) {
@@ -160,9 +192,8 @@ public class DownloadStateStore extends TransferState {
   }
 
   public void deletePart(File stateDir, String objectId, Part part) {
-    val partStateFile = new File(getObjectStateDir(stateDir, objectId), getPartName(part));
     try {
-      partStateFile.delete();
+      getJournal(stateDir, objectId).delete(part.getPartNumber());
     } catch (Throwable e) {
       throw new NotRetryableException(e);
     }
@@ -182,4 +213,61 @@ public class DownloadStateStore extends TransferState {
     }
     return true;
   }
+
+  /**
+   * Removes the state of a completed download.
+   */
+  public void finish(File outDir, String objectId) throws IOException {
+    release(getStateKey(outDir, objectId));
+    close(outDir, objectId);
+  }
+
+  /**
+   * Closes the journal of a failed download and forgets its state in memory. Both stay on disk for a later resume.
+   */
+  public void abort(File stateDir, String objectId) {
+    try {
+      release(getStateKey(stateDir, objectId));
+    } catch (IOException e) {
+      log.warn("Failed to close journal of {} in {}: {}", objectId, stateDir, e.getMessage());
+    }
+  }
+
+  private DownloadJournal getJournal(File stateDir, String objectId) {
+    return journals.computeIfAbsent(getStateKey(stateDir, objectId), this::openJournal);
+  }
+
+  private static File getStateKey(File stateDir, String objectId) {
+    return getObjectStateDir(stateDir, objectId).getAbsoluteFile();
+  }
+
+  private DownloadJournal openJournal(File objectStateDir) {
+    try {
+      val journal = new DownloadJournal(new File(objectStateDir, getJournalName()));
+
+      // Downloads started by earlier versions recorded each part in a file of its own
+      val partFiles = objectStateDir.listFiles((dir, name) -> name.startsWith(getPartPrefix()));
+      if (partFiles != null) {
+        for (val partFile : partFiles) {
+          val part = readPart(partFile);
+          journal.commit(part.getPartNumber(), part.getMd5());
+          Files.delete(partFile.toPath());
+        }
+        journal.sync();
+      }
+
+      return journal;
+    } catch (IOException e) {
+      throw new NotRetryableException(e);
+    }
+  }
+
+  private void release(File objectStateDir) throws IOException {
+    specs.remove(objectStateDir);
+    val journal = journals.remove(objectStateDir);
+    if (journal != null) {
+      journal.close();
+    }
+  }
+
 }
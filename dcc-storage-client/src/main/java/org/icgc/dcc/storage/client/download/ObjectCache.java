@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.download;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.core.util.MD5s;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Node-local cache of downloaded objects, shared by all client processes that are configured with the same directory.
+ * <p>
+ * Entries are keyed by object id and object MD5, so a changed object is never served from the cache. Verified downloads
+ * are linked into the cache and hits are linked into place, or copied where the cache and the output are on different
+ * file systems. Since a link shares its content with the user's file, each entry has a marker recording the entry's
+ * size and modification time when it was stored; an entry that no longer matches has been modified through a link and
+ * is evicted instead of served. The marker's own modification time records the entry's last use, and the least recently
+ * used entries are evicted once the cache exceeds its capacity. Changes to the cache are serialized across processes
+ * by a lock file; copies are made outside of it, from a link in the cache's temporary directory.
+ */
+@Slf4j
+public class ObjectCache {
+
+  /**
+   * Constants.
+   */
+  private static final String OBJECTS_DIR = "objects";
+  private static final String TEMP_DIR = "tmp";
+  private static final String LOCK_FILE = ".lock";
+  private static final String USED_SUFFIX = ".used";
+  private static final long TEMP_EXPIRY = TimeUnit.DAYS.toMillis(1);
+
+  /**
+   * Configuration.
+   */
+  private final File dir;
+  @Getter
+  private final long capacity;
+
+  /**
+   * @param dir the cache directory, {@code null} to disable caching
+   * @param capacity maximum bytes held by the cache
+   */
+  public ObjectCache(File dir, long capacity) {
+    this.dir = dir;
+    this.capacity = capacity;
+  }
+
+  public boolean isEnabled() {
+    return dir != null && capacity > 0;
+  }
+
+  /**
+   * Places the cached object at {@code target}, if there is one.
+   * 
+   * @return whether the object was found in the cache
+   */
+  public boolean fetch(@NonNull String objectId, @NonNull String objectMd5, long objectSize, @NonNull File target)
+      throws IOException {
+    if (!isEnabled()) {
+      return false;
+    }
+
+    // Copies run outside of the lock from a private link to the entry, which eviction cannot remove
+    val temp = newTemp();
+    Files.createDirectories(temp.getParent());
+    try {
+      boolean hit = locked(() -> {
+        val entry = getEntry(objectId, objectMd5);
+        if (!Files.exists(entry)) {
+          log.debug("Cache miss for {} ({})", objectId, objectMd5);
+          return false;
+        }
+        if (Files.size(entry) != objectSize || !isUnchanged(entry)) {
+          log.warn("Evicting cache entry {}, it was modified after it was stored", entry);
+          delete(entry);
+          return false;
+        }
+
+        Files.createDirectories(target.toPath().getParent());
+        try {
+          Files.createLink(target.toPath(), entry);
+          log.info("Linked {} from cache entry {}", target, entry);
+        } catch (IOException | UnsupportedOperationException e) {
+          log.debug("Cannot link {} to {}, copying: {}", target, entry, e.getMessage());
+          try {
+            Files.createLink(temp, entry);
+          } catch (IOException | UnsupportedOperationException e2) {
+            log.debug("Cannot link {} to {}, copying under the lock: {}", temp, entry, e2.getMessage());
+            Files.copy(entry, target.toPath(), REPLACE_EXISTING);
+            log.info("Copied {} from cache entry {}", target, entry);
+          }
+        }
+
+        touch(entry);
+        return true;
+      });
+
+      if (hit && Files.exists(temp)) {
+        Files.copy(temp, target.toPath(), REPLACE_EXISTING);
+        log.info("Copied {} from cache", target);
+      }
+
+      return hit;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Adds a downloaded and verified object to the cache, evicting the least recently used entries to make room.
+   */
+  public void store(@NonNull String objectId, @NonNull String objectMd5, @NonNull File source) throws IOException {
+    if (!isEnabled()) {
+      return;
+    }
+    if (source.length() > capacity) {
+      log.info("Not caching {} of {} bytes, the cache only holds {} bytes", objectId, source.length(), capacity);
+      return;
+    }
+
+    // Prepare outside of the lock, other processes only ever see complete entries
+    val temp = newTemp();
+    Files.createDirectories(temp.getParent());
+    try {
+      try {
+        Files.createLink(temp, source.toPath());
+      } catch (IOException | UnsupportedOperationException e) {
+        log.debug("Cannot link {} to {}, copying: {}", temp, source, e.getMessage());
+        Files.copy(source.toPath(), temp);
+        temp.toFile().setReadOnly();
+      }
+
+      locked(() -> {
+        val entry = getEntry(objectId, objectMd5);
+        Files.createDirectories(entry.getParent());
+        Files.move(temp, entry, ATOMIC_MOVE, REPLACE_EXISTING);
+        stamp(entry);
+        touch(entry);
+        log.info("Cached {} as {}", objectId, entry);
+
+        evict();
+        return null;
+      });
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Deletes stale temporaries and the least recently used entries until the cache fits its capacity. Must hold the
+   * lock.
+   */
+  private void evict() throws IOException {
+    sweep();
+
+    val entries = new ArrayList<Entry>();
+    long total = 0;
+    try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir.toPath().resolve(OBJECTS_DIR))) {
+      for (val path : paths) {
+        if (path.getFileName().toString().endsWith(USED_SUFFIX)) {
+          continue;
+        }
+
+        val entry = new Entry(path, Files.size(path), getLastUsed(path));
+        entries.add(entry);
+        total += entry.getSize();
+      }
+    }
+
+    entries.sort(Comparator.comparing(Entry::getLastUsed));
+    for (val entry : entries) {
+      if (total <= capacity) {
+        break;
+      }
+
+      log.info("Evicting {} of {} bytes from the cache", entry.getPath(), entry.getSize());
+      delete(entry.getPath());
+      total -= entry.getSize();
+    }
+  }
+
+  /**
+   * Deletes temporaries left behind by processes that did not finish with them. Their age is taken from their name,
+   * since a temporary linked to an entry or a download shares that file's modification time.
+   */
+  private void sweep() throws IOException {
+    val tempDir = dir.toPath().resolve(TEMP_DIR);
+    if (!Files.isDirectory(tempDir)) {
+      return;
+    }
+
+    val expiry = System.currentTimeMillis() - TEMP_EXPIRY;
+    try (DirectoryStream<Path> paths = Files.newDirectoryStream(tempDir)) {
+      for (val path : paths) {
+        if (getCreated(path) < expiry) {
+          log.info("Deleting stale cache temporary {}", path);
+          Files.deleteIfExists(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs {@code action} while holding the cache lock of this process and of all others sharing the directory.
+   */
+  private synchronized <T> T locked(Callable<T> action) throws IOException {
+    Files.createDirectories(dir.toPath());
+    try (FileChannel channel = FileChannel.open(dir.toPath().resolve(LOCK_FILE), CREATE, WRITE);
+        FileLock lock = channel.lock()) {
+      return action.call();
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  private Path newTemp() {
+    return dir.toPath().resolve(TEMP_DIR).resolve(System.currentTimeMillis() + "-" + UUID.randomUUID());
+  }
+
+  /**
+   * @return when the temporary was created, or {@code 0} for names not created by {@link #newTemp()}
+   */
+  private static long getCreated(Path temp) {
+    val name = temp.getFileName().toString();
+    val separator = name.indexOf('-');
+    try {
+      return separator > 0 ? Long.parseLong(name.substring(0, separator)) : 0;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private Path getEntry(String objectId, String objectMd5) {
+    val md5 = MD5s.isBase64(objectMd5) ? MD5s.toHex(objectMd5) : objectMd5.toLowerCase();
+    return dir.toPath().resolve(OBJECTS_DIR).resolve(objectId + "-" + md5);
+  }
+
+  private static Path getMarker(Path entry) {
+    return entry.resolveSibling(entry.getFileName() + USED_SUFFIX);
+  }
+
+  private static void delete(Path entry) throws IOException {
+    Files.deleteIfExists(entry);
+    Files.deleteIfExists(getMarker(entry));
+  }
+
+  /**
+   * Records the size and modification time of a newly stored entry in its marker.
+   */
+  private static void stamp(Path entry) throws IOException {
+    Files.write(getMarker(entry), getStamp(entry).getBytes(UTF_8));
+  }
+
+  /**
+   * @return whether the entry has the size and modification time it was stored with
+   */
+  private static boolean isUnchanged(Path entry) throws IOException {
+    try {
+      return new String(Files.readAllBytes(getMarker(entry)), UTF_8).equals(getStamp(entry));
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  private static String getStamp(Path entry) throws IOException {
+    return Files.size(entry) + " " + Files.getLastModifiedTime(entry).toMillis();
+  }
+
+  /**
+   * Entries are shared with the files linked to them, so their own times are left alone.
+   */
+  private static void touch(Path entry) throws IOException {
+    val marker = getMarker(entry);
+    if (!Files.exists(marker)) {
+      Files.createFile(marker);
+    }
+
+    Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+  }
+
+  private static FileTime getLastUsed(Path entry) throws IOException {
+    try {
+      return Files.getLastModifiedTime(getMarker(entry));
+    } catch (NoSuchFileException e) {
+      return Files.getLastModifiedTime(entry);
+    }
+  }
+
+  @Value
+  private static class Entry {
+
+    Path path;
+    long size;
+    FileTime lastUsed;
+
+  }
+
+}
@@ -8,13 +8,14 @@ import static org.icgc.dcc.storage.client.util.Formats.formatCount;
 
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 import org.icgc.dcc.storage.client.cli.Terminal;
 
 import com.google.common.base.Stopwatch;
 
+import lombok.NonNull;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
@@ -37,19 +38,22 @@ public class Progress {
   private final int totalChecksumParts;
 
   /**
-   * State - Metrics.
+   * State - Metrics. Counted by every transfer thread, so striped to keep them from contending. Percentages and rates
+   * are derived only when displayed.
    */
-  private final AtomicInteger completedParts = new AtomicInteger(0);
-  private volatile long partsPercent;
+  private final LongAdder completedParts = new LongAdder();
+  private final LongAdder completedChecksumParts = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
 
-  private final AtomicInteger completedChecksumParts = new AtomicInteger(0);
-  private volatile int checksumPartsPercent = 100;
+  private volatile int concurrency;
 
-  private final AtomicLong bytesRead = new AtomicLong(0);
-  private volatile long bytesReadPerSec;
-
-  private final AtomicLong bytesWritten = new AtomicLong(0);
-  private volatile long bytesWrittenPerSec;
+  /**
+   * State - Bandwidth shaping.
+   */
+  private volatile long shapedLimit;
+  private volatile LongSupplier shapedBytes;
+  private long lastShapedBytes;
 
   /**
    * State - Other.
@@ -115,25 +119,55 @@ public class Progress {
         .println(
             terminal.label("Total execution time") + ": " + terminal.value(String.format("%15s", stopwatch.toString())))
         .println(terminal.label("Total bytes read    ") + ": "
-            + terminal.value(String.format("%15s", formatCount(bytesRead.get()))))
+            + terminal.value(String.format("%15s", formatCount(bytesRead.sum()))))
         .println(terminal.label("Total bytes written ") + ": "
-            + terminal.value(String.format("%15s", formatCount(bytesWritten.get()))));
+            + terminal.value(String.format("%15s", formatCount(bytesWritten.sum()))));
+
+    if (concurrency > 0) {
+      terminal.println(terminal.label("Parallel parts      ") + ": "
+          + terminal.value(String.format("%15s", formatCount(concurrency))));
+    }
+
+    if (shapedLimit > 0) {
+      terminal.println(terminal.label("Bandwidth limit     ") + ": "
+          + terminal.value(String.format("%15s", formatBytes(shapedLimit) + formatBytesUnits(shapedLimit) + "/s")));
+    }
+  }
+
+  /**
+   * Records the part concurrency to report in the summary.
+   */
+  public void setConcurrency(int concurrency) {
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * Reports the bandwidth limit of the transfer along with the rate actually achieved, which accounts for every
+   * transfer sharing that limit.
+   * 
+   * @param limit bytes per second
+   * @param shapedBytes total bytes that went through the limit so far
+   */
+  public synchronized void setBandwidthShaping(long limit, @NonNull LongSupplier shapedBytes) {
+    this.lastShapedBytes = shapedBytes.getAsLong();
+    this.shapedLimit = limit;
+    this.shapedBytes = shapedBytes;
   }
 
   public void incrementParts(int partCount) {
-    partsPercent = completedParts.addAndGet(partCount) * 100 / totalParts;
+    completedParts.add(partCount);
   }
 
   public void incrementChecksumParts() {
-    checksumPartsPercent = completedChecksumParts.addAndGet(1) * 100 / totalChecksumParts;
+    completedChecksumParts.increment();
   }
 
   public void incrementBytesRead(long byteCount) {
-    bytesReadPerSec = bytesRead.addAndGet(byteCount) / duration() * 1000;
+    bytesRead.add(byteCount);
   }
 
   public void incrementBytesWritten(long byteCount) {
-    bytesWrittenPerSec = bytesWritten.addAndGet(byteCount) / duration() * 1000;
+    bytesWritten.add(byteCount);
   }
 
   private synchronized void display() {
@@ -141,6 +175,14 @@ public class Progress {
       return;
     }
 
+    val parts = completedParts.sum();
+    val partsPercent = parts * 100 / totalParts;
+    val checksumPartsPercent =
+        totalChecksumParts == 0 ? 100 : completedChecksumParts.sum() * 100 / totalChecksumParts;
+    val duration = duration();
+    val bytesReadPerSec = bytesRead.sum() / duration * 1000;
+    val bytesWrittenPerSec = bytesWritten.sum() / duration * 1000;
+
     val bar = new StringBuilder("\r")
         .append(terminal.value(String.format("%3s", partsPercent)))
         .append("% [");
@@ -163,7 +205,7 @@ public class Progress {
         .append(" ")
         .append(terminal.label("Parts"))
         .append(": ")
-        .append(terminal.value(completedParts.get() + "/" + totalParts))
+        .append(terminal.value(parts + "/" + totalParts))
         .append(", ")
         .append(terminal.label("Checksum"))
         .append(": ")
@@ -181,6 +223,23 @@ public class Progress {
         .append(formatBytesUnits(bytesReadPerSec))
         .append("/s");
 
+    if (shapedBytes != null) {
+      val bytes = shapedBytes.getAsLong();
+      val shapedBytesPerSec = (bytes - lastShapedBytes) / DISPLAY_INTERVAL;
+      lastShapedBytes = bytes;
+
+      bar
+          .append(", ")
+          .append(terminal.label("Shaped/sec"))
+          .append(": ")
+          .append(terminal.value(formatBytes(shapedBytesPerSec)))
+          .append(formatBytesUnits(shapedBytesPerSec))
+          .append("/")
+          .append(formatBytes(shapedLimit))
+          .append(formatBytesUnits(shapedLimit))
+          .append("/s");
+    }
+
     val padding = 4;
     for (int i = 0; i < padding; i++)
       bar.append(" ");
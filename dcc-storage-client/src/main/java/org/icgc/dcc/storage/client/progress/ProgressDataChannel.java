@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import lombok.Getter;
 import lombok.NonNull;
 
 import org.icgc.dcc.storage.core.model.DataChannel;
@@ -28,10 +29,13 @@ import org.icgc.dcc.storage.core.util.ForwardingDataChannel;
 
 public class ProgressDataChannel extends ForwardingDataChannel {
 
+  @Getter
+  private final DataChannel delegate;
   private final Progress progress;
 
   public ProgressDataChannel(@NonNull DataChannel delegate, @NonNull Progress progress) {
     super(delegate);
+    this.delegate = delegate;
     this.progress = progress;
   }
 
@@ -37,7 +37,7 @@ public class ProgressInputStream extends ForwardingInputStream {
   @Override
   public int read() throws IOException {
     val value = super.read();
-    if (value > 0) {
+    if (value >= 0) {
       progress.incrementBytesRead(1);
     }
 
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.icgc.dcc.storage.core.util.ForwardingInputStream;
+import org.icgc.dcc.storage.core.util.ForwardingOutputStream;
+
+import lombok.Getter;
+import lombok.val;
+
+/**
+ * Token bucket limiting the rate at which all transfer threads of the process move bytes in one direction.
+ * <p>
+ * The bucket is kept as a single point in time: the moment by which every byte reserved so far has been paid for. A
+ * thread reserves its bytes by moving that point forward with a compare-and-set and then sleeps until its reservation
+ * is due, so threads never wait on each other to draw from the budget. Time the bucket spends idle refills it, up to a
+ * burst of {@code burst} worth of bytes.
+ */
+public class BandwidthShaper {
+
+  /**
+   * Constants.
+   */
+  private static final long DEFAULT_BURST_NANOS = MILLISECONDS.toNanos(250);
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final long limit;
+  private final double nanosPerByte;
+  private final long burstNanos;
+
+  /**
+   * State.
+   */
+  private final AtomicLong due;
+  private final LongAdder shapedBytes = new LongAdder();
+
+  /**
+   * @param limit bytes per second, {@code 0} for unlimited
+   */
+  public BandwidthShaper(long limit) {
+    this(limit, DEFAULT_BURST_NANOS);
+  }
+
+  BandwidthShaper(long limit, long burstNanos) {
+    checkArgument(limit >= 0, "Invalid bandwidth limit %s", limit);
+    this.limit = limit;
+    this.nanosPerByte = limit == 0 ? 0 : (double) SECONDS.toNanos(1) / limit;
+    this.burstNanos = burstNanos;
+    this.due = new AtomicLong(System.nanoTime() - burstNanos);
+  }
+
+  public boolean isEnabled() {
+    return limit > 0;
+  }
+
+  /**
+   * @return the number of bytes that went through the shaper so far
+   */
+  public long getShapedBytes() {
+    return shapedBytes.sum();
+  }
+
+  /**
+   * Blocks until {@code bytes} may be transferred.
+   */
+  public void acquire(long bytes) throws InterruptedIOException {
+    if (!isEnabled() || bytes <= 0) {
+      return;
+    }
+
+    shapedBytes.add(bytes);
+    val cost = (long) (bytes * nanosPerByte);
+    val now = System.nanoTime();
+    long previous;
+    long next;
+    do {
+      previous = due.get();
+      next = Math.max(previous, now - burstNanos) + cost;
+    } while (!due.compareAndSet(previous, next));
+
+    val wait = next - now;
+    if (wait > 0) {
+      try {
+        NANOSECONDS.sleep(wait);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+      }
+    }
+  }
+
+  /**
+   * @return {@code inputStream} paced to the limit, or {@code inputStream} itself if there is none
+   */
+  public InputStream wrap(InputStream inputStream) {
+    return isEnabled() ? new ShapedInputStream(inputStream) : inputStream;
+  }
+
+  /**
+   * @return {@code outputStream} paced to the limit, or {@code outputStream} itself if there is none
+   */
+  public OutputStream wrap(OutputStream outputStream) {
+    return isEnabled() ? new ShapedOutputStream(outputStream) : outputStream;
+  }
+
+  private class ShapedInputStream extends ForwardingInputStream {
+
+    private ShapedInputStream(InputStream delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public int read() throws IOException {
+      val value = super.read();
+      if (value >= 0) {
+        acquire(1);
+      }
+
+      return value;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+      return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      // Bytes are paid for after they arrive, reading less at a time keeps the pace even
+      val value = super.read(b, off, Math.min(len, CHUNK_SIZE));
+      if (value > 0) {
+        acquire(value);
+      }
+
+      return value;
+    }
+
+  }
+
+  private class ShapedOutputStream extends ForwardingOutputStream {
+
+    private ShapedOutputStream(OutputStream delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      acquire(1);
+      super.write(b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+      write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      for (int n = 0; n < len; n += CHUNK_SIZE) {
+        val chunk = Math.min(CHUNK_SIZE, len - n);
+        acquire(chunk);
+        super.write(b, off + n, chunk);
+      }
+    }
+
+  }
+
+}
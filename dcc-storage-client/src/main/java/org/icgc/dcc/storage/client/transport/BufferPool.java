@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fixed set of reusable direct buffers, each large enough to hold a part.
+ * <p>
+ * Buffers are allocated on first use and handed back to the pool when a part is done with, so the memory held never
+ * exceeds {@code count * bufferSize} and does not depend on the garbage collector to be released between parts, nor,
+ * once the pool is {@link #close()}d, afterwards.
+ * <p>
+ * With a {@link MemoryBudget}, every buffer is charged to it when allocated and credited when freed. Only the first
+ * buffer waits for the budget; further ones are not allocated while the budget is exhausted, and their users wait for
+ * a buffer of the pool instead. That way pools sharing a budget always make progress with what they hold.
+ */
+@Slf4j
+public class BufferPool {
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final int bufferSize;
+  @Getter
+  private final int count;
+  private final MemoryBudget budget;
+
+  /**
+   * State.
+   */
+  private final BlockingQueue<ByteBuffer> available;
+  private final AtomicInteger allocated = new AtomicInteger();
+
+  public BufferPool(long bufferSize, int count) {
+    this(bufferSize, count, null);
+  }
+
+  public BufferPool(long bufferSize, int count, MemoryBudget budget) {
+    checkArgument(0 < bufferSize && bufferSize <= Integer.MAX_VALUE, "Invalid buffer size %s", bufferSize);
+    checkArgument(count > 0, "Invalid buffer count %s", count);
+    this.bufferSize = (int) bufferSize;
+    this.count = count;
+    this.available = new ArrayBlockingQueue<>(count);
+    this.budget = budget;
+  }
+
+  /**
+   * Blocks until a buffer is available.
+   * 
+   * @return a cleared buffer of {@code bufferSize} bytes
+   */
+  public ByteBuffer acquire() throws InterruptedException {
+    ByteBuffer buffer = available.poll();
+    if (buffer == null) {
+      buffer = tryAllocate();
+    }
+    if (buffer == null) {
+      buffer = available.take();
+    }
+
+    buffer.clear();
+    return buffer;
+  }
+
+  public void release(ByteBuffer buffer) {
+    checkArgument(buffer.capacity() == bufferSize, "Buffer of %s bytes does not belong to the pool", buffer.capacity());
+    available.add(buffer);
+  }
+
+  /**
+   * Frees the native memory of every buffer handed back so far. Buffers still in use must not be released afterwards.
+   */
+  public void close() {
+    for (ByteBuffer buffer = available.poll(); buffer != null; buffer = available.poll()) {
+      DirectBuffers.free(buffer);
+      allocated.decrementAndGet();
+      if (budget != null) {
+        budget.release(bufferSize);
+      }
+    }
+  }
+
+  /**
+   * @return the number of buffers allocated so far
+   */
+  public int getAllocated() {
+    return allocated.get();
+  }
+
+  private ByteBuffer tryAllocate() throws InterruptedException {
+    for (int n = allocated.get(); n < count; n = allocated.get()) {
+      if (allocated.compareAndSet(n, n + 1)) {
+        if (!reserve(n == 0)) {
+          allocated.decrementAndGet();
+          return null;
+        }
+
+        log.debug("Allocating buffer {} of {} with {} bytes", n + 1, count, bufferSize);
+        return ByteBuffer.allocateDirect(bufferSize);
+      }
+    }
+
+    return null;
+  }
+
+  private boolean reserve(boolean first) throws InterruptedException {
+    if (budget == null) {
+      return true;
+    }
+
+    if (first) {
+      budget.acquire(bufferSize);
+      return true;
+    }
+
+    return budget.tryAcquire(bufferSize);
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import org.icgc.dcc.storage.core.model.DataChannel;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Channel that holds a single part in a {@link ByteBuffer} whose capacity is at least the part length.
+ */
+@Slf4j
+@AllArgsConstructor
+public class ByteBufferDataChannel extends AbstractDataChannel
+    implements HedgeableDataChannel, ResumableDataChannel {
+
+  private final ByteBuffer buffer;
+  @Getter
+  private final long offset;
+  @Getter
+  private final long length;
+  @Getter
+  private String md5;
+
+  @Override
+  public void reset() throws IOException {
+    buffer.clear();
+  }
+
+  /**
+   * Write the content of the part to a given output stream and calculate the hash once it is fully written
+   */
+  @Override
+  public void writeTo(OutputStream os) throws IOException {
+    try (val hos = new HashingOutputStream(Hashing.md5(), os)) {
+      val writeChannel = Channels.newChannel(hos);
+      val data = getData();
+      while (data.hasRemaining()) {
+        writeChannel.write(data);
+      }
+      md5 = hos.hash().toString();
+    }
+  }
+
+  /**
+   * Continues after the bytes written by a previous, interrupted call.
+   */
+  @Override
+  public void readFrom(InputStream is) throws IOException {
+    val readChannel = Channels.newChannel(is);
+
+    buffer.limit((int) length);
+    while (buffer.hasRemaining()) {
+      val eos = readChannel.read(buffer) < 0;
+      if (eos) {
+        // See MemoryMappedDataChannel: an interrupted stream is caught by the part checksum
+        log.warn("Reached end of stream while trying to fill buffer: {}", buffer);
+        break;
+      }
+    }
+  }
+
+  /**
+   * @return a read-only view of the part content, independent of the position of the underlying buffer
+   */
+  public ByteBuffer getData() {
+    val data = buffer.asReadOnlyBuffer();
+    data.clear();
+    data.limit((int) length);
+
+    return data;
+  }
+
+  @Override
+  public long getWritten() {
+    return buffer.position();
+  }
+
+  @Override
+  public DataChannel duplicate() {
+    val view = buffer.duplicate();
+    view.clear();
+
+    return new ByteBufferDataChannel(view, offset, length, null);
+  }
+
+  @Override
+  public void commitToDisk() {
+  }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits the number of part transfers in flight and adapts that limit AIMD-style to the observed conditions.
+ * <p>
+ * Every {@code limit} completed parts form a round. If the aggregate throughput of a round did not drop compared to
+ * the previous round the limit grows by one, otherwise it shrinks by one. A retryable failure (throttling, timeouts,
+ * dropped connections) halves the limit, at most once per round. The limit always stays within {@code [min, max]}, so
+ * setting both to the same value yields a fixed concurrency.
+ */
+@Slf4j
+public class ConcurrencyController {
+
+  /**
+   * Constants.
+   */
+  private static final double THROUGHPUT_TOLERANCE = 0.05;
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final int min;
+  @Getter
+  private final int max;
+
+  /**
+   * State.
+   */
+  private double limit;
+  private int inFlight;
+  private long roundStart = System.nanoTime();
+  private long roundBytes;
+  private int roundCompleted;
+  private boolean roundDecreased;
+  private double lastThroughput;
+
+  public ConcurrencyController(int min, int initial, int max) {
+    checkArgument(0 < min && min <= max, "Invalid concurrency bounds [%s, %s]", min, max);
+    this.min = min;
+    this.max = max;
+    this.limit = Math.max(min, Math.min(max, initial));
+  }
+
+  public boolean isAdaptive() {
+    return min < max;
+  }
+
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * Blocks until another part may be transferred.
+   */
+  @SneakyThrows
+  public synchronized void acquire() {
+    while (inFlight >= (int) limit) {
+      wait();
+    }
+    inFlight++;
+  }
+
+  /**
+   * Takes a slot only if one is free right away, for optional work such as a hedged request. The slot is returned with
+   * {@link #release()}.
+   */
+  public synchronized boolean tryAcquire() {
+    if (inFlight >= (int) limit) {
+      return false;
+    }
+
+    inFlight++;
+    return true;
+  }
+
+  /**
+   * Releases the slot of a part that was transferred successfully.
+   */
+  public synchronized void completed(long bytes) {
+    inFlight--;
+    roundBytes += bytes;
+    roundCompleted++;
+
+    if (roundCompleted >= (int) limit) {
+      val elapsed = Math.max(1L, System.nanoTime() - roundStart);
+      val throughput = (double) roundBytes / elapsed;
+      if (!roundDecreased) {
+        if (throughput >= lastThroughput * (1 - THROUGHPUT_TOLERANCE)) {
+          setLimit(limit + 1);
+        } else {
+          setLimit(limit - 1);
+        }
+      }
+
+      lastThroughput = throughput;
+      startRound();
+    }
+
+    notifyAll();
+  }
+
+  /**
+   * Releases the slot of a part that failed in a way that suggests congestion or throttling.
+   */
+  public synchronized void congested() {
+    inFlight--;
+    if (!roundDecreased) {
+      setLimit(limit / 2);
+      startRound();
+      roundDecreased = true;
+    }
+
+    notifyAll();
+  }
+
+  /**
+   * Releases the slot of a part that failed for reasons unrelated to the transfer rate.
+   */
+  public synchronized void release() {
+    inFlight--;
+    notifyAll();
+  }
+
+  private void setLimit(double value) {
+    val previous = (int) limit;
+    limit = Math.max(min, Math.min(max, value));
+    if ((int) limit != previous) {
+      log.debug("Part concurrency changed from {} to {}", previous, (int) limit);
+    }
+  }
+
+  private void startRound() {
+    roundStart = System.nanoTime();
+    roundBytes = 0;
+    roundCompleted = 0;
+    roundDecreased = false;
+  }
+
+}
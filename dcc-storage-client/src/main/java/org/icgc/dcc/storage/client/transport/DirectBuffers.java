@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static lombok.AccessLevel.PRIVATE;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import lombok.NoArgsConstructor;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Releases the native memory or mapping behind a direct {@link ByteBuffer} right away instead of when the buffer is
+ * garbage collected.
+ * <p>
+ * Uses {@code sun.misc.Unsafe.invokeCleaner} where available (Java 9+) and falls back to the buffer's own cleaner
+ * (Java 8). If neither can be reached the buffer is left to the garbage collector.
+ */
+@Slf4j
+@NoArgsConstructor(access = PRIVATE)
+public final class DirectBuffers {
+
+  /**
+   * Constants.
+   */
+  private static final Cleaner CLEANER = createCleaner();
+
+  /**
+   * Releases {@code buffer}. Neither the buffer nor any view of it may be accessed afterwards: doing so would crash the
+   * JVM.
+   * 
+   * @return whether the memory was released, as opposed to left to the garbage collector
+   */
+  public static boolean free(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect() || CLEANER == null) {
+      return false;
+    }
+
+    try {
+      CLEANER.clean(buffer);
+      return true;
+    } catch (Throwable e) {
+      log.warn("Cannot release buffer of {} bytes, leaving it to GC: {}", buffer.capacity(), e.getMessage());
+      return false;
+    }
+  }
+
+  private static Cleaner createCleaner() {
+    try {
+      val unsafeClass = Class.forName("sun.misc.Unsafe");
+      val invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      val unsafe = theUnsafe.get(null);
+
+      return buffer -> invokeCleaner.invoke(unsafe, buffer);
+    } catch (Throwable e) {
+      log.debug("Unsafe.invokeCleaner is not available, falling back to the buffer cleaner: {}", e.getMessage());
+    }
+
+    try {
+      Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+      Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+
+      return buffer -> {
+        val cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleanMethod.invoke(cleaner);
+        }
+      };
+    } catch (Throwable e) {
+      log.warn("Direct buffers cannot be released explicitly and are left to GC: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private interface Cleaner {
+
+    void clean(ByteBuffer buffer) throws Exception;
+
+  }
+
+}
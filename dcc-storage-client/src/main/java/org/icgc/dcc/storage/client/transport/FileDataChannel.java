@@ -28,6 +28,7 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
 import lombok.AllArgsConstructor;
+import lombok.val;
 
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingOutputStream;
@@ -52,7 +53,16 @@ public class FileDataChannel extends AbstractDataChannel {
     try (FileInputStream is = new FileInputStream(file)) {
       HashingOutputStream hos = new HashingOutputStream(Hashing.md5(), os);
       try (WritableByteChannel toChannel = Channels.newChannel(hos)) {
-        is.getChannel().transferTo(offset, length, toChannel);
+        long transferred = 0;
+        while (transferred < length) {
+          val count = is.getChannel().transferTo(offset + transferred, length - transferred, toChannel);
+          if (count <= 0) {
+            throw new IOException(String.format("Reached end of %s after %s of %s bytes at offset %s", file,
+                transferred, length, offset));
+          }
+
+          transferred += count;
+        }
       }
       md5 = hos.hash().toString();
     }
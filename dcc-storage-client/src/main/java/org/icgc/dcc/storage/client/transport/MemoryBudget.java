@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ceiling on the number of bytes held by in-flight parts.
+ * <p>
+ * A single budget may be shared by the transports of several objects that are transferred at the same time, so that
+ * concurrent transfers together stay within the configured memory.
+ */
+@Slf4j
+public class MemoryBudget {
+
+  /**
+   * Configuration.
+   */
+  @Getter
+  private final long capacity;
+
+  /**
+   * State.
+   */
+  private final Lock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private long allocated;
+
+  public MemoryBudget(long capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Blocks until {@code size} bytes are available. A request larger than the whole budget is still admitted once
+   * nothing else is allocated.
+   */
+  public void acquire(long size) throws InterruptedException {
+    lock.lock();
+    try {
+      while (allocated > 0 && allocated + size > capacity) {
+        log.debug("Waiting for {} bytes. Allocated: {}, capacity: {}", size, allocated, capacity);
+        released.await();
+      }
+
+      allocated += size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Allocates {@code size} bytes only if that can be done without waiting, under the same rules as
+   * {@link #acquire(long)}.
+   * 
+   * @return whether the bytes were allocated
+   */
+  public boolean tryAcquire(long size) {
+    lock.lock();
+    try {
+      if (allocated > 0 && allocated + size > capacity) {
+        return false;
+      }
+
+      allocated += size;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void release(long size) {
+    lock.lock();
+    try {
+      allocated -= size;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getAllocated() {
+    lock.lock();
+    try {
+      return allocated;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+}
@@ -20,7 +20,6 @@ package org.icgc.dcc.storage.client.transport;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Method;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
 
@@ -29,7 +28,7 @@ import lombok.Getter;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
-import org.icgc.dcc.storage.client.exception.NotRetryableException;
+import org.icgc.dcc.storage.core.model.DataChannel;
 
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingOutputStream;
@@ -39,7 +38,8 @@ import com.google.common.hash.HashingOutputStream;
  */
 @Slf4j
 @AllArgsConstructor
-public class MemoryMappedDataChannel extends AbstractDataChannel {
+public class MemoryMappedDataChannel extends AbstractDataChannel
+    implements HedgeableDataChannel, ResumableDataChannel {
 
   private MappedByteBuffer buffer;
   @Getter
@@ -96,29 +96,58 @@ public class MemoryMappedDataChannel extends AbstractDataChannel {
   }
 
   /**
-   * Buffer needs to be closed proactively so it won't trigger out-of-memory error
+   * The duplicate shares the mapping but not the position, and must be done with before {@link #commitToDisk()}.
+   */
+  @Override
+  public DataChannel duplicate() {
+    val view = buffer.duplicate();
+    view.clear();
+
+    return new ByteBufferDataChannel(view, offset, length, null);
+  }
+
+  @Override
+  public long getWritten() {
+    return buffer.position();
+  }
+
+  /**
+   * @return the number of bytes mapped by this channel, {@code 0} once released
+   */
+  public long getMapped() {
+    return buffer == null ? 0 : buffer.capacity();
+  }
+
+  /**
+   * Flushes the part to disk and releases the mapping, see {@link #release()}.
    */
   @Override
   public void commitToDisk() {
-    if (!buffer.isDirect()) {
+    if (buffer == null) {
       return;
     }
 
-    // Don't call this because it will slow down
-    buffer.force();
-
     try {
-      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
-      cleanerMethod.setAccessible(true);
-      Object cleaner = cleanerMethod.invoke(buffer);
-      Method cleanMethod = cleaner.getClass().getMethod("clean");
-      cleanMethod.setAccessible(true);
-      cleanMethod.invoke(cleaner);
-    } catch (Throwable e) {
-      log.error("fail to unmap memory", e);
-      throw new NotRetryableException(e);
+      buffer.force();
     } finally {
-      buffer = null;
+      release();
+    }
+  }
+
+  /**
+   * Unmaps the buffer right away, so that neither virtual memory nor page cache wait for GC to be given back. The
+   * channel and its duplicates must not be used afterwards.
+   * 
+   * @return the number of bytes that were unmapped
+   */
+  public long release() {
+    val mapped = getMapped();
+    if (mapped > 0 && !DirectBuffers.free(buffer)) {
+      log.debug("Mapping of {} bytes is left to GC", mapped);
     }
+
+    buffer = null;
+    return mapped;
   }
+
 }
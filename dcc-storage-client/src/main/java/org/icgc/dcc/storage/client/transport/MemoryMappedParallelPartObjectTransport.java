@@ -17,14 +17,12 @@
  */
 package org.icgc.dcc.storage.client.transport;
 
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.concurrent.Callable;
@@ -32,10 +30,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
-import lombok.AllArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.val;
 import lombok.extern.slf4j.Slf4j;
@@ -51,6 +48,7 @@ import org.icgc.dcc.storage.core.model.Part;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Ordering;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 /**
  * A data transport using memory mapped channels for parallel upload/download
@@ -59,105 +57,106 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 @Slf4j
 public class MemoryMappedParallelPartObjectTransport extends ParallelPartObjectTransport {
 
-  private static final int FREE_MEMORY_TIME_DELAY = 10;
-
-  @AllArgsConstructor
-  private class FreeMemory implements Runnable {
-
-    final private MemoryMappedDataChannel channel;
-
-    @Override
-    public void run() {
-      try {
-        log.debug("Flushing buffer to disk...");
-        channel.commitToDisk();
-      } finally {
-        log.debug("Memory is free: {}", channel.getLength());
-        memory.addAndGet(channel.getLength());
-      }
-    }
-  }
-
   private MemoryMappedParallelPartObjectTransport(RemoteParallelBuilder builder) {
     super(builder);
     log.debug("Transport Settings: {}", builder.toString());
   }
 
+  /**
+   * Parts are mapped in order and their pages loaded by {@code readAhead} threads, so that the next parts are read from
+   * disk while earlier ones are being sent. The memory budget bounds the bytes mapped at any time.
+   */
   @Override
   @SneakyThrows
   public void send(File file) {
     log.debug("send file: {}", file.getPath());
-    AtomicInteger tasksSubmitted = new AtomicInteger();
     ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    ExecutorService loaders = Executors.newFixedThreadPool(readAhead, new ThreadFactoryBuilder()
+        .setNameFormat("read-ahead-%s").setDaemon(true).build());
+    val readAheads = new Semaphore(readAhead);
 
     ImmutableList.Builder<Future<Part>> results = ImmutableList.builder();
     progress.start();
-    for (final Part part : parts) {
-      tasksSubmitted.incrementAndGet();
+    try {
       try (FileInputStream fis = new FileInputStream(file)) {
-        final MappedByteBuffer buffer =
-            fis.getChannel().map(FileChannel.MapMode.READ_ONLY, part.getOffset(), part.getPartSize());
-        buffer.load();
-        // log.debug("Pausing before creating new Callable task");
-        // TimeUnit.SECONDS.sleep(3);
-        log.debug("Submitting new Callable task");
-        // progress.incrementByteRead(part.getPartSize());
-        results.add(executor.submit(new Callable<Part>() {
-
-          @Override
-          public Part call() throws Exception {
-            try {
-              DataChannel channel =
-                  new ProgressDataChannel(new MemoryMappedDataChannel(buffer, 0, part.getPartSize(), null), progress);
-              if (part.isCompleted()) {
-                log.info("Checksumming part: {}", part);
-                if (checksum && isCorrupted(channel, part, file)) {
-                  log.info("Checksum failed; Reuploading part: {}", part);
+        for (final Part part : parts) {
+          // No more than readAhead parts wait for a worker once loaded
+          readAheads.acquire();
+          memoryBudget.acquire(part.getPartSize());
+          log.debug("Memory in use: {}", memoryBudget.getAllocated());
+
+          MappedByteBuffer buffer;
+          try {
+            buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, part.getOffset(), part.getPartSize());
+          } catch (Throwable e) {
+            memoryBudget.release(part.getPartSize());
+            throw e;
+          }
+
+          val memoryChannel = new MemoryMappedDataChannel(buffer, 0, part.getPartSize(), null);
+          val loaded = loaders.submit(() -> {
+            buffer.load();
+            completed(part);
+            return null;
+          });
+
+          log.debug("Submitting new Callable task");
+          results.add(executor.submit(new Callable<Part>() {
+
+            @Override
+            public Part call() throws Exception {
+              try {
+                try {
+                  // The buffer must not be unmapped while it is being loaded
+                  Uninterruptibles.getUninterruptibly(loaded);
+                } catch (ExecutionException e) {
+                  throw new NotRetryableException(e.getCause());
+                } finally {
+                  readAheads.release();
+                }
+
+                DataChannel channel = new ProgressDataChannel(memoryChannel, progress);
+                if (part.isCompleted()) {
+                  log.info("Checksumming part: {}", part);
+                  if (checksum && isCorrupted(channel, part, file)) {
+                    log.info("Checksum failed; Reuploading part: {}", part);
+                    progress.startTransfer();
+                    proxy.uploadPart(channel, part, objectId, uploadId, file);
+                  }
+                  progress.incrementChecksumParts();
+                } else {
+                  log.info("Sending remaining part {}", part);
                   progress.startTransfer();
-                  proxy.uploadPart(channel, part, objectId, uploadId);
+                  proxy.uploadPart(channel, part, objectId, uploadId, file);
+                  progress.incrementParts(1);
                 }
-                progress.incrementChecksumParts();
-              } else {
-                log.info("Sending remaining part {}", part);
-                progress.startTransfer();
-                proxy.uploadPart(channel, part, objectId, uploadId);
-                progress.incrementParts(1);
+              } finally {
+                // Unmap now rather than when GC gets to it, and only give the memory back once it is
+                memoryChannel.release();
+                memoryBudget.release(part.getPartSize());
               }
-            } finally {
-              // This is required due to memory mapping which happens natively
-
-              memory.addAndGet(part.getPartSize());
-              tasksSubmitted.decrementAndGet();
+              return part;
             }
-            return part;
-          }
-        }));
-      }
-      long remaining = memory.addAndGet(-part.getPartSize());
-      log.debug("Remaining Memory : {}", remaining);
-      log.debug("Number of submitted tasks : {}", tasksSubmitted.get());
-      while (memory.get() < 0L) {
-        log.debug("Memory is low. Wait...");
-        TimeUnit.MILLISECONDS.sleep(FREE_MEMORY_TIME_DELAY);
-        // suggest to release buffers that are not longer needed (rely on java now)
-        // System.gc();
+          }));
+        }
+      } finally {
+        // Also when a part could not be mapped: the parts submitted so far are loaded and sent, then give their memory
+        // back and the threads end
+        log.debug("thread pool shut down request ...");
+        loaders.shutdown();
+        executor.shutdown();
+        executor.awaitTermination(super.maxUploadDuration, TimeUnit.DAYS);
+        log.debug("thread pool shut down request completed.");
+        progress.stop();
       }
-    }
 
-    log.debug("thread pool shut down request ...");
-    executor.shutdown();
-    executor.awaitTermination(super.maxUploadDuration, TimeUnit.DAYS);
-    log.debug("thread pool shut down request completed.");
-
-    progress.stop();
-    try {
       takeCareOfException(results.build());
-      proxy.finalizeUpload(objectId, uploadId);
+      finalizeUpload(file);
     } catch (Throwable e) {
-      progress.end(true);
+      end(true);
       throw e;
     }
-    progress.end(false);
+    end(false);
   }
 
   @Override
@@ -168,132 +167,160 @@ public class MemoryMappedParallelPartObjectTransport extends ParallelPartObjectT
     long fileSize = Downloads.calculateTotalSize(parts);
 
     log.debug("Downloading object to file: {}, size:{}", filename.getPath(), fileSize);
-    val downloadExecutorService = Executors.newFixedThreadPool(nThreads, new ThreadFactoryBuilder()
-        .setNameFormat("downloader-%s").build());
-    val memoryCollectorService = Executors.newScheduledThreadPool(Math.max(1, nThreads / 2), new ThreadFactoryBuilder()
-        .setNameFormat("memory-cleaner-%s").build());
+    val scheduler = new PartScheduler("downloader", nThreads, queueSize, memoryBudget);
 
     val results = new LinkedList<Future<MemoryMappedDataChannel>>();
     progress.start();
 
-    log.debug("Allocating space for file '{}'", filename);
-    try (RandomAccessFile fis = new RandomAccessFile(filename, "rw")) {
-      fis.setLength(fileSize);
-    }
-    log.debug("Finished space allocation for file '{}'", filename);
+    try {
+      log.debug("Allocating space for file '{}'", filename);
+      try (RandomAccessFile fis = new RandomAccessFile(filename, "rw")) {
+        fis.setLength(fileSize);
+      }
+      log.debug("Finished space allocation for file '{}'", filename);
 
-    // This is used to calculate
-    if (!Ordering.natural().isOrdered(parts)) {
-      Collections.sort(parts);
-    }
+      // This is used to calculate
+      if (!Ordering.natural().isOrdered(parts)) {
+        Collections.sort(parts);
+      }
 
-    boolean hasError = false;
-    long prevLength = 0;
-    long offset = 0;
-    for (final Part part : parts) {
-      log.debug("Starting part {} download.", part);
-      offset += prevLength;
-      prevLength = part.getPartSize();
-      val currOffset = offset;
-
-      log.debug("Submitting part # '{}' download.", part.getPartNumber());
-      results.push(downloadExecutorService.submit(new Callable<MemoryMappedDataChannel>() {
-
-        @Override
-        public MemoryMappedDataChannel call() throws Exception {
-          // tasksSubmitted.decrementAndGet();
-          try (RandomAccessFile rf = new RandomAccessFile(filename, "rw")) {
-            try (FileChannel channel = rf.getChannel()) {
-              // TODO: the actual position to position the data block into the file might be different from the original
-              // position
-
-              val buffer = channel.map(FileChannel.MapMode.READ_WRITE, currOffset, part.getPartSize());
-              log.debug("Created memory buffer of capacity {}", buffer.capacity());
-              val memoryChannel = new MemoryMappedDataChannel(buffer, part.getOffset(), part.getPartSize(), null);
-              val progressChannel = new ProgressDataChannel(memoryChannel, progress);
-              try {
-                log.debug("Checking if part #{} is downloaded", part.getPartNumber());
-                if (part.isCompleted()) {
-                  log.debug("Checking if part #{} is corrupted", part.getPartNumber());
-                  if (checksum && isCorrupted(progressChannel, part, outputDir)) {
-                    log.debug("Part #{} is corrupted. Re-downloading...", part.getPartNumber());
-                    progress.startTransfer();
-                    proxy.downloadPart(progressChannel, part, objectId, outputDir);
-                    // progress.incrementBytesWritten(part.getPartSize());
-                  }
-                  progress.incrementChecksumParts();
-                } else {
-                  log.debug("Part #{} is not downloaded. Downloading...", part.getPartNumber());
-                  progress.startTransfer();
-                  proxy.downloadPart(progressChannel, part, objectId, outputDir);
-                  // progress.incrementBytesWritten(part.getPartSize());
-                  progress.incrementParts(1);
-                }
-                return memoryChannel;
-              } catch (RetryableException | NotResumableException | NotRetryableException e) {
-                log.error("Failed to receive part: {}", part, e);
-                throw e;
-              } catch (Throwable e) {
-                throw new NotRetryableException(e);
-              } finally {
-                log.debug("Submitted task for part #{}", part.getPartNumber());
-                memoryCollectorService.schedule(new FreeMemory(memoryChannel), FREE_MEMORY_TIME_DELAY, MILLISECONDS);
-              }
+      // Ranged downloads start somewhere inside the object but at the beginning of the file
+      val startOffset = parts.isEmpty() ? 0L : parts.get(0).getOffset();
+
+      try (RandomAccessFile verified = new RandomAccessFile(filename, "r")) {
+        // Completed parts are verified concurrently instead of holding download workers and memory
+        val verifier = createVerifier(verified.getChannel(), startOffset, outputDir);
+        try {
+          val missing = new ArrayList<Part>();
+          for (val part : parts) {
+            if (!part.isCompleted()) {
+              missing.add(part);
+            } else if (checksum) {
+              verifier.submit(part);
+            } else {
+              progress.incrementChecksumParts();
+              completed(part);
             }
           }
-        } // call()
 
-      })); // results.push(submit(new Callable()))
-      memory.addAndGet(-part.getPartSize());
-      log.debug("Remaining Memory : {}", memory.get());
+          for (val part : missing) {
+            results.add(submitPart(scheduler, filename, outputDir, part, startOffset, false));
+            for (Part corrupted = verifier.poll(); corrupted != null; corrupted = verifier.poll()) {
+              results.add(submitPart(scheduler, filename, outputDir, corrupted, startOffset, true));
+            }
+            checkFailure(scheduler);
+          } // for (part)
 
-      // if we have no free memory, can't process next Part
-      while (memory.get() < 0) {
-        try {
-          if (!results.isEmpty()) {
-            Future<MemoryMappedDataChannel> work = results.removeLast();
-            // check if the work is done properly instead of just waiting
-            work.get();
-          }
-          TimeUnit.MILLISECONDS.sleep(FREE_MEMORY_TIME_DELAY);
-        } catch (ExecutionException e) {
-          log.error("Download part failed", e);
-          hasError = true;
-          if (e.getCause() instanceof NotResumableException) {
-            log.error("Download cannot be processed", e);
-            // properly shutdown executors
-            downloadExecutorService.shutdownNow();
-            memoryCollectorService.shutdownNow();
-            // then throw immediately
-            throw e.getCause();
+          for (Part corrupted = verifier.take(); corrupted != null; corrupted = verifier.take()) {
+            results.add(submitPart(scheduler, filename, outputDir, corrupted, startOffset, true));
+            checkFailure(scheduler);
           }
+        } finally {
+          verifier.shutdownNow();
         }
       }
-    } // for (part)
 
-    log.info("all tasks are submitted, waiting for completion...");
-    downloadExecutorService.shutdown();
-    downloadExecutorService.awaitTermination(super.maxUploadDuration, TimeUnit.DAYS);
-    memoryCollectorService.shutdown();
-    memoryCollectorService.awaitTermination(super.maxUploadDuration, TimeUnit.DAYS);
-    log.info("all tasks are completed");
+      log.info("all tasks are submitted, waiting for completion...");
+      scheduler.shutdown();
+      scheduler.awaitTermination(super.maxUploadDuration, TimeUnit.DAYS);
+      log.info("all tasks are completed");
+    } finally {
+      // Only has work left when submitting failed: stops the download workers and returns their memory
+      scheduler.shutdownNow();
+      scheduler.awaitTermination(super.maxUploadDuration, TimeUnit.DAYS);
+    }
 
     progress.stop();
-    if (hasError) {
-      progress.end(true);
-      throw new NotRetryableException(new IOException("some parts failed to download."));
-    } else {
-      try {
-        log.info("finalizing download...");
-        takeCareOfException(results);
-        proxy.finalizeDownload(outputDir, objectId);
-        log.info("Download is finalized");
-      } catch (Throwable e) {
-        progress.end(true);
-        throw e;
-      }
+    try {
+      log.info("finalizing download...");
+      takeCareOfException(results);
+      proxy.finalizeDownload(outputDir, objectId);
+      log.info("Download is finalized");
+    } catch (Throwable e) {
+      end(true);
+      throw e;
+    }
+    end(false);
+  }
+
+  /**
+   * Schedules the download of {@code part} into its own memory mapped region of {@code filename}.
+   * 
+   * @param corrupted whether the part was completed before but failed verification
+   */
+  private Future<MemoryMappedDataChannel> submitPart(PartScheduler scheduler, File filename, File outputDir, Part part,
+      long startOffset, boolean corrupted) throws InterruptedException {
+    log.debug("Submitting part # '{}' download.", part.getPartNumber());
+    val position = part.getOffset() - startOffset;
+    return scheduler.submit(part.getPartSize(), new Callable<MemoryMappedDataChannel>() {
+
+      @Override
+      public MemoryMappedDataChannel call() throws Exception {
+        try (RandomAccessFile rf = new RandomAccessFile(filename, "rw")) {
+          try (FileChannel channel = rf.getChannel()) {
+            val buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, part.getPartSize());
+            log.debug("Created memory buffer of capacity {}", buffer.capacity());
+            val memoryChannel = new MemoryMappedDataChannel(buffer, part.getOffset(), part.getPartSize(), null);
+            val progressChannel = new ProgressDataChannel(memoryChannel, progress);
+            boolean received = false;
+            try {
+              log.debug("Part #{} is not downloaded. Downloading...", part.getPartNumber());
+              progress.startTransfer();
+              proxy.streamPart(progressChannel, part);
+
+              // Only journal the part once it is on disk, so a resume downloads it again if the flush fails
+              flush(memoryChannel);
+              proxy.commitPart(outputDir, objectId, part);
+              if (corrupted) {
+                progress.incrementChecksumParts();
+              } else {
+                progress.incrementParts(1);
+              }
+              received = true;
+              return memoryChannel;
+            } catch (RetryableException | NotResumableException | NotRetryableException e) {
+              log.error("Failed to receive part: {}", part, e);
+              throw e;
+            } catch (Throwable e) {
+              throw new NotRetryableException(e);
+            } finally {
+              // Unmap before the scheduler hands the permits of this part to the next one, also after a failure
+              memoryChannel.release();
+              if (received) {
+                completed(part);
+              }
+            }
+          }
+        }
+      } // call()
+
+    });
+  }
+
+  /**
+   * Aborts the download as soon as a part fails in a way that cannot be resumed.
+   */
+  private void checkFailure(PartScheduler scheduler) throws Throwable {
+    log.debug("Memory in use: {}", scheduler.getAllocated());
+    val failure = scheduler.getFailure();
+    if (failure instanceof NotResumableException) {
+      log.error("Download cannot be processed", failure);
+      scheduler.shutdownNow();
+      throw failure;
+    }
+  }
+
+  /**
+   * Flushes and unmaps the part. A part that could not be flushed fails instead of being trusted.
+   */
+  private static void flush(MemoryMappedDataChannel channel) {
+    try {
+      log.debug("Flushing buffer to disk...");
+      channel.commitToDisk();
+    } catch (Throwable e) {
+      log.warn("Failed to flush buffer of {} bytes: {}", channel.getLength(), e.getMessage());
+      throw new RetryableException(e);
     }
-    progress.end(false);
   }
 
   public static MemoryMappedParallelBuilder builder() {
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.core.model.Part;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Computes the MD5 of a whole object while its parts are being downloaded into the output file, or read from the file
+ * being uploaded.
+ * <p>
+ * Transports report parts as they land in (or are read from) the file. Whenever the prefix of contiguous completed
+ * parts grows, the newly contiguous range is read back on a single background thread and fed to the digest, so the
+ * hash trails the fastest completed prefix and is ready shortly after the last part arrives.
+ * <p>
+ * The object is still read twice. Hashing the part buffers instead would mean holding on to every part that arrives
+ * out of order until the parts before it are hashed. The second read overlaps with the transfer and usually comes from
+ * the page cache, but not for objects larger than the page cache.
+ */
+@Slf4j
+public class ObjectDigester {
+
+  /**
+   * Constants.
+   */
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  /**
+   * Configuration.
+   */
+  private final File file;
+  private final List<Part> parts;
+  private final Map<Integer, Integer> indexes = new HashMap<>();
+  private final long startOffset;
+
+  /**
+   * State.
+   */
+  private final boolean[] completed;
+  private int scheduled;
+  private final MessageDigest digest;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private volatile FileChannel channel;
+  private volatile Throwable failure;
+  private volatile boolean closed;
+
+  /**
+   * Dependencies.
+   */
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("digester-%s").setDaemon(true).build());
+
+  @SneakyThrows
+  public ObjectDigester(@NonNull File file, @NonNull List<Part> parts) {
+    this.file = file;
+    this.parts = new ArrayList<>(parts);
+    Collections.sort(this.parts);
+    for (int i = 0; i < this.parts.size(); i++) {
+      indexes.put(this.parts.get(i).getPartNumber(), i);
+    }
+
+    this.startOffset = this.parts.isEmpty() ? 0L : this.parts.get(0).getOffset();
+    this.completed = new boolean[this.parts.size()];
+    this.digest = MessageDigest.getInstance("MD5");
+  }
+
+  /**
+   * Reports that the content of {@code part} has been fully written to the file.
+   */
+  public synchronized void complete(Part part) {
+    val index = indexes.get(part.getPartNumber());
+    if (index == null) {
+      log.warn("Ignoring unknown part: {}", part);
+      return;
+    }
+    completed[index] = true;
+
+    int end = scheduled;
+    while (end < completed.length && completed[end]) {
+      end++;
+    }
+
+    if (end > scheduled) {
+      val from = scheduled;
+      val to = end;
+      scheduled = end;
+      executor.submit(() -> update(from, to));
+    }
+  }
+
+  /**
+   * Waits for the pipeline to drain and returns the hex encoded MD5 of the object, or nothing if some parts were never
+   * reported or could not be read back, or the digester was {@link #close()}d.
+   */
+  public Optional<String> getMd5() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    closeChannel();
+
+    synchronized (this) {
+      if (closed || failure != null || scheduled < completed.length) {
+        log.debug("Incremental MD5 of {} is not available. Hashed {} of {} parts", file, scheduled, completed.length);
+        return Optional.empty();
+      }
+    }
+
+    return Optional.of(BaseEncoding.base16().lowerCase().encode(digest.digest()));
+  }
+
+  /**
+   * Stops hashing and releases the digester thread and file, for transfers that fail or are abandoned before
+   * {@link #getMd5()}. May be called more than once.
+   */
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+    try {
+      // An interrupted read closes the channel and ends the task right away
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    closeChannel();
+  }
+
+  /**
+   * @return the MD5 of the object as {@link #getMd5()}, or of the whole file read again if it was not computed
+   */
+  public String getFileMd5() throws IOException, InterruptedException {
+    val md5 = getMd5();
+    if (md5.isPresent()) {
+      return md5.get();
+    }
+
+    log.warn("MD5 of {} was not computed during upload. Reading the file again...", file);
+    return Files.hash(file, Hashing.md5()).toString();
+  }
+
+  /**
+   * Hashes parts {@code [from, to)} in order. Only ever called from the single digester thread.
+   */
+  private void update(int from, int to) {
+    if (closed || failure != null) {
+      return;
+    }
+
+    try {
+      if (channel == null) {
+        channel = new RandomAccessFile(file, "r").getChannel();
+      }
+
+      for (int i = from; i < to; i++) {
+        val part = parts.get(i);
+        long position = part.getOffset() - startOffset;
+        val end = position + part.getPartSize();
+        while (position < end) {
+          buffer.clear();
+          buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+          val count = channel.read(buffer, position);
+          if (count < 0) {
+            throw new IOException("Unexpected end of file " + file + " at position " + position);
+          }
+
+          buffer.flip();
+          digest.update(buffer);
+          position += count;
+        }
+      }
+    } catch (Throwable t) {
+      log.warn("Failed to update MD5 of {}. Falling back to reading the whole file: {}", file, t.getMessage());
+      failure = t;
+    }
+  }
+
+  private void closeChannel() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.warn("Failed to close {}", file, e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.icgc.dcc.storage.client.exception.NotRetryableException;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Emits parts that complete out of order to an {@link OutputStream} in order of their offset.
+ * <p>
+ * Parts that are too far ahead of the next offset to be written must wait in {@link #awaitWindow(long, long)} before
+ * being fetched, which bounds the number of bytes that can be buffered. Only one thread at a time drains ready parts
+ * to the output; other threads hand over their part and return immediately.
+ */
+@Slf4j
+public class OrderedPartWriter {
+
+  /**
+   * Configuration.
+   */
+  private final long window;
+
+  /**
+   * State.
+   */
+  private final Lock lock = new ReentrantLock();
+  private final Condition advanced = lock.newCondition();
+  private final TreeMap<Long, ByteBuffer> pending = new TreeMap<>();
+  private long position;
+  private boolean draining;
+  private Throwable failure;
+
+  /**
+   * Dependencies.
+   */
+  private final WritableByteChannel output;
+
+  public OrderedPartWriter(OutputStream output, long startOffset, long window) {
+    this.output = Channels.newChannel(output);
+    this.position = startOffset;
+    this.window = window;
+  }
+
+  /**
+   * Blocks until the part at {@code offset} fits into the reorder window. The part at the head of the window is always
+   * admitted, even if it is larger than the window itself.
+   */
+  public void awaitWindow(long offset, long size) throws InterruptedException {
+    lock.lock();
+    try {
+      while (offset != position && offset + size - position > window) {
+        checkFailure();
+        advanced.await();
+      }
+      checkFailure();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Hands over the content of the part at {@code offset} and writes every part that has become contiguous.
+   */
+  public void write(long offset, ByteBuffer data) throws IOException {
+    lock.lock();
+    try {
+      checkFailure();
+      checkState(offset >= position, "Part at offset %s was already written", offset);
+      pending.put(offset, data);
+      if (draining) {
+        return;
+      }
+      draining = true;
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      drain();
+    } catch (Throwable t) {
+      abort(t);
+      throw t;
+    }
+  }
+
+  /**
+   * Wakes up all waiting threads so that they can bail out after a part could not be fetched or written.
+   */
+  public void abort(Throwable cause) {
+    lock.lock();
+    try {
+      if (failure == null) {
+        failure = cause;
+      }
+      pending.clear();
+      advanced.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getPosition() {
+    lock.lock();
+    try {
+      return position;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void drain() throws IOException {
+    while (true) {
+      ByteBuffer next;
+      lock.lock();
+      try {
+        next = pending.remove(position);
+        if (next == null) {
+          draining = false;
+          return;
+        }
+      } finally {
+        lock.unlock();
+      }
+
+      val length = next.remaining();
+      while (next.hasRemaining()) {
+        output.write(next);
+      }
+      log.debug("Wrote {} bytes at offset {}", length, position);
+
+      lock.lock();
+      try {
+        position += length;
+        advanced.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void checkFailure() {
+    if (failure != null) {
+      throw new NotRetryableException(new IOException("Stream aborted: " + failure.getMessage(), failure));
+    }
+  }
+
+}
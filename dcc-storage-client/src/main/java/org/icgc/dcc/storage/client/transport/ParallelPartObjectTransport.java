@@ -33,7 +33,6 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.icgc.dcc.storage.client.download.Downloads;
 import org.icgc.dcc.storage.client.progress.Progress;
@@ -61,6 +60,8 @@ public class ParallelPartObjectTransport implements Transport {
 
   private static final int MIN_WORKER = 1;
   private static final long MIN_MEMORY = 1024L * 1024L;
+  private static final int DEFAULT_VERIFY_THREADS = 2;
+  private static final int DEFAULT_READ_AHEAD = 2;
 
   final protected StorageService proxy;
   final protected int nThreads;
@@ -70,9 +71,13 @@ public class ParallelPartObjectTransport implements Transport {
   final protected String objectId;
   final protected String uploadId;
   final protected Mode mode;
-  final protected AtomicLong memory;
+  final protected MemoryBudget memoryBudget;
   final protected int maxUploadDuration;
   final protected boolean checksum;
+  final protected ObjectDigester digester;
+  final protected int verifyThreads;
+  final protected long verifyRate;
+  final protected int readAhead;
 
   protected ParallelPartObjectTransport(RemoteParallelBuilder builder) {
 
@@ -83,10 +88,21 @@ public class ParallelPartObjectTransport implements Transport {
     this.uploadId = builder.uploadId;
     this.nThreads = builder.nThreads;
     this.queueSize = nThreads * 2;
-    this.memory = new AtomicLong(builder.memory);
+    this.memoryBudget = builder.memoryBudget == null ? new MemoryBudget(builder.memory) : builder.memoryBudget;
     this.maxUploadDuration = builder.maxUploadDuration;
     this.mode = builder.mode;
     this.checksum = builder.checksum;
+    this.digester = builder.digester;
+    this.verifyThreads = builder.verifyThreads;
+    this.verifyRate = builder.verifyRate;
+    this.readAhead = builder.readAhead;
+
+    if (mode != null) {
+      val shaper = proxy.getShaper(mode);
+      if (shaper.isEnabled()) {
+        progress.setBandwidthShaping(shaper.getLimit(), shaper::getShapedBytes);
+      }
+    }
   }
 
   @Override
@@ -106,16 +122,17 @@ public class ParallelPartObjectTransport implements Transport {
           if (part.isCompleted()) {
             if (isCorrupted(channel, part, file)) {
               progress.startTransfer();
-              proxy.uploadPart(channel, part, objectId, uploadId);
+              proxy.uploadPart(channel, part, objectId, uploadId, file);
             }
             progress.incrementChecksumParts();
           } else {
             progress.startTransfer();
-            proxy.uploadPart(channel, part, objectId, uploadId);
+            proxy.uploadPart(channel, part, objectId, uploadId, file);
             progress.incrementParts(1);
           }
           // progress.incrementByteWritten(part.getPartSize());
           // progress.incrementByteRead(part.getPartSize());
+          completed(part);
           return part;
         }
       }));
@@ -126,12 +143,12 @@ public class ParallelPartObjectTransport implements Transport {
     progress.stop();
     try {
       takeCareOfException(results.build());
-      proxy.finalizeUpload(objectId, uploadId);
+      finalizeUpload(file);
     } catch (Throwable e) {
-      progress.end(true);
+      end(true);
       throw e;
     }
-    progress.end(false);
+    end(false);
   }
 
   @Override
@@ -198,10 +215,10 @@ public class ParallelPartObjectTransport implements Transport {
         log.warn("Please delete the temporary files at {}", outputDir.getAbsolutePath());
       }
     } catch (Throwable e) {
-      progress.end(true);
+      end(true);
       throw e;
     }
-    progress.end(false);
+    end(false);
   }
 
   private void cleanup(List<Part> parts, File outputDir) {
@@ -230,6 +247,52 @@ public class ParallelPartObjectTransport implements Transport {
     return true;
   }
 
+  /**
+   * Creates a verifier that checks completed parts against the object being downloaded to {@code file}, which starts
+   * at {@code startOffset} of the object.
+   */
+  protected PartVerifier createVerifier(FileChannel file, long startOffset, File outputDir) {
+    return new PartVerifier("verifier", verifyThreads, verifyRate, part -> {
+      val channel = new PositionalFileDataChannel(file, part.getOffset() - startOffset, part.getPartSize(), null);
+      if (isCorrupted(channel, part, outputDir)) {
+        return true;
+      }
+
+      progress.incrementChecksumParts();
+      completed(part);
+      return false;
+    });
+  }
+
+  /**
+   * Ends the progress display with a summary that includes the part concurrency.
+   */
+  protected void end(boolean incomplete) {
+    if (incomplete && digester != null) {
+      digester.close();
+    }
+
+    progress.setConcurrency(proxy.getConcurrency());
+    progress.end(incomplete);
+  }
+
+  /**
+   * Reports a part whose content is now in place in the output file, or has been read from the uploaded file.
+   */
+  protected void completed(Part part) {
+    if (digester != null) {
+      digester.complete(part);
+    }
+  }
+
+  /**
+   * Completes the upload along with the MD5 of the whole file, if a digester was computing it.
+   */
+  protected void finalizeUpload(File file) throws IOException, InterruptedException {
+    val md5 = digester == null ? null : digester.getFileMd5();
+    proxy.finalizeUpload(objectId, uploadId, md5);
+  }
+
   protected <T> void takeCareOfException(Collection<Future<T>> results) throws Throwable {
     for (Future<T> result : results) {
       try {
@@ -255,7 +318,11 @@ public class ParallelPartObjectTransport implements Transport {
 
     private int nThreads;
     private long memory;
+    private MemoryBudget memoryBudget;
     private int maxUploadDuration;
+    private int verifyThreads;
+    private long verifyRate;
+    private int readAhead;
 
     public RemoteParallelBuilder withNumberOfWorkerThreads(int threads) {
       this.nThreads = threads;
@@ -267,6 +334,38 @@ public class ParallelPartObjectTransport implements Transport {
       return this;
     }
 
+    /**
+     * Shares the memory budget with other transports instead of reserving {@code memory} bytes for this one alone.
+     */
+    public RemoteParallelBuilder withMemoryBudget(MemoryBudget memoryBudget) {
+      this.memoryBudget = memoryBudget;
+      return this;
+    }
+
+    /**
+     * Number of threads that verify completed parts while a download is resumed.
+     */
+    public RemoteParallelBuilder withVerifyThreads(int threads) {
+      this.verifyThreads = threads;
+      return this;
+    }
+
+    /**
+     * Maximum number of bytes per second read to verify completed parts, or {@code 0} for no limit.
+     */
+    public RemoteParallelBuilder withVerifyRate(long rate) {
+      this.verifyRate = rate;
+      return this;
+    }
+
+    /**
+     * Number of parts read ahead of the upload workers by transports that load parts before sending them.
+     */
+    public RemoteParallelBuilder withReadAhead(int parts) {
+      this.readAhead = parts;
+      return this;
+    }
+
     public RemoteParallelBuilder withMaximumUploadDuration(int duration) {
       this.maxUploadDuration = duration;
       return this;
@@ -289,6 +388,8 @@ public class ParallelPartObjectTransport implements Transport {
       nThreads = nThreads < MIN_WORKER ? MIN_WORKER : nThreads;
       memory = memory < MIN_MEMORY ? MIN_MEMORY : memory;
       maxUploadDuration = maxUploadDuration < 1 ? Integer.MAX_VALUE : maxUploadDuration;
+      verifyThreads = verifyThreads < MIN_WORKER ? DEFAULT_VERIFY_THREADS : verifyThreads;
+      readAhead = readAhead < MIN_WORKER ? DEFAULT_READ_AHEAD : readAhead;
 
     }
   }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+import com.google.common.hash.HashCode;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+
+/**
+ * Running MD5 of a part that outlives a failed attempt, so that a retry which continues where the previous attempt
+ * stopped still yields the MD5 of the whole part.
+ */
+public class PartDigest {
+
+  /**
+   * State.
+   */
+  private MessageDigest digest = newDigest();
+  @Getter
+  private long length;
+
+  /**
+   * @return a stream that adds everything read from {@code is} to the digest
+   */
+  public InputStream wrap(InputStream is) {
+    return new FilterInputStream(is) {
+
+      @Override
+      public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+          digest.update((byte) value);
+          length++;
+        }
+
+        return value;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        if (count > 0) {
+          digest.update(b, off, count);
+          length += count;
+        }
+
+        return count;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        throw new IOException("Skipping would leave a gap in the digest");
+      }
+
+    };
+  }
+
+  /**
+   * @return the MD5 of what was read so far, without ending the digest
+   */
+  @SneakyThrows
+  public String hash() {
+    return HashCode.fromBytes(((MessageDigest) digest.clone()).digest()).toString();
+  }
+
+  public void reset() {
+    digest = newDigest();
+    length = 0;
+  }
+
+  @SneakyThrows
+  private static MessageDigest newDigest() {
+    return MessageDigest.getInstance("MD5");
+  }
+
+}
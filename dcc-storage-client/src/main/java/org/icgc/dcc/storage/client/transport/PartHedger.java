@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.core.model.DataChannel;
+import org.icgc.dcc.storage.core.model.Part;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Races a duplicate request against a part download that takes much longer than parts usually do.
+ * <p>
+ * The deadline of a part is a percentile of the time per byte of recently downloaded parts, scaled to the part size.
+ * Once a part misses it, a second ranged GET of the same part is issued into a {@link HedgeableDataChannel#duplicate()
+ * duplicate} of its channel, provided a concurrency slot is free right away. Whichever request returns the expected
+ * content first wins, the other one is aborted. Both write the same bytes to the same place, so it doesn't matter how
+ * far the loser got.
+ */
+@Slf4j
+public class PartHedger {
+
+  /**
+   * Constants.
+   */
+  private static final int MAX_SAMPLES = 100;
+  private static final int MIN_SAMPLES = 10;
+  private static final long MIN_DEADLINE = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Downloads a part into a channel.
+   */
+  public interface Fetch {
+
+    String fetch(DataChannel channel, Attempt attempt) throws Exception;
+
+  }
+
+  /**
+   * Handle of a single request of a part, used to abort it once another request has won.
+   */
+  public static class Attempt {
+
+    private Closeable connection;
+    private boolean cancelled;
+
+    /**
+     * Registers the connection the part is read from. It is aborted right away if the attempt already lost.
+     */
+    public synchronized void started(Closeable connection) throws IOException {
+      this.connection = connection;
+      if (cancelled) {
+        connection.close();
+      }
+    }
+
+    private synchronized void cancel() {
+      cancelled = true;
+      if (connection != null) {
+        try {
+          connection.close();
+        } catch (IOException e) {
+          log.debug("Failed to abort request: {}", e.getMessage());
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Configuration.
+   */
+  private final int percentile;
+
+  /**
+   * Dependencies.
+   */
+  private final ConcurrencyController concurrency;
+  private final ExecutorService executor;
+
+  /**
+   * State.
+   */
+  private final double[] samples = new double[MAX_SAMPLES];
+  private int sampleCount;
+
+  /**
+   * @param percentile of the time per byte after which a part is hedged, {@code 0} to disable hedging
+   */
+  public PartHedger(int percentile, ConcurrencyController concurrency) {
+    this.percentile = Math.max(0, Math.min(100, percentile));
+    this.concurrency = concurrency;
+    this.executor = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("hedge-%s").setDaemon(true).build());
+  }
+
+  public boolean isEnabled() {
+    return percentile > 0;
+  }
+
+  /**
+   * Downloads {@code part} into {@code channel}, hedging into {@code duplicate} if the part takes too long.
+   * 
+   * @param duplicate channel over the same part, or {@code null} if the part cannot be written twice
+   * @return the MD5 of the content that was written
+   */
+  public String fetch(DataChannel channel, DataChannel duplicate, Part part, Fetch fetch) throws IOException {
+    val start = System.nanoTime();
+    val deadline = getDeadline(part.getPartSize());
+
+    String md5;
+    if (duplicate == null || deadline < 0) {
+      try {
+        md5 = fetch.fetch(channel, new Attempt());
+      } catch (Exception e) {
+        throw propagate(e);
+      }
+    } else {
+      md5 = race(channel, duplicate, part, fetch, deadline);
+    }
+
+    if (isExpected(part, md5)) {
+      record(part.getPartSize(), System.nanoTime() - start);
+    }
+
+    return md5;
+  }
+
+  private String race(DataChannel channel, DataChannel duplicate, Part part, Fetch fetch, long deadline)
+      throws IOException {
+    val completion = new ExecutorCompletionService<String>(executor);
+    val attempts = new LinkedHashMap<Future<String>, Attempt>();
+    submit(completion, attempts, channel, fetch);
+
+    boolean hedged = false;
+    try {
+      Future<String> done = completion.poll(deadline, NANOSECONDS);
+      if (done == null && concurrency.tryAcquire()) {
+        log.debug("Part #{} exceeded {} ms, hedging", part.getPartNumber(), NANOSECONDS.toMillis(deadline));
+        submit(completion, attempts, duplicate, fetch);
+        hedged = true;
+      }
+
+      String md5 = null;
+      Throwable failure = null;
+      for (int pending = attempts.size(); pending > 0; pending--) {
+        if (done == null) {
+          done = completion.take();
+        }
+
+        try {
+          md5 = done.get();
+          if (isExpected(part, md5)) {
+            return md5;
+          }
+        } catch (ExecutionException e) {
+          failure = e.getCause();
+        }
+
+        done = null;
+      }
+
+      // Let the caller's checksum verification deal with unexpected content
+      if (md5 != null) {
+        return md5;
+      }
+
+      throw propagate(failure);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      // Every attempt writes into the part, so none may outlive this call
+      attempts.forEach((future, attempt) -> {
+        if (!future.isDone()) {
+          attempt.cancel();
+        }
+      });
+      for (val future : attempts.keySet()) {
+        try {
+          Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+          log.debug("Aborted request of part #{}: {}", part.getPartNumber(), e.getCause().getMessage());
+        }
+      }
+
+      if (hedged) {
+        concurrency.release();
+      }
+    }
+  }
+
+  private void submit(ExecutorCompletionService<String> completion, LinkedHashMap<Future<String>, Attempt> attempts,
+      DataChannel channel, Fetch fetch) {
+    val attempt = new Attempt();
+    attempts.put(completion.submit(() -> fetch.fetch(channel, attempt)), attempt);
+  }
+
+  /**
+   * @return the time (ns) after which a part of the given size is hedged, or {@code -1} if there is no deadline yet
+   */
+  synchronized long getDeadline(long partSize) {
+    if (!isEnabled() || sampleCount < MIN_SAMPLES) {
+      return -1;
+    }
+
+    val count = Math.min(sampleCount, MAX_SAMPLES);
+    val sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+
+    val index = Math.max(0, (int) Math.ceil(percentile / 100.0 * count) - 1);
+    return Math.max(MIN_DEADLINE, (long) (sorted[index] * partSize));
+  }
+
+  synchronized void record(long partSize, long elapsed) {
+    if (partSize <= 0) {
+      return;
+    }
+
+    samples[sampleCount % MAX_SAMPLES] = (double) elapsed / partSize;
+    sampleCount++;
+  }
+
+  private static boolean isExpected(Part part, String md5) {
+    return md5 != null && (part.isMissingSourceMd5() || part.getSourceMd5().equals(md5));
+  }
+
+  private static IOException propagate(Throwable t) {
+    Throwables.propagateIfPossible(t, IOException.class);
+    return new IOException(t);
+  }
+
+}
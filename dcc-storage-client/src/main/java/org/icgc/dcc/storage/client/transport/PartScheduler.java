@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Schedules part transfers onto a fixed pool of workers while enforcing a ceiling on the number of bytes held by
+ * in-flight parts.
+ * <p>
+ * Submission blocks until both a queue slot and enough byte permits are available. Permits are returned as soon as the
+ * task completes, so the submitting thread is woken up promptly instead of polling. The {@link MemoryBudget} may be
+ * shared with the schedulers of other objects.
+ */
+@Slf4j
+public class PartScheduler {
+
+  /**
+   * Configuration.
+   */
+  private final int maxPending;
+
+  /**
+   * State.
+   */
+  private final Lock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private int pending;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  /**
+   * Dependencies.
+   */
+  private final MemoryBudget budget;
+  private final ExecutorService executor;
+
+  public PartScheduler(String name, int nThreads, int queueSize, long capacity) {
+    this(name, nThreads, queueSize, new MemoryBudget(capacity));
+  }
+
+  public PartScheduler(String name, int nThreads, int queueSize, MemoryBudget budget) {
+    this.budget = budget;
+    this.maxPending = nThreads + queueSize;
+    this.executor = Executors.newFixedThreadPool(nThreads, new ThreadFactoryBuilder()
+        .setNameFormat(name + "-%s").build());
+  }
+
+  /**
+   * Submits a {@code task} that will hold {@code size} bytes until it completes. Blocks while the memory budget or the
+   * work queue is exhausted.
+   */
+  public <T> Future<T> submit(long size, Callable<T> task) throws InterruptedException {
+    acquire(size);
+    try {
+      val future = new SizedTask<T>(size, task);
+      executor.execute(future);
+      return future;
+    } catch (RejectedExecutionException e) {
+      release(size);
+      throw e;
+    }
+  }
+
+  /**
+   * @return the first failure raised by a submitted task, or {@code null} if none have failed so far
+   */
+  public Throwable getFailure() {
+    return failure.get();
+  }
+
+  public long getAllocated() {
+    return budget.getAllocated();
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Interrupts running tasks and cancels queued ones, returning the memory the queued tasks were holding.
+   */
+  public void shutdownNow() {
+    for (val queued : executor.shutdownNow()) {
+      val task = (SizedTask<?>) queued;
+      task.cancel(false);
+      release(task.size);
+    }
+  }
+
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executor.awaitTermination(timeout, unit);
+  }
+
+  private void acquire(long size) throws InterruptedException {
+    lock.lock();
+    try {
+      while (pending >= maxPending) {
+        log.debug("Waiting for a queue slot. Pending: {}", pending);
+        released.await();
+      }
+
+      pending++;
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      budget.acquire(size);
+    } catch (InterruptedException e) {
+      releaseSlot();
+      throw e;
+    }
+  }
+
+  private void release(long size) {
+    budget.release(size);
+    releaseSlot();
+  }
+
+  private void releaseSlot() {
+    lock.lock();
+    try {
+      pending--;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * A task that releases its memory when it completes, and remembers how much so that it can be released if it never
+   * runs.
+   */
+  private class SizedTask<T> extends FutureTask<T> {
+
+    private final long size;
+
+    private SizedTask(long size, Callable<T> task) {
+      super(() -> {
+        try {
+          return task.call();
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+          throw t;
+        } finally {
+          release(size);
+        }
+      });
+      this.size = size;
+    }
+
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.icgc.dcc.storage.core.model.Part;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Verifies previously completed parts on a dedicated pool while the missing parts are downloaded.
+ * <p>
+ * Verification has its own threads and an optional read rate, so that hashing what is already on disk neither holds
+ * download workers nor starves them of disk bandwidth. Parts that fail verification are handed back to the transport
+ * through {@link #poll()} and {@link #take()} to be downloaded again.
+ */
+@Slf4j
+public class PartVerifier {
+
+  /**
+   * Checks a part and discards its state if it is corrupted.
+   */
+  public interface Check {
+
+    boolean isCorrupted(Part part) throws IOException;
+
+  }
+
+  /**
+   * Dependencies.
+   */
+  private final Check check;
+  private final RateLimiter limiter;
+  private final ExecutorService executor;
+
+  /**
+   * State.
+   */
+  private final Queue<Part> corrupted = new ConcurrentLinkedQueue<>();
+  private int remaining;
+
+  /**
+   * @param rate maximum number of bytes read per second, or {@code 0} for no limit
+   */
+  public PartVerifier(String name, int nThreads, long rate, Check check) {
+    this.check = check;
+    this.limiter = rate > 0 ? RateLimiter.create(rate / 1024.0) : null;
+    this.executor = Executors.newFixedThreadPool(nThreads, new ThreadFactoryBuilder()
+        .setNameFormat(name + "-%s").setDaemon(true).build());
+  }
+
+  public synchronized void submit(Part part) {
+    remaining++;
+    executor.execute(() -> verify(part));
+  }
+
+  /**
+   * @return the next corrupted part, or {@code null} if none is available right now
+   */
+  public Part poll() {
+    return corrupted.poll();
+  }
+
+  /**
+   * Waits for the next corrupted part.
+   * 
+   * @return the next corrupted part, or {@code null} once every submitted part has been verified
+   */
+  public synchronized Part take() throws InterruptedException {
+    while (corrupted.isEmpty() && remaining > 0) {
+      wait();
+    }
+
+    return corrupted.poll();
+  }
+
+  public void shutdownNow() {
+    executor.shutdownNow();
+  }
+
+  private void verify(Part part) {
+    try {
+      if (limiter != null) {
+        limiter.acquire((int) Math.max(1, part.getPartSize() / 1024));
+      }
+      if (check.isCorrupted(part)) {
+        log.info("Part #{} is corrupted and will be downloaded again", part.getPartNumber());
+        corrupted.add(part);
+      }
+    } catch (Throwable t) {
+      // Downloading again is always safe
+      log.warn("Could not verify part #{}: {}", part.getPartNumber(), t.getMessage());
+      corrupted.add(part);
+    } finally {
+      synchronized (this) {
+        remaining--;
+        notifyAll();
+      }
+    }
+  }
+
+}
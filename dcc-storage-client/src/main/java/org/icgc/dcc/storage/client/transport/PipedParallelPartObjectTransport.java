@@ -18,8 +18,6 @@
 package org.icgc.dcc.storage.client.transport;
 
 import java.io.File;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -31,18 +29,26 @@ import org.icgc.dcc.storage.core.model.DataChannel;
 import org.icgc.dcc.storage.core.model.Part;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.ByteSource;
-import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * A data transport using piped input channels for parallel upload
+ * A data transport that streams every part from disk to the network through a fixed-size {@link RingBuffer} for
+ * parallel upload.
+ * <p>
+ * Disk reads and network sends of a part overlap, and each part in flight holds no more than the ring in memory
+ * regardless of the part size.
  */
 @Slf4j
 public class PipedParallelPartObjectTransport extends ParallelPartObjectTransport {
 
+  /**
+   * Constants.
+   */
+  private static final int RING_SIZE = 4 * 1024 * 1024;
+
   private PipedParallelPartObjectTransport(RemoteParallelBuilder builder) {
     super(builder);
   }
@@ -53,48 +59,37 @@ public class PipedParallelPartObjectTransport extends ParallelPartObjectTranspor
 
     log.debug("Number of Concurrency: {}", nThreads);
     ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    ExecutorService readers = Executors.newFixedThreadPool(nThreads, new ThreadFactoryBuilder()
+        .setNameFormat("reader-%s").setDaemon(true).build());
     ImmutableList.Builder<Future<Part>> results = ImmutableList.builder();
     progress.start();
     for (final Part part : parts) {
-      final PipedOutputStream pos = new PipedOutputStream();
-      final PipedInputStream pis = new PipedInputStream(pos, (int) part.getPartSize());
-
       results.add(executor.submit(new Callable<Part>() {
 
         @Override
         public Part call() throws Exception {
-          DataChannel dataChannel =
-              new ProgressDataChannel(new PipedDataChannel(pis, 0, part.getPartSize(), null), progress);
+          DataChannel dataChannel = new ProgressDataChannel(
+              new RingBufferDataChannel(file, part.getOffset(), part.getPartSize(), RING_SIZE, readers), progress);
           progress.startTransfer();
-          proxy.uploadPart(dataChannel, part, objectId, uploadId);
-          // progress.incrementByteWritten(part.getPartSize());
+          proxy.uploadPart(dataChannel, part, objectId, uploadId, file);
           progress.incrementParts(1);
-          memory.addAndGet(part.getPartSize());
+          completed(part);
           return part;
         }
       }));
-
-      ByteSource source = Files.asByteSource(file);
-      source.slice(part.getOffset(), part.getPartSize()).copyTo(pos);
-      pos.close();
-      // progress.incrementByteRead(part.getPartSize());
-      progress.incrementParts(0);
-      long remaining = memory.addAndGet(-part.getPartSize());
-      log.debug("Remaining Memory : {}", remaining);
-      while (memory.get() < 0) {
-        TimeUnit.SECONDS.sleep(1);
-      }
     }
     executor.shutdown();
     executor.awaitTermination(super.maxUploadDuration, TimeUnit.DAYS);
+    readers.shutdownNow();
+    progress.stop();
     try {
       takeCareOfException(results.build());
-      proxy.finalizeUpload(objectId, uploadId);
+      finalizeUpload(file);
     } catch (Throwable e) {
-      progress.end(true);
+      end(true);
       throw e;
     }
-    progress.end(false);
+    end(false);
 
   }
 
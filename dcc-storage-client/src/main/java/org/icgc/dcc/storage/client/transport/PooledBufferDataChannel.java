@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.val;
+
+/**
+ * Channel that holds a single part in a buffer borrowed from a {@link BufferPool}, moved to and from a shared
+ * {@link FileChannel} with positional reads and writes.
+ * <p>
+ * An upload {@link #load()}s the part from the file before sending it, a download fills the buffer and writes it to
+ * the file on {@link #commitToDisk()}. Either way the buffer must be given back with {@link #release()}.
+ */
+public class PooledBufferDataChannel extends ByteBufferDataChannel {
+
+  /**
+   * Dependencies.
+   */
+  private final BufferPool pool;
+  private final FileChannel file;
+
+  /**
+   * State.
+   */
+  private final ByteBuffer buffer;
+  @Getter
+  private final long position;
+
+  private PooledBufferDataChannel(BufferPool pool, ByteBuffer buffer, FileChannel file, long position, long offset,
+      long length) {
+    super(buffer, offset, length, null);
+    this.pool = pool;
+    this.buffer = buffer;
+    this.file = file;
+    this.position = position;
+  }
+
+  /**
+   * Blocks until the pool has a buffer for the part.
+   * 
+   * @param position where the part starts in {@code file}
+   */
+  public static PooledBufferDataChannel acquire(BufferPool pool, FileChannel file, long position, long offset,
+      long length) throws InterruptedException {
+    return new PooledBufferDataChannel(pool, pool.acquire(), file, position, offset, length);
+  }
+
+  /**
+   * Reads the part from the file into the buffer.
+   */
+  public void load() throws IOException {
+    buffer.clear();
+    buffer.limit((int) getLength());
+    while (buffer.hasRemaining()) {
+      if (file.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException(String.format("Reached end of file after %s of %s bytes at position %s",
+            buffer.position(), getLength(), position));
+      }
+    }
+  }
+
+  /**
+   * Writes the part from the buffer to the file.
+   */
+  @Override
+  @SneakyThrows
+  public void commitToDisk() {
+    val data = getData();
+    while (data.hasRemaining()) {
+      file.write(data, position + data.position());
+    }
+  }
+
+  /**
+   * Hands the buffer back to the pool. The channel must not be used afterwards.
+   */
+  public void release() {
+    pool.release(buffer);
+  }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.client.download.Downloads;
+import org.icgc.dcc.storage.client.progress.ProgressDataChannel;
+import org.icgc.dcc.storage.core.model.Part;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A data transport that moves every part through a direct buffer taken from a fixed {@link BufferPool}.
+ * <p>
+ * Parts are read from, or written to, their range of the object file with positional I/O. Unlike
+ * {@link MemoryMappedParallelPartObjectTransport} no mapping is created per part, so the memory in use is bounded by
+ * the pool and released as soon as a part is done instead of when the garbage collector gets to it.
+ */
+@Slf4j
+public class PooledBufferParallelPartObjectTransport extends ParallelPartObjectTransport {
+
+  private PooledBufferParallelPartObjectTransport(RemoteParallelBuilder builder) {
+    super(builder);
+    log.debug("Transport Settings: {}", builder.toString());
+  }
+
+  @Override
+  @SneakyThrows
+  public void send(File file) {
+    log.debug("send file: {}", file.getPath());
+    val pool = createPool();
+    val executor = Executors.newFixedThreadPool(nThreads, new ThreadFactoryBuilder()
+        .setNameFormat("uploader-%s").build());
+    ImmutableList.Builder<Future<Part>> results = ImmutableList.builder();
+
+    progress.start();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      val source = raf.getChannel();
+      for (val part : parts) {
+        results.add(executor.submit(new Callable<Part>() {
+
+          @Override
+          public Part call() throws Exception {
+            val buffered = PooledBufferDataChannel.acquire(pool, source, part.getOffset(), part.getOffset(),
+                part.getPartSize());
+            try {
+              buffered.load();
+              completed(part);
+
+              val channel = new ProgressDataChannel(buffered, progress);
+              if (part.isCompleted()) {
+                if (checksum && isCorrupted(channel, part, file)) {
+                  log.info("Checksum failed; Reuploading part: {}", part);
+                  progress.startTransfer();
+                  proxy.uploadPart(channel, part, objectId, uploadId, file);
+                }
+                progress.incrementChecksumParts();
+              } else {
+                progress.startTransfer();
+                proxy.uploadPart(channel, part, objectId, uploadId, file);
+                progress.incrementParts(1);
+              }
+            } finally {
+              buffered.release();
+            }
+
+            return part;
+          }
+        }));
+      }
+
+      executor.shutdown();
+      executor.awaitTermination(maxUploadDuration, TimeUnit.DAYS);
+    } finally {
+      close(executor, pool);
+    }
+
+    progress.stop();
+    try {
+      takeCareOfException(results.build());
+      finalizeUpload(file);
+    } catch (Throwable e) {
+      end(true);
+      throw e;
+    }
+    end(false);
+  }
+
+  @Override
+  @SneakyThrows
+  public void receive(File outputDir) {
+    val file = Downloads.getDownloadFile(outputDir, objectId);
+    val fileSize = Downloads.calculateTotalSize(parts);
+    log.debug("Downloading object to file: {}, size:{}", file.getPath(), fileSize);
+
+    if (!Ordering.natural().isOrdered(parts)) {
+      Collections.sort(parts);
+    }
+
+    // Ranged downloads start somewhere inside the object but at the beginning of the file
+    val startOffset = parts.isEmpty() ? 0L : parts.get(0).getOffset();
+
+    val pool = createPool();
+    val executor = Executors.newFixedThreadPool(nThreads, new ThreadFactoryBuilder()
+        .setNameFormat("downloader-%s").build());
+    ImmutableList.Builder<Future<Part>> results = ImmutableList.builder();
+
+    progress.start();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      // Keep the existing file as is when resuming
+      if (raf.length() != fileSize) {
+        log.debug("Allocating {} bytes for file '{}'", fileSize, file);
+        raf.setLength(fileSize);
+      }
+
+      val target = raf.getChannel();
+
+      // Completed parts are verified concurrently instead of holding download workers and buffers
+      val verifier = createVerifier(target, startOffset, outputDir);
+      try {
+        val missing = new ArrayList<Part>();
+        for (val part : parts) {
+          if (!part.isCompleted()) {
+            missing.add(part);
+          } else if (checksum) {
+            verifier.submit(part);
+          } else {
+            progress.incrementChecksumParts();
+            completed(part);
+          }
+        }
+
+        for (val part : missing) {
+          results.add(submitPart(executor, pool, target, outputDir, part, startOffset, false));
+        }
+
+        for (Part corrupted = verifier.take(); corrupted != null; corrupted = verifier.take()) {
+          results.add(submitPart(executor, pool, target, outputDir, corrupted, startOffset, true));
+        }
+      } finally {
+        verifier.shutdownNow();
+      }
+
+      executor.shutdown();
+      executor.awaitTermination(maxUploadDuration, TimeUnit.DAYS);
+    } finally {
+      close(executor, pool);
+    }
+
+    progress.stop();
+    try {
+      takeCareOfException(results.build());
+      proxy.finalizeDownload(outputDir, objectId);
+    } catch (Throwable e) {
+      end(true);
+      throw e;
+    }
+    end(false);
+  }
+
+  /**
+   * Schedules the download of {@code part} into a pooled buffer that is then written to its range of {@code target}.
+   * 
+   * @param corrupted whether the part was completed before but failed verification
+   */
+  private Future<Part> submitPart(ExecutorService executor, BufferPool pool, FileChannel target, File outputDir,
+      Part part, long startOffset, boolean corrupted) {
+    return executor.submit(new Callable<Part>() {
+
+      @Override
+      public Part call() throws Exception {
+        val buffered = PooledBufferDataChannel.acquire(pool, target, part.getOffset() - startOffset, part.getOffset(),
+            part.getPartSize());
+        try {
+          progress.startTransfer();
+          proxy.streamPart(new ProgressDataChannel(buffered, progress), part);
+
+          // Only journal the part once its bytes have left the buffer
+          buffered.commitToDisk();
+          proxy.commitPart(outputDir, objectId, part);
+        } finally {
+          buffered.release();
+        }
+
+        if (corrupted) {
+          progress.incrementChecksumParts();
+        } else {
+          progress.incrementParts(1);
+        }
+
+        completed(part);
+        return part;
+      }
+    });
+  }
+
+  /**
+   * Stops the workers, e.g. when submitting parts failed, and waits for them to hand their buffers back before the pool
+   * frees them. Otherwise a worker could allocate a buffer after the pool is closed that is never freed.
+   */
+  private void close(ExecutorService executor, BufferPool pool) throws InterruptedException {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(maxUploadDuration, TimeUnit.DAYS);
+    } finally {
+      pool.close();
+    }
+  }
+
+  /**
+   * One buffer per worker, as far as the memory budget allows, each holding the largest part. Buffers are charged to
+   * the budget shared with the transports of other objects.
+   */
+  private BufferPool createPool() {
+    val bufferSize = getMaxPartSize(parts);
+    val count = (int) Math.max(1, Math.min(nThreads, memoryBudget.getCapacity() / bufferSize));
+    log.debug("Buffer pool of {} x {} bytes", count, bufferSize);
+
+    return new BufferPool(bufferSize, count, memoryBudget);
+  }
+
+  private static long getMaxPartSize(List<Part> parts) {
+    long size = 1;
+    for (val part : parts) {
+      size = Math.max(size, part.getPartSize());
+    }
+
+    return size;
+  }
+
+  public static PooledBufferParallelBuilder builder() {
+    return new PooledBufferParallelBuilder();
+  }
+
+  public static class PooledBufferParallelBuilder extends RemoteParallelBuilder {
+
+    @Override
+    public Transport build() {
+      checkArgumentsNotNull();
+      return new PooledBufferParallelPartObjectTransport(this);
+    }
+
+  }
+
+}
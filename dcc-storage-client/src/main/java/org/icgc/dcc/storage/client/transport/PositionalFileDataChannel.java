@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import org.icgc.dcc.storage.core.model.DataChannel;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+
+import lombok.Getter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Channel that reads and writes a single part in place within a shared, preallocated {@link FileChannel}.
+ * <p>
+ * Only positional reads and writes are used so that many parts can share one channel concurrently.
+ */
+@Slf4j
+public class PositionalFileDataChannel extends AbstractDataChannel
+    implements HedgeableDataChannel, ResumableDataChannel {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  @Getter
+  private final long position;
+  @Getter
+  private final long length;
+  @Getter
+  private String md5;
+  @Getter
+  private long written;
+
+  public PositionalFileDataChannel(FileChannel channel, long position, long length, String md5) {
+    this.channel = channel;
+    this.position = position;
+    this.length = length;
+    this.md5 = md5;
+  }
+
+  /**
+   * A retry simply overwrites the same range of the file.
+   */
+  @Override
+  public void reset() throws IOException {
+    written = 0;
+  }
+
+  @Override
+  public void writeTo(OutputStream os) throws IOException {
+    val hos = new HashingOutputStream(Hashing.md5(), os);
+    val target = Channels.newChannel(hos);
+
+    long transferred = 0;
+    while (transferred < length) {
+      val count = channel.transferTo(position + transferred, length - transferred, target);
+      if (count <= 0) {
+        log.warn("Reached end of file after {} of {} bytes at position {}", transferred, length, position);
+        break;
+      }
+
+      transferred += count;
+    }
+
+    hos.flush();
+    md5 = hos.hash().toString();
+  }
+
+  /**
+   * Continues after the bytes written by a previous, interrupted call.
+   */
+  @Override
+  public void readFrom(InputStream is) throws IOException {
+    val source = Channels.newChannel(is);
+    val buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    // Unlike transferFrom, this knows how much was written when the stream fails
+    while (written < length) {
+      buffer.clear();
+      buffer.limit((int) Math.min(BUFFER_SIZE, length - written));
+      if (source.read(buffer) < 0) {
+        // Interrupted stream; the part checksum will fail and trigger a retry
+        log.warn("Reached end of stream after {} of {} bytes at position {}", written, length, position);
+        break;
+      }
+
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        written += channel.write(buffer, position + written);
+      }
+    }
+  }
+
+  @Override
+  public DataChannel duplicate() {
+    return new PositionalFileDataChannel(channel, position, length, null);
+  }
+
+  @Override
+  public void commitToDisk() {
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.client.download.Downloads;
+import org.icgc.dcc.storage.client.progress.ProgressDataChannel;
+import org.icgc.dcc.storage.core.model.DataChannel;
+import org.icgc.dcc.storage.core.model.Part;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A data transport that downloads every part directly into its range of a preallocated object file using positional
+ * writes.
+ * <p>
+ * Unlike {@link ParallelPartObjectTransport} there are no intermediate part files to merge, so each byte is written
+ * once and only the size of the object is required on disk. Uploads are handled by the parent transport.
+ */
+@Slf4j
+public class PositionalParallelPartObjectTransport extends ParallelPartObjectTransport {
+
+  private PositionalParallelPartObjectTransport(RemoteParallelBuilder builder) {
+    super(builder);
+    log.debug("Transport Settings: {}", builder.toString());
+  }
+
+  @Override
+  @SneakyThrows
+  public void receive(File outputDir) {
+    val file = Downloads.getDownloadFile(outputDir, objectId);
+    val fileSize = Downloads.calculateTotalSize(parts);
+    log.debug("Downloading object to file: {}, size:{}", file.getPath(), fileSize);
+
+    if (!Ordering.natural().isOrdered(parts)) {
+      Collections.sort(parts);
+    }
+
+    // Ranged downloads start somewhere inside the object but at the beginning of the file
+    val startOffset = parts.isEmpty() ? 0L : parts.get(0).getOffset();
+
+    val executor = Executors.newFixedThreadPool(nThreads, new ThreadFactoryBuilder()
+        .setNameFormat("downloader-%s").build());
+    ImmutableList.Builder<Future<Part>> results = ImmutableList.builder();
+
+    progress.start();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      // Keep the existing file as is when resuming
+      if (raf.length() != fileSize) {
+        log.debug("Allocating {} bytes for file '{}'", fileSize, file);
+        raf.setLength(fileSize);
+      }
+
+      val target = raf.getChannel();
+
+      // Completed parts are verified concurrently instead of holding download workers
+      val verifier = createVerifier(target, startOffset, outputDir);
+      try {
+        val missing = new ArrayList<Part>();
+        for (val part : parts) {
+          if (!part.isCompleted()) {
+            missing.add(part);
+          } else if (checksum) {
+            verifier.submit(part);
+          } else {
+            progress.incrementChecksumParts();
+            completed(part);
+          }
+        }
+
+        for (val part : missing) {
+          results.add(submitPart(executor, target, outputDir, part, startOffset, false));
+        }
+
+        for (Part corrupted = verifier.take(); corrupted != null; corrupted = verifier.take()) {
+          results.add(submitPart(executor, target, outputDir, corrupted, startOffset, true));
+        }
+      } finally {
+        verifier.shutdownNow();
+      }
+
+      executor.shutdown();
+      executor.awaitTermination(maxUploadDuration, TimeUnit.DAYS);
+    }
+
+    progress.stop();
+    try {
+      takeCareOfException(results.build());
+      proxy.finalizeDownload(outputDir, objectId);
+    } catch (Throwable e) {
+      end(true);
+      throw e;
+    }
+    end(false);
+  }
+
+  /**
+   * Schedules the download of {@code part} into its range of {@code target}.
+   * 
+   * @param corrupted whether the part was completed before but failed verification
+   */
+  private Future<Part> submitPart(ExecutorService executor, FileChannel target, File outputDir, Part part,
+      long startOffset, boolean corrupted) {
+    return executor.submit(new Callable<Part>() {
+
+      @Override
+      public Part call() throws Exception {
+        DataChannel channel =
+            new ProgressDataChannel(
+                new PositionalFileDataChannel(target, part.getOffset() - startOffset, part.getPartSize(), null),
+                progress);
+
+        progress.startTransfer();
+        proxy.downloadPart(channel, part, objectId, outputDir);
+        if (corrupted) {
+          progress.incrementChecksumParts();
+        } else {
+          progress.incrementParts(1);
+        }
+
+        completed(part);
+        return part;
+      }
+    });
+  }
+
+  public static PositionalParallelBuilder builder() {
+    return new PositionalParallelBuilder();
+  }
+
+  public static class PositionalParallelBuilder extends RemoteParallelBuilder {
+
+    @Override
+    public Transport build() {
+      checkArgumentsNotNull();
+      return new PositionalParallelPartObjectTransport(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.Getter;
+
+/**
+ * Fixed-size circular buffer connecting one writing thread to one reading thread.
+ * <p>
+ * Unlike a {@link java.io.PipedInputStream} sized for the whole content, the writer only gets ahead of the reader by
+ * the capacity of the ring, so memory stays constant however much is streamed through it. Closing the output ends the
+ * stream for the reader, {@link #fail(Throwable)} ends it with an error, and closing the input makes further writes
+ * fail so that the writer stops.
+ */
+public class RingBuffer {
+
+  /**
+   * State.
+   */
+  private final byte[] ring;
+  private final Lock lock = new ReentrantLock();
+  private final Condition readable = lock.newCondition();
+  private final Condition writable = lock.newCondition();
+  private long read;
+  private long written;
+  private boolean writeClosed;
+  private boolean readClosed;
+  private Throwable failure;
+
+  @Getter
+  private final InputStream inputStream = new RingInputStream();
+  @Getter
+  private final OutputStream outputStream = new RingOutputStream();
+
+  public RingBuffer(int capacity) {
+    checkArgument(capacity > 0, "Invalid ring capacity %s", capacity);
+    this.ring = new byte[capacity];
+  }
+
+  /**
+   * Ends the stream for the reader with {@code failure} once it has read what was written before.
+   */
+  public void fail(Throwable failure) {
+    lock.lock();
+    try {
+      this.failure = failure;
+      this.writeClosed = true;
+      readable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+
+    lock.lock();
+    try {
+      while (written == read) {
+        if (readClosed) {
+          throw new IOException("Ring buffer is closed");
+        }
+        if (writeClosed) {
+          if (failure != null) {
+            throw new IOException("Writer of the ring buffer failed", failure);
+          }
+
+          return -1;
+        }
+
+        await(readable);
+      }
+
+      int n = (int) Math.min(len, written - read);
+      copy(b, off, n, false);
+      read += n;
+      writable.signalAll();
+
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void write(byte[] b, int off, int len) throws IOException {
+    lock.lock();
+    try {
+      while (len > 0) {
+        if (writeClosed) {
+          throw new IOException("Ring buffer output is closed");
+        }
+        if (readClosed) {
+          throw new IOException("Reader of the ring buffer is gone");
+        }
+        if (written - read == ring.length) {
+          await(writable);
+          continue;
+        }
+
+        int n = (int) Math.min(len, ring.length - (written - read));
+        copy(b, off, n, true);
+        written += n;
+        off += n;
+        len -= n;
+        readable.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Copies {@code n} bytes between {@code b} and the ring at the current write or read position, wrapping around the
+   * end of the ring.
+   */
+  private void copy(byte[] b, int off, int n, boolean in) {
+    int index = (int) ((in ? written : read) % ring.length);
+    int first = Math.min(n, ring.length - index);
+    if (in) {
+      System.arraycopy(b, off, ring, index, first);
+      System.arraycopy(b, off + first, ring, 0, n - first);
+    } else {
+      System.arraycopy(ring, index, b, off, first);
+      System.arraycopy(ring, 0, b, off + first, n - first);
+    }
+  }
+
+  private void closeRead() {
+    lock.lock();
+    try {
+      readClosed = true;
+      writable.signalAll();
+      readable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void closeWrite() {
+    lock.lock();
+    try {
+      writeClosed = true;
+      readable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static void await(Condition condition) throws InterruptedIOException {
+    try {
+      condition.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting on the ring buffer");
+    }
+  }
+
+  private class RingInputStream extends InputStream {
+
+    private final byte[] single = new byte[1];
+
+    @Override
+    public int read() throws IOException {
+      return RingBuffer.this.read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return RingBuffer.this.read(b, off, len);
+    }
+
+    @Override
+    public void close() {
+      closeRead();
+    }
+
+  }
+
+  private class RingOutputStream extends OutputStream {
+
+    private final byte[] single = new byte[1];
+
+    @Override
+    public void write(int b) throws IOException {
+      single[0] = (byte) b;
+      RingBuffer.this.write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      RingBuffer.this.write(b, off, len);
+    }
+
+    @Override
+    public void close() {
+      closeWrite();
+    }
+
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import lombok.Getter;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Upload channel that streams a part of a file through a {@link RingBuffer}: a reader thread fills the ring from disk
+ * while the sending thread drains it to the network.
+ * <p>
+ * Every {@link #writeTo(OutputStream)} reads the part again, so a failed upload can simply be retried.
+ */
+@Slf4j
+public class RingBufferDataChannel extends AbstractDataChannel {
+
+  /**
+   * Configuration.
+   */
+  private final File file;
+  @Getter
+  private final long offset;
+  @Getter
+  private final long length;
+  private final int ringSize;
+
+  /**
+   * Dependencies.
+   */
+  private final ExecutorService readers;
+
+  /**
+   * State.
+   */
+  @Getter
+  private String md5;
+
+  public RingBufferDataChannel(File file, long offset, long length, int ringSize, ExecutorService readers) {
+    this.file = file;
+    this.offset = offset;
+    this.length = length;
+    this.ringSize = ringSize;
+    this.readers = readers;
+  }
+
+  @Override
+  public void reset() throws IOException {
+  }
+
+  @Override
+  public void writeTo(OutputStream os) throws IOException {
+    val ring = new RingBuffer((int) Math.max(1, Math.min(ringSize, length)));
+    val reader = readers.submit(() -> {
+      try (OutputStream ros = ring.getOutputStream()) {
+        Files.asByteSource(file).slice(offset, length).copyTo(ros);
+      } catch (Throwable e) {
+        ring.fail(e);
+      }
+    });
+
+    try (InputStream ris = ring.getInputStream()) {
+      val hos = new HashingOutputStream(Hashing.md5(), os);
+      val count = ByteStreams.copy(ris, hos);
+      if (count < length) {
+        throw new IOException(String.format("Read %s of %s bytes at offset %s of %s", count, length, offset, file));
+      }
+
+      hos.flush();
+      md5 = hos.hash().toString();
+    } finally {
+      // Closing the ring stops a reader that is still filling it, wait for it before the part is read again
+      try {
+        Uninterruptibles.getUninterruptibly(reader);
+      } catch (Exception e) {
+        log.debug("Reader of part at offset {} failed: {}", offset, e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void commitToDisk() {
+  }
+
+}
@@ -28,6 +28,7 @@ import org.icgc.dcc.storage.core.model.DataChannel;
 import org.icgc.dcc.storage.core.model.Part;
 
 import lombok.SneakyThrows;
+import lombok.val;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -41,6 +42,7 @@ public class SequentialPartObjectTransport implements Transport {
   final private List<Part> parts;
   final private String objectId;
   final private String uploadId;
+  final private ObjectDigester digester;
 
   private SequentialPartObjectTransport(SequentialBuilder builder) {
     this.proxy = builder.proxy;
@@ -48,11 +50,24 @@ public class SequentialPartObjectTransport implements Transport {
     this.parts = builder.parts;
     this.objectId = builder.objectId;
     this.uploadId = builder.uploadId;
+    this.digester = builder.digester;
   }
 
   @Override
   @SneakyThrows
   public void send(File file) {
+    try {
+      sendParts(file);
+    } catch (Throwable e) {
+      if (digester != null) {
+        digester.close();
+      }
+
+      throw e;
+    }
+  }
+
+  private void sendParts(File file) throws Exception {
     progress.start();
     for (Part part : parts) {
       log.debug("processing part: {}", part);
@@ -63,6 +78,7 @@ public class SequentialPartObjectTransport implements Transport {
       if (part.getMd5() != null) {
         if (channel.verifyMd5(part.getMd5())) {
           progress.incrementChecksumParts();
+          completed(part);
           continue;
         }
         proxy.deleteUploadPart(objectId, uploadId, part);
@@ -72,7 +88,7 @@ public class SequentialPartObjectTransport implements Transport {
 
       progress.startTransfer();
       // progress.incrementByteRead(part.getPartSize());
-      proxy.uploadPart(channel, part, objectId, uploadId);
+      proxy.uploadPart(channel, part, objectId, uploadId, file);
       // progress.incrementByteWritten(part.getPartSize());
 
       if (resend) {
@@ -80,11 +96,20 @@ public class SequentialPartObjectTransport implements Transport {
       } else {
         progress.incrementParts(1);
       }
+      completed(part);
     }
-    proxy.finalizeUpload(objectId, uploadId);
+
+    val md5 = digester == null ? null : digester.getFileMd5();
+    proxy.finalizeUpload(objectId, uploadId, md5);
     progress.end(false);
   }
 
+  private void completed(Part part) {
+    if (digester != null) {
+      digester.complete(part);
+    }
+  }
+
   @Override
   public void receive(File file) {
     throw new AssertionError("Please implement it");
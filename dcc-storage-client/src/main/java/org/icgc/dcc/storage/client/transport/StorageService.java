@@ -24,16 +24,22 @@ import static org.springframework.http.HttpMethod.POST;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 
+import org.apache.http.conn.EofSensorInputStream;
+import org.icgc.dcc.storage.client.config.TransportProperties;
 import org.icgc.dcc.storage.client.download.DownloadStateStore;
 import org.icgc.dcc.storage.client.exception.NotResumableException;
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
 import org.icgc.dcc.storage.client.exception.RetryableException;
+import org.icgc.dcc.storage.client.progress.ProgressDataChannel;
+import org.icgc.dcc.storage.client.transport.Transport.Mode;
+import org.icgc.dcc.storage.client.upload.UploadStateStore;
 import org.icgc.dcc.storage.core.model.DataChannel;
 import org.icgc.dcc.storage.core.model.ObjectInfo;
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
@@ -72,6 +78,12 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class StorageService {
 
+  /**
+   * Constants.
+   */
+  private static final String PART_HINTS_QUERY =
+      "&partSize={part-size}&maxPartSize={max-part-size}&parallelism={parallelism}&bandwidth={bandwidth}";
+
   /**
    * Configuration.
    */
@@ -95,6 +107,18 @@ public class StorageService {
   @Autowired
   private RetryTemplate retry;
   @Autowired
+  private ConcurrencyController concurrency;
+  @Autowired
+  private TransportProperties transportProperties;
+  @Autowired
+  private PartHedger hedger;
+  @Autowired
+  @Qualifier("downloadShaper")
+  private BandwidthShaper downloadShaper;
+  @Autowired
+  @Qualifier("uploadShaper")
+  private BandwidthShaper uploadShaper;
+  @Autowired
   @Qualifier("clientVersion")
   private String clientVersion;
 
@@ -115,51 +139,194 @@ public class StorageService {
   }
 
   public void downloadPart(DataChannel channel, Part part, String objectId, File outputDir) throws IOException {
+    downloadPart(channel, part, () -> commitPart(outputDir, objectId, part));
+  }
+
+  /**
+   * Records a downloaded part in the download state store. Only to be called once the part's content is in the output
+   * file.
+   */
+  public void commitPart(File outputDir, String objectId, Part part) {
+    // TODO: try catch here for commit
+    downloadStateStore.commit(outputDir, objectId, part);
+    log.debug("committed {} part# {} to download state store", objectId, part.getPartNumber());
+  }
+
+  /**
+   * Downloads a part without recording it in the download state store, for transfers that cannot be resumed or that
+   * write the part to the output file themselves and then {@link #commitPart(File, String, Part)}.
+   */
+  public void streamPart(DataChannel channel, Part part) throws IOException {
+    downloadPart(channel, part, () -> {});
+  }
+
+  private void downloadPart(DataChannel channel, Part part, Runnable onCompleted) throws IOException {
+    // Survives failed attempts, so that a retry can continue after the bytes already written
+    val resumable = getResumable(channel);
+    val digest = resumable == null ? null : new PartDigest();
+
     retry.execute(new RetryCallback<Void, IOException>() {
 
       @Override
       public Void doWithRetry(RetryContext ctx) throws IOException {
         log.debug("Download Part URL: {}", part.getUrl());
 
+        boolean corrupted = false;
+        concurrency.acquire();
         try {
-          // the actual GET operation
-          log.debug("performing GET {}", part.getUrl());
-          String md5 = dataTemplate.execute(new URI(part.getUrl()), HttpMethod.GET,
-
-              request -> request.getHeaders().set(HttpHeaders.RANGE, Parts.getHttpRangeValue(part)),
-
-              response -> {
-                try (HashingInputStream his = new HashingInputStream(Hashing.md5(), response.getBody())) {
-                  channel.readFrom(his);
-                  return his.hash().toString();
-                }
-              });
+          String md5 = hedger.fetch(channel, getDuplicate(channel), part,
+              (target, attempt) -> fetchPart(target, part, attempt, target == channel ? digest : null));
 
           part.setMd5(md5);
-          checkState(!part.hasFailedChecksum(), "Checksum failed for Part# %s: %s", part.getPartNumber(),
-              part.getMd5());
+          corrupted = part.hasFailedChecksum();
+          if (digest != null && corrupted) {
+            // Can't tell which bytes are bad, start over
+            digest.reset();
+          }
 
-          // TODO: try catch here for commit
-          downloadStateStore.commit(outputDir, objectId, part);
-          log.debug("committed {} part# {} to download state store", objectId, part.getPartNumber());
+          checkState(!corrupted, "Checksum failed for Part# %s: %s", part.getPartNumber(), part.getMd5());
+
+          onCompleted.run();
         } catch (NotResumableException | NotRetryableException e) {
+          concurrency.release();
           log.error("Cannot proceed. Failed to receive part for part# {} : {}", part.getPartNumber(), e.getMessage());
           throw e;
         } catch (Throwable e) {
+          release(corrupted);
           log.warn("Failed to receive part for part number: {}. Retrying. {}", part.getPartNumber(), e.getMessage());
-          channel.reset();
+          if (isResumable(resumable, digest)) {
+            log.info("Resuming part# {} after {} of {} bytes", part.getPartNumber(), digest.getLength(),
+                part.getPartSize());
+          } else {
+            channel.reset();
+            if (digest != null) {
+              digest.reset();
+            }
+          }
+
           throw new RetryableException(e);
         }
+
+        concurrency.completed(part.getPartSize());
         return null;
       }
     });
 
   }
 
+  /**
+   * Fetches a part into {@code channel}. With a {@code digest}, only the bytes following those already in the digest
+   * are requested and the digest is continued.
+   */
+  private String fetchPart(DataChannel channel, Part part, PartHedger.Attempt attempt, PartDigest digest)
+      throws IOException, URISyntaxException {
+    val start = digest == null ? 0L : digest.getLength();
+    if (digest != null && start >= part.getPartSize()) {
+      // Everything arrived, the previous attempt failed afterwards
+      return digest.hash();
+    }
+
+    // the actual GET operation
+    log.debug("performing GET {} from byte {}", part.getUrl(), start);
+    return dataTemplate.execute(new URI(part.getUrl()), HttpMethod.GET,
+
+        request -> request.getHeaders().set(HttpHeaders.RANGE, Parts.getHttpRangeValue(part, start)),
+
+        response -> {
+          val body = response.getBody();
+          val shaped = downloadShaper.wrap(body);
+
+          // Closing the body would drain the rest of the part, aborting drops the connection instead
+          attempt.started(body instanceof EofSensorInputStream ? ((EofSensorInputStream) body)::abortConnection : body);
+          if (digest == null) {
+            try (HashingInputStream his = new HashingInputStream(Hashing.md5(), shaped)) {
+              channel.readFrom(his);
+              return his.hash().toString();
+            }
+          }
+
+          try (InputStream dis = digest.wrap(shaped)) {
+            channel.readFrom(dis);
+          }
+
+          // Without a source MD5 a short read would otherwise go unnoticed
+          if (digest.getLength() < part.getPartSize()) {
+            throw new IOException(
+                String.format("Stream ended after %s of %s bytes", digest.getLength(), part.getPartSize()));
+          }
+
+          return digest.hash();
+        });
+  }
+
+  /**
+   * @return the channel that is written to if it can continue an interrupted download, otherwise {@code null}
+   */
+  private static ResumableDataChannel getResumable(DataChannel channel) {
+    val target = channel instanceof ProgressDataChannel ? ((ProgressDataChannel) channel).getDelegate() : channel;
+    return target instanceof ResumableDataChannel ? (ResumableDataChannel) target : null;
+  }
+
+  /**
+   * A failed attempt can be continued if everything the digest saw made it into the channel.
+   */
+  private static boolean isResumable(ResumableDataChannel channel, PartDigest digest) {
+    return digest != null && digest.getLength() > 0 && digest.getLength() == channel.getWritten();
+  }
+
+  /**
+   * @return a second channel to hedge the download of a part with, or {@code null} if the channel doesn't allow it
+   */
+  private DataChannel getDuplicate(DataChannel channel) {
+    if (!hedger.isEnabled()) {
+      return null;
+    }
+
+    // Bytes of the hedged request are not reported as progress, so they aren't counted twice
+    val target = channel instanceof ProgressDataChannel ? ((ProgressDataChannel) channel).getDelegate() : channel;
+    return target instanceof HedgeableDataChannel ? ((HedgeableDataChannel) target).duplicate() : null;
+  }
+
+  /**
+   * Releases the slot of a failed part transfer. Only failures of the transfer itself, such as throttling, timeouts or
+   * I/O errors, reduce the concurrency; a part that arrived corrupted says nothing about congestion.
+   */
+  private void release(boolean corrupted) {
+    if (corrupted) {
+      concurrency.release();
+    } else {
+      concurrency.congested();
+    }
+  }
+
+  /**
+   * @return the number of part transfers currently allowed to be in flight
+   */
+  public int getConcurrency() {
+    return concurrency.getLimit();
+  }
+
+  /**
+   * @return the shaper that paces transfers in the direction of {@code mode}
+   */
+  public BandwidthShaper getShaper(Mode mode) {
+    return mode == Mode.UPLOAD ? uploadShaper : downloadShaper;
+  }
+
   protected String cleanUpETag(String eTag) {
     return eTag.replaceAll("^\"|\"$", "");
   }
 
+  /**
+   * Uploads a part of {@code file} and records its fingerprint, so that resuming the upload of an unchanged file does
+   * not need to read the part again.
+   */
+  public void uploadPart(DataChannel channel, Part part, String objectId, String uploadId, File file)
+      throws IOException {
+    uploadPart(channel, part, objectId, uploadId);
+    UploadStateStore.commitPart(file, objectId, part, channel.getMd5());
+  }
+
   public void uploadPart(DataChannel channel, Part part, String objectId, String uploadId) throws IOException {
     retry.execute(new RetryCallback<Void, IOException>() {
 
@@ -171,12 +338,14 @@ public class StorageService {
           HttpHeaders requestHeader = request.getHeaders();
           requestHeader.setContentLength(channel.getLength());
           try (OutputStream os = request.getBody()) {
-            channel.writeTo(os);
+            channel.writeTo(uploadShaper.wrap(os));
           }
         };
 
         final ResponseExtractor<HttpHeaders> headersExtractor = response -> response.getHeaders();
 
+        boolean corrupted = false;
+        concurrency.acquire();
         try {
           HttpHeaders headers =
               dataTemplate.execute(new URI(part.getUrl()), HttpMethod.PUT, callback, headersExtractor);
@@ -187,16 +356,21 @@ public class StorageService {
           } catch (NotRetryableException e) {
             log.warn("Checksum failed for part #{}, MD5={}, ETAG={} : {}", part, channel.getMd5(), headers.getETag(),
                 e);
+            corrupted = true;
             throw new RetryableException(e);
           }
         } catch (NotResumableException | NotRetryableException e) {
+          concurrency.release();
           log.error("Could not proceed. Failed to send part for part number: {}", part.getPartNumber(), e);
           throw e;
         } catch (Throwable e) {
+          release(corrupted);
           log.warn("Failed to send part for part #{} : {}", part.getPartNumber(), e);
           channel.reset();
           throw new RetryableException(e);
         }
+
+        concurrency.completed(part.getPartSize());
         return null;
       }
 
@@ -214,26 +388,59 @@ public class StorageService {
       throws IOException {
     log.debug("Initiating upload, object-id: {} overwrite: {}", objectId, overwrite);
     return retry.execute(ctx -> serviceTemplate.exchange(
-        endpoint + "/upload/{object-id}/uploads?fileSize={file-size}&overwrite={overwrite}&md5={checksum}",
+        endpoint + "/upload/{object-id}/uploads?fileSize={file-size}&overwrite={overwrite}&md5={checksum}"
+            + PART_HINTS_QUERY,
         POST,
         defaultEntity(),
-        ObjectSpecification.class, objectId, length, overwrite, md5).getBody());
+        ObjectSpecification.class, objectId, length, overwrite, md5,
+        getPartSizeHint(), getMaxPartSizeHint(), getParallelismHint(), getBandwidthHint()).getBody());
+  }
+
+  private long getPartSizeHint() {
+    return transportProperties.getPartSize() * 1024 * 1024;
+  }
+
+  /**
+   * Parts larger than this would leave connections waiting for memory.
+   */
+  private long getMaxPartSizeHint() {
+    return transportProperties.getMemory() * 1024 * 1024 * 1024 / getParallelismHint();
+  }
+
+  private int getParallelismHint() {
+    return transportProperties.getWorkerThreads();
+  }
+
+  private long getBandwidthHint() {
+    return transportProperties.getBandwidth() * 1024 * 1024;
   }
 
   public void finalizeDownload(File outDir, String objectId) throws IOException {
     log.debug("finalizing download, object-id: {}", objectId);
     if (downloadStateStore.canFinalize(outDir, objectId)) {
-      DownloadStateStore.close(outDir, objectId);
+      downloadStateStore.finish(outDir, objectId);
     } else {
       throw new NotRetryableException(new IOException("Fail download finalization"));
     }
   }
 
   public void finalizeUpload(String objectId, String uploadId) throws IOException {
-    log.debug("finalizing upload, object-id: {}, upload-id: {}", objectId, uploadId);
+    finalizeUpload(objectId, uploadId, null);
+  }
+
+  /**
+   * Completes an upload, passing along the MD5 of the whole object if it was computed while the parts were sent.
+   */
+  public void finalizeUpload(String objectId, String uploadId, String md5) throws IOException {
+    log.debug("finalizing upload, object-id: {}, upload-id: {}, md5: {}", objectId, uploadId, md5);
     retry.execute(ctx -> {
-      serviceTemplate.exchange(endpoint + "/upload/{object-id}?uploadId={upload-id}", HttpMethod.POST, defaultEntity(),
-          Void.class, objectId, uploadId);
+      if (md5 == null) {
+        serviceTemplate.exchange(endpoint + "/upload/{object-id}?uploadId={upload-id}", HttpMethod.POST,
+            defaultEntity(), Void.class, objectId, uploadId);
+      } else {
+        serviceTemplate.exchange(endpoint + "/upload/{object-id}?uploadId={upload-id}&md5={md5}", HttpMethod.POST,
+            defaultEntity(), Void.class, objectId, uploadId, md5);
+      }
       return null;
     });
     log.debug("finalizing upload returned");
@@ -275,13 +482,28 @@ public class StorageService {
   public ObjectSpecification getDownloadSpecification(String objectId, long offset, long length) throws IOException {
     log.debug("Endpoint: {}", endpoint);
     return retry.execute(ctx -> {
-      return serviceTemplate.exchange(endpoint + "/download/{object-id}?offset={offset}&length={length}",
+      return serviceTemplate.exchange(
+          endpoint + "/download/{object-id}?offset={offset}&length={length}" + PART_HINTS_QUERY,
           GET,
           defaultEntity(),
-          ObjectSpecification.class, objectId, offset, length).getBody();
+          ObjectSpecification.class, objectId, offset, length,
+          getPartSizeHint(), getMaxPartSizeHint(), getParallelismHint(), getBandwidthHint()).getBody();
     });
   }
 
+  /**
+   * Asks for fresh pre-signed URLs of the given parts, provided the object still has the MD5 it had when the download
+   * started.
+   */
+  public List<Part> getPartUrls(String objectId, String objectMd5, List<Part> parts) throws IOException {
+    log.debug("Refreshing URLs of {} parts of {}", parts.size(), objectId);
+    return retry.execute(ctx -> serviceTemplate.exchange(
+        endpoint + "/download/{object-id}/parts?objectMd5={object-md5}",
+        POST,
+        new HttpEntity<Object>(parts, defaultHeaders()),
+        new ParameterizedTypeReference<List<Part>>() {}, objectId, objectMd5).getBody());
+  }
+
   /**
    * Returns ObjectSpecification containing only a single part in order to generate a single pre-signed URL that
    * external clients can use (i.e., curl - something that doesn't understand our parts). The external query parameter
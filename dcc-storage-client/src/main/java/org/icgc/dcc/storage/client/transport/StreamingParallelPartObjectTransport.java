@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.client.exception.NotRetryableException;
+import org.icgc.dcc.storage.client.progress.ProgressDataChannel;
+import org.icgc.dcc.storage.core.model.Part;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A data transport that downloads parts in parallel but emits the object as an ordered stream, e.g. to stdout or a
+ * named pipe.
+ * <p>
+ * Completed parts are held in memory by an {@link OrderedPartWriter} until all preceding parts have been written. The
+ * reorder window is bounded by the memory setting of the transport. Nothing is written to disk, so streamed downloads
+ * cannot be resumed.
+ */
+@Slf4j
+public class StreamingParallelPartObjectTransport extends ParallelPartObjectTransport {
+
+  /**
+   * Constants.
+   */
+  private static final long MAX_PART_SIZE = Integer.MAX_VALUE - 8;
+
+  private StreamingParallelPartObjectTransport(RemoteParallelBuilder builder) {
+    super(builder);
+    log.debug("Transport Settings: {}", builder.toString());
+  }
+
+  /**
+   * Streams the object into {@code target}, which may be a named pipe.
+   */
+  @Override
+  @SneakyThrows
+  public void receive(File target) {
+    try (OutputStream output = new BufferedOutputStream(new FileOutputStream(target))) {
+      receive(output);
+    }
+  }
+
+  @SneakyThrows
+  public void receive(OutputStream output) {
+    if (!Ordering.natural().isOrdered(parts)) {
+      Collections.sort(parts);
+    }
+
+    val window = getWindow();
+    for (val part : parts) {
+      checkPartSize(part, window);
+    }
+
+    val startOffset = parts.isEmpty() ? 0L : parts.get(0).getOffset();
+    val writer = new OrderedPartWriter(output, startOffset, window);
+
+    val executor = Executors.newFixedThreadPool(nThreads, new ThreadFactoryBuilder()
+        .setNameFormat("downloader-%s").build());
+    ImmutableList.Builder<Future<Part>> results = ImmutableList.builder();
+
+    progress.start();
+    for (final Part part : parts) {
+      // Parts are dispatched in offset order, so the head of the window is always being fetched by some worker
+      results.add(executor.submit(new Callable<Part>() {
+
+        @Override
+        public Part call() throws Exception {
+          try {
+            writer.awaitWindow(part.getOffset(), part.getPartSize());
+
+            val channel = new ByteBufferDataChannel(ByteBuffer.allocate((int) part.getPartSize()), part.getOffset(),
+                part.getPartSize(), null);
+            progress.startTransfer();
+            proxy.streamPart(new ProgressDataChannel(channel, progress), part);
+
+            writer.write(part.getOffset(), channel.getData());
+            progress.incrementParts(1);
+            return part;
+          } catch (Throwable t) {
+            log.error("Failed to stream part: {}", part, t);
+            writer.abort(t);
+            throw t;
+          }
+        }
+      }));
+    }
+
+    executor.shutdown();
+    executor.awaitTermination(maxUploadDuration, TimeUnit.DAYS);
+    output.flush();
+
+    progress.stop();
+    try {
+      takeCareOfException(results.build());
+    } catch (Throwable e) {
+      end(true);
+      throw e;
+    }
+    end(false);
+  }
+
+  /**
+   * Parts are buffered on the heap, so never use more than half of it regardless of the configured memory.
+   */
+  private long getWindow() {
+    return Math.min(memoryBudget.getCapacity(), Runtime.getRuntime().maxMemory() / 2);
+  }
+
+  /**
+   * Each part is buffered whole in a heap array, so it must fit into one and into the reorder window. Otherwise the
+   * head of the window, which is always admitted, would hold more memory than configured.
+   */
+  private static void checkPartSize(Part part, long window) {
+    if (part.getPartSize() > Math.min(window, MAX_PART_SIZE)) {
+      throw new NotRetryableException(new IOException(String.format(
+          "Part #%s of %s bytes does not fit into the streaming window of %s bytes. Increase the memory or reduce the "
+              + "part size",
+          part.getPartNumber(), part.getPartSize(), Math.min(window, MAX_PART_SIZE))));
+    }
+  }
+
+  public static StreamingParallelBuilder builder() {
+    return new StreamingParallelBuilder();
+  }
+
+  public static class StreamingParallelBuilder extends RemoteParallelBuilder {
+
+    @Override
+    public StreamingParallelPartObjectTransport build() {
+      checkArgumentsNotNull();
+      return new StreamingParallelPartObjectTransport(this);
+    }
+
+  }
+
+}
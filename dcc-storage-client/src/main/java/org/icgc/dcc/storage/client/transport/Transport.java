@@ -62,6 +62,13 @@ public interface Transport {
     Builder withTransportMode(Mode mode);
 
     Builder withChecksum(boolean checksum);
+
+    /**
+     * Optional digester notified as downloaded parts land in the output file, or once parts of an uploaded file have
+     * been read. The digester hashes them by reading the file again. Uploads that use a digester send the resulting MD5
+     * when they are finalized. Transports that don't support it ignore it.
+     */
+    Builder withDigester(ObjectDigester digester);
   }
 
   abstract class AbstractBuilder implements Builder {
@@ -73,6 +80,7 @@ public interface Transport {
     protected String uploadId;
     protected Mode mode;
     protected boolean checksum;
+    protected ObjectDigester digester;
 
     @Override
     public Builder withProgressBar(Progress progressBar) {
@@ -116,6 +124,12 @@ public interface Transport {
       return this;
     }
 
+    @Override
+    public Builder withDigester(ObjectDigester digester) {
+      this.digester = digester;
+      return this;
+    }
+
   }
 
 }
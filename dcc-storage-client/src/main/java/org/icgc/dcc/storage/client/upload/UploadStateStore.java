@@ -25,15 +25,24 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
 import org.icgc.dcc.storage.client.state.TransferState;
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.core.model.Part;
 
 /**
  * This really shouldn't have 'Store' in the class name - it has no state, so it's not storing anything. It's a
@@ -44,7 +53,7 @@ public class UploadStateStore extends TransferState {
 
   /*
    * /path/to/ upload file dir /path/to/file.bam upload file /path/to/.<object-id>/ upload state dir
-   * /path/to/.<object-id>/uploadid upload state file
+   * /path/to/.<object-id>/uploadid upload state file /path/to/.<object-id>/parts part fingerprints
    */
 
   /*
@@ -109,4 +118,91 @@ public class UploadStateStore extends TransferState {
     }
     return result;
   }
+
+  protected static String getFingerprintName() {
+    return "parts";
+  }
+
+  /**
+   * Records a fingerprint of an uploaded part: its position, its MD5 and the size, modification time and inode of the
+   * file it was read from. Losing a fingerprint only means the part is verified again on resume, so failures are not
+   * fatal.
+   * @param uploadFile - File being uploaded
+   * @param objectId - object id
+   * @param part - part that was uploaded
+   * @param md5 - MD5 of the uploaded content
+   */
+  public static synchronized void commitPart(@NonNull File uploadFile, @NonNull String objectId, @NonNull Part part,
+      String md5) {
+    val uploadStateDir = getObjectStateDir(getContainingDir(uploadFile), objectId);
+    if (!uploadStateDir.exists()) {
+      // Nothing to resume against
+      return;
+    }
+
+    val fingerprintFile = new File(uploadStateDir, getFingerprintName());
+    try (PrintWriter out = new PrintWriter(
+        new OutputStreamWriter(new FileOutputStream(fingerprintFile, true), StandardCharsets.UTF_8))) {
+      out.println(String.join("\t", String.valueOf(part.getPartNumber()), String.valueOf(part.getOffset()),
+          String.valueOf(part.getPartSize()), String.valueOf(md5), identify(uploadFile)));
+    } catch (IOException e) {
+      log.warn("Failed to record fingerprint of part #{}: {}", part.getPartNumber(), e.getMessage());
+    }
+  }
+
+  /**
+   * Finds the completed parts that were uploaded from the file as it is now, so they don't need to be read again.
+   * @param uploadFile - File being uploaded
+   * @param objectId - object id
+   * @param parts - parts reported by the server, completed ones carrying the MD5 that was uploaded
+   * @return part numbers of completed parts whose fingerprint still matches
+   */
+  public static Set<Integer> fetchUnchangedParts(@NonNull File uploadFile, @NonNull String objectId,
+      @NonNull List<Part> parts) {
+    val unchanged = new HashSet<Integer>();
+    val uploadStateDir = getObjectStateDir(getContainingDir(uploadFile), objectId);
+    val fingerprintFile = new File(uploadStateDir, getFingerprintName());
+    if (!fingerprintFile.exists()) {
+      return unchanged;
+    }
+
+    try {
+      val identity = identify(uploadFile);
+      val fingerprints = new HashMap<Integer, String[]>();
+      for (val line : Files.readAllLines(fingerprintFile.toPath(), StandardCharsets.UTF_8)) {
+        val fields = line.split("\t", 5);
+        if (fields.length == 5) {
+          // Later records supersede earlier ones
+          fingerprints.put(Integer.valueOf(fields[0]), fields);
+        }
+      }
+
+      for (val part : parts) {
+        val fields = fingerprints.get(part.getPartNumber());
+        if (part.isCompleted() && fields != null
+            && Long.parseLong(fields[1]) == part.getOffset()
+            && Long.parseLong(fields[2]) == part.getPartSize()
+            && fields[3].equalsIgnoreCase(part.getMd5())
+            && fields[4].equals(identity)) {
+          unchanged.add(part.getPartNumber());
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      log.warn("Ignoring unreadable part fingerprints {}: {}", fingerprintFile, e.getMessage());
+      unchanged.clear();
+    }
+
+    return unchanged;
+  }
+
+  /**
+   * Identifies the current content of {@code file} by its size, modification time and file key (device and inode where
+   * available).
+   */
+  private static String identify(File file) throws IOException {
+    val attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    return String.join("\t", String.valueOf(attributes.size()),
+        String.valueOf(attributes.lastModifiedTime().toMillis()), String.valueOf(attributes.fileKey()));
+  }
+
 }
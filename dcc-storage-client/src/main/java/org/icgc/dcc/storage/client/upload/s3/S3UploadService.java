@@ -23,6 +23,8 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.PostConstruct;
@@ -31,6 +33,7 @@ import org.icgc.dcc.storage.client.cli.Terminal;
 import org.icgc.dcc.storage.client.exception.NotResumableException;
 import org.icgc.dcc.storage.client.exception.NotRetryableException;
 import org.icgc.dcc.storage.client.progress.Progress;
+import org.icgc.dcc.storage.client.transport.ObjectDigester;
 import org.icgc.dcc.storage.client.transport.StorageService;
 import org.icgc.dcc.storage.client.transport.Transport;
 import org.icgc.dcc.storage.client.transport.Transport.Mode;
@@ -120,7 +123,8 @@ public class S3UploadService implements UploadService {
     }
 
     val progress = new Progress(terminal, quiet, spec.getParts().size(), 0);
-    uploadParts(spec.getParts(), file, objectId, spec.getUploadId(), progress);
+    val digester = createDigester(file, md5, spec.getParts());
+    uploadParts(spec.getParts(), file, objectId, spec.getUploadId(), progress, digester);
     cleanupState(file, objectId);
   }
 
@@ -132,7 +136,7 @@ public class S3UploadService implements UploadService {
   private void resumeIfPossible(File uploadFile, String objectId, String md5, boolean checksum) {
     try {
       val progress = checkProgress(uploadFile, objectId);
-      resume(uploadFile, progress, objectId, checksum);
+      resume(uploadFile, progress, objectId, md5, checksum);
     } catch (NotRetryableException e) {
       // org.icgc.dcc.storage.client.exception.ServiceRetryableResponseErrorHandler translates the 404 received from
       // server into a NotRetryableException
@@ -178,24 +182,42 @@ public class S3UploadService implements UploadService {
    * Resume an upload given the upload progress. Checksum is required only for the first attempt for each process
    * execution.
    */
-  private void resume(File file, UploadProgress uploadProgress, String objectId, boolean checksum) throws IOException {
+  private void resume(File file, UploadProgress uploadProgress, String objectId, String md5, boolean checksum)
+      throws IOException {
     log.info("Resume from the previous upload...");
 
     val parts = uploadProgress.getParts();
     int completedParts = numCompletedParts(parts);
     int totalParts = parts.size();
 
+    // Needs every part of the file, including those that won't be sent again
+    val digester = createDigester(file, md5, parts);
+    val allParts = new ArrayList<Part>(parts);
+
     // Remove completed parts if don't require checksum-ing
     if (!checksum) {
       parts.removeIf((Part part) -> part.isCompleted());
     }
 
-    if (!checksum) {
-      parts.removeIf((Part part) -> part.isCompleted());
+    // Parts uploaded from the file as it is now don't need to be read again
+    val unchanged =
+        checksum ? UploadStateStore.fetchUnchangedParts(file, objectId, parts) : Collections.<Integer> emptySet();
+    if (!unchanged.isEmpty()) {
+      log.info("Skipping verification of {} parts whose fingerprint is unchanged", unchanged.size());
+      parts.removeIf((Part part) -> unchanged.contains(part.getPartNumber()));
     }
 
     val progress = new Progress(terminal, quiet, totalParts, completedParts);
-    uploadParts(parts, file, uploadProgress.getObjectId(), uploadProgress.getUploadId(), progress);
+    for (int i = 0; i < unchanged.size(); i++) {
+      progress.incrementChecksumParts();
+    }
+
+    if (digester != null) {
+      allParts.removeAll(parts);
+      allParts.forEach(digester::complete);
+    }
+
+    uploadParts(parts, file, uploadProgress.getObjectId(), uploadProgress.getUploadId(), progress, digester);
     cleanupState(file, objectId);
   }
 
@@ -216,16 +238,44 @@ public class S3UploadService implements UploadService {
    * Start upload parts using a specific configured data transport
    */
   @SneakyThrows
-  private void uploadParts(List<Part> parts, File file, String objectId, String uploadId, Progress progressBar) {
-    val transport = transportBuilder
-        .withProxy(storageService)
-        .withProgressBar(progressBar)
-        .withParts(parts)
-        .withObjectId(objectId)
-        .withTransportMode(Mode.UPLOAD)
-        .withSessionId(uploadId).build();
-
-    transport.send(file);
+  private void uploadParts(List<Part> parts, File file, String objectId, String uploadId, Progress progressBar,
+      ObjectDigester digester) {
+    Transport transport;
+
+    // The builder is shared by uploads that are submitted to the daemon concurrently
+    synchronized (transportBuilder) {
+      transportBuilder.withProxy(storageService)
+          .withProgressBar(progressBar)
+          .withParts(parts)
+          .withObjectId(objectId)
+          .withTransportMode(Mode.UPLOAD)
+          .withDigester(digester)
+          .withSessionId(uploadId);
+      transport = transportBuilder.build();
+    }
+
+    try {
+      transport.send(file);
+    } catch (Throwable e) {
+      // Also when the transport failed before it could release the digester itself
+      if (digester != null) {
+        digester.close();
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * Creates a digester that computes the MD5 of the file if none was supplied. It reads the file again behind the parts
+   * that have been sent.
+   */
+  private ObjectDigester createDigester(File file, String md5, List<Part> parts) {
+    if (md5 != null) {
+      return null;
+    }
+
+    return new ObjectDigester(file, parts);
   }
 
   @Override
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.util;
+
+import static lombok.AccessLevel.PRIVATE;
+import static org.springframework.beans.factory.config.BeanDefinition.ROLE_INFRASTRUCTURE;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.google.common.collect.ImmutableSet;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+/**
+ * Defers the creation of application beans until something asks for them, so a command only pays for the beans it
+ * (transitively) depends on.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+public class LazyBeansInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+  /**
+   * Beans created eagerly nonetheless.
+   */
+  @NonNull
+  private final Set<Class<?>> eagerBeans;
+
+  public static LazyBeansInitializer lazyBeans(Class<?>... eagerBeans) {
+    return new LazyBeansInitializer(ImmutableSet.copyOf(eagerBeans));
+  }
+
+  @Override
+  public void initialize(ConfigurableApplicationContext applicationContext) {
+    applicationContext.addBeanFactoryPostProcessor(new BeanFactoryPostProcessor() {
+
+      @Override
+      public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        for (val beanName : beanFactory.getBeanDefinitionNames()) {
+          val definition = beanFactory.getBeanDefinition(beanName);
+          if (definition.getRole() != ROLE_INFRASTRUCTURE && !isEager(beanFactory, beanName)) {
+            definition.setLazyInit(true);
+          }
+        }
+      }
+
+    });
+  }
+
+  private boolean isEager(ConfigurableListableBeanFactory beanFactory, String beanName) {
+    // Null for beans of factory methods
+    val beanClassName = beanFactory.getBeanDefinition(beanName).getBeanClassName();
+
+    return eagerBeans.stream().anyMatch(eagerBean -> eagerBean.getName().equals(beanClassName));
+  }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.util;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static lombok.AccessLevel.PRIVATE;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.icgc.dcc.storage.client.cli.Terminal;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.google.common.base.Strings;
+
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+/**
+ * Records where the time to get a command running went: JVM start-up, context refresh, command wiring and the beans
+ * created along the way.
+ * <p>
+ * The report is registered with the context as the {@code startupReport} bean.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public class StartupReport implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+  /**
+   * Constants.
+   */
+  private static final int SLOWEST_BEANS = 10;
+
+  /**
+   * State.
+   */
+  private final long mainMillis = System.currentTimeMillis();
+  private final long mainNanos = System.nanoTime();
+  private volatile long contextNanos;
+  private volatile long readyNanos;
+  private volatile long commandNanos;
+  private final Map<String, Long> beanStarts = new ConcurrentHashMap<>();
+  private final Map<String, Long> beanNanos = new ConcurrentHashMap<>();
+
+  public static StartupReport startupReport() {
+    return new StartupReport();
+  }
+
+  @Override
+  public void initialize(ConfigurableApplicationContext applicationContext) {
+    contextNanos = System.nanoTime();
+
+    val beanFactory = applicationContext.getBeanFactory();
+    beanFactory.registerSingleton("startupReport", this);
+    beanFactory.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+
+      @Override
+      public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+        beanStarts.putIfAbsent(beanName, System.nanoTime());
+        return null;
+      }
+
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        val start = beanStarts.get(beanName);
+        if (start != null) {
+          beanNanos.putIfAbsent(beanName, System.nanoTime() - start);
+        }
+
+        return bean;
+      }
+
+    });
+  }
+
+  /**
+   * Marks the end of the context refresh.
+   */
+  public void ready() {
+    readyNanos = System.nanoTime();
+  }
+
+  /**
+   * Marks the command as wired and about to execute.
+   */
+  public void commandReady() {
+    commandNanos = System.nanoTime();
+  }
+
+  public void print(Terminal terminal) {
+    val jvmMillis = mainMillis - ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    terminal.println(terminal.label("  Startup:"));
+    print(terminal, "JVM", jvmMillis);
+    print(terminal, "Bootstrap", millis(contextNanos - mainNanos));
+    print(terminal, "Context", millis(readyNanos - contextNanos));
+    print(terminal, "Command", millis(commandNanos - readyNanos));
+    print(terminal, "Total", jvmMillis + millis(commandNanos - mainNanos));
+
+    val slowest = terminal.label("  Slowest of " + beanNanos.size() + " beans");
+    terminal.println(slowest + " (including their dependencies):");
+    beanNanos.entrySet().stream()
+        .sorted(Map.Entry.<String, Long> comparingByValue().reversed())
+        .limit(SLOWEST_BEANS)
+        .forEach(entry -> print(terminal, entry.getKey(), millis(entry.getValue())));
+  }
+
+  private static void print(Terminal terminal, String name, long millis) {
+    terminal.println("    " + Strings.padEnd(name, 30, ' ') + terminal.value(millis) + " ms");
+  }
+
+  private static long millis(long nanos) {
+    return NANOSECONDS.toMillis(nanos);
+  }
+
+}
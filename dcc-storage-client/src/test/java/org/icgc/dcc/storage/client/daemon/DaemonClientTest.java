@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.daemon;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import lombok.val;
+
+public class DaemonClientTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testParse() {
+    val download = DaemonClient.parse("--profile", "collab", "download", "--object-id", "x");
+    assertThat(download.getArgs()).containsExactly("download", "--object-id", "x");
+    assertThat(download.isQuiet()).isFalse();
+    assertThat(download.isSilent()).isFalse();
+
+    val url = DaemonClient.parse("--profile=collab", "--quiet", "url", "--object-id=x");
+    assertThat(url.getArgs()).containsExactly("url", "--object-id=x");
+    assertThat(url.isQuiet()).isTrue();
+
+    assertThat(DaemonClient.parse("--silent", "upload", "--manifest", "m").isSilent()).isTrue();
+  }
+
+  @Test
+  public void testParseLocal() {
+    assertThat(DaemonClient.parse("download", "--object-id", "x", "--stdout")).isNull();
+    assertThat(DaemonClient.parse("mount", "--mount-point", "x")).isNull();
+    assertThat(DaemonClient.parse("--profile", "collab", "mount", "--mount-point", "x")).isNull();
+    assertThat(DaemonClient.parse("--version")).isNull();
+    assertThat(DaemonClient.parse("--help", "download")).isNull();
+    assertThat(DaemonClient.parse("--startup-report", "url", "--object-id", "x")).isNull();
+    assertThat(DaemonClient.parse("--profile")).isNull();
+    assertThat(DaemonClient.parse()).isNull();
+  }
+
+  @Test
+  public void testIsSubmittable() {
+    val daemon = new DaemonFile(1234, "token", false, false);
+    assertThat(DaemonClient.isSubmittable(daemon, DaemonClient.parse("url", "--object-id", "x"))).isTrue();
+    assertThat(DaemonClient.isSubmittable(daemon, DaemonClient.parse("--quiet", "url", "--object-id", "x"))).isFalse();
+    assertThat(DaemonClient.isSubmittable(daemon, DaemonClient.parse("--silent", "url", "--object-id", "x")))
+        .isFalse();
+
+    val quietDaemon = new DaemonFile(1234, "token", true, false);
+    assertThat(DaemonClient.isSubmittable(quietDaemon, DaemonClient.parse("--quiet", "url", "--object-id", "x")))
+        .isTrue();
+    assertThat(DaemonClient.isSubmittable(quietDaemon, DaemonClient.parse("url", "--object-id", "x"))).isFalse();
+  }
+
+  @Test
+  public void testResolve() throws Exception {
+    val manifest = tmp.newFile("manifest.txt");
+    val cwd = new File("").getAbsoluteFile();
+
+    val resolved = DaemonClient.resolve(asList("download", "--output-dir", "data", "--manifest=" + manifest.getPath(),
+        "--object-id", "x"));
+    assertThat(resolved).containsExactly("download", "--output-dir", new File(cwd, "data").getPath(),
+        "--manifest=" + manifest.getAbsolutePath(), "--object-id", "x");
+
+    assertThat(DaemonClient.resolve(asList("upload", "--manifest", "a1b2c3"))).containsExactly("upload", "--manifest",
+        "a1b2c3");
+    assertThat(DaemonClient.resolve(asList("upload", "--file=f.bam"))).containsExactly("upload",
+        "--file=" + new File(cwd, "f.bam").getPath());
+  }
+
+}
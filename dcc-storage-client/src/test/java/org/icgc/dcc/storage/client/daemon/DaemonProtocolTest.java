@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.daemon;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.icgc.dcc.storage.client.daemon.DaemonProtocol.Request;
+import org.junit.Test;
+
+import lombok.val;
+
+public class DaemonProtocolTest {
+
+  @Test
+  public void testRequest() throws Exception {
+    val bytes = new ByteArrayOutputStream();
+    val sent = new Request("token", asList("download", "--object-id", "x"));
+    DaemonProtocol.writeRequest(new DataOutputStream(bytes), sent);
+
+    val request = DaemonProtocol.readRequest(input(bytes.toByteArray()));
+    assertThat(request.getArgs()).containsExactly("download", "--object-id", "x");
+    assertThat(DaemonProtocol.isAuthorized(request, "token")).isTrue();
+    assertThat(DaemonProtocol.isAuthorized(request, "other")).isFalse();
+    assertThat(DaemonProtocol.isAuthorized(new Request(null, asList("url")), "token")).isFalse();
+  }
+
+  @Test(expected = IOException.class)
+  public void testOversizedRequestIsRejected() throws Exception {
+    DaemonProtocol.readRequest(input(frame(DaemonProtocol.REQUEST, Integer.MAX_VALUE)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testNegativeLengthIsRejected() throws Exception {
+    DaemonProtocol.read(input(frame(DaemonProtocol.STDOUT, -1)));
+  }
+
+  private static byte[] frame(byte type, int length) throws IOException {
+    val bytes = new ByteArrayOutputStream();
+    val out = new DataOutputStream(bytes);
+    out.writeByte(type);
+    out.writeInt(length);
+
+    return bytes.toByteArray();
+  }
+
+  private static DataInputStream input(byte[] bytes) {
+    return new DataInputStream(new ByteArrayInputStream(bytes));
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.download;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import lombok.val;
+
+public class DownloadJournalTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testRecordsAreReplayed() throws Exception {
+    val file = tmp.newFile("journal");
+    try (DownloadJournal journal = new DownloadJournal(file)) {
+      journal.commit(1, "a");
+      journal.commit(2, "b");
+      journal.commit(3, "c");
+      journal.delete(2);
+    }
+
+    try (DownloadJournal journal = new DownloadJournal(file)) {
+      assertThat(journal.isCompleted(1)).isTrue();
+      assertThat(journal.isCompleted(2)).isFalse();
+      assertThat(journal.getMd5(3)).isEqualTo("c");
+      assertThat(journal.getCompletedCount()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void testTornRecordIsDiscarded() throws Exception {
+    val file = tmp.newFile("journal");
+    try (DownloadJournal journal = new DownloadJournal(file)) {
+      journal.commit(1, "a");
+      journal.commit(2, "b");
+    }
+
+    // Simulate a crash part way through writing the last record
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(raf.length() - 3);
+    }
+
+    try (DownloadJournal journal = new DownloadJournal(file)) {
+      assertThat(journal.isCompleted(1)).isTrue();
+      assertThat(journal.isCompleted(2)).isFalse();
+
+      journal.commit(2, "b");
+    }
+
+    try (DownloadJournal journal = new DownloadJournal(file)) {
+      assertThat(journal.getMd5(2)).isEqualTo("b");
+    }
+  }
+
+  @Test
+  public void testMalformedRecordIsDiscarded() throws Exception {
+    val file = tmp.newFile("journal");
+    try (DownloadJournal journal = new DownloadJournal(file)) {
+      journal.commit(1, "a");
+      journal.commit(2, "b");
+    }
+
+    // Garbage in place of the last record's MD5, which is not valid modified UTF-8
+    long length;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      length = raf.length();
+      raf.seek(length - 5);
+      raf.write(0xFF);
+    }
+
+    try (DownloadJournal journal = new DownloadJournal(file)) {
+      assertThat(journal.isCompleted(1)).isTrue();
+      assertThat(journal.isCompleted(2)).isFalse();
+    }
+    assertThat(file.length()).isEqualTo(length - 12);
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.download;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.icgc.dcc.storage.client.metadata.Entity;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import lombok.val;
+
+public class DownloadSchedulerTest {
+
+  @Test
+  public void testIndexFilesAndSmallObjectsFirst() {
+    val bam = request("bam", "sample.bam");
+    val bai = request("bai", "sample.bam.bai");
+    val vcf = request("vcf", "sample.vcf.gz");
+    val tbi = request("tbi", "sample.vcf.gz.tbi");
+    val sizes = ImmutableMap.of("bam", 1000L, "bai", 20L, "vcf", 100L, "tbi", 10L);
+
+    val ordered = DownloadScheduler.prioritize(ImmutableList.of(bam, vcf, bai, tbi), sizes);
+
+    assertThat(ordered.stream().map(DownloadRequest::getObjectId).collect(toList()))
+        .containsExactly("tbi", "bai", "vcf", "bam");
+  }
+
+  private static DownloadRequest request(String objectId, String fileName) {
+    val entity = new Entity();
+    entity.setId(objectId);
+    entity.setFileName(fileName);
+
+    return DownloadRequest.builder().objectId(objectId).entity(entity).build();
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.download;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.icgc.dcc.storage.client.util.S3PresignedUrlValidator;
+import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.common.collect.Lists;
+
+import lombok.val;
+
+public class DownloadStateStoreTest {
+
+  private static final String OBJECT_ID = "a82efa12-9aef-4ac4-9e83-b0e1e1ab0c1a";
+
+  private static final String EXPIRED_URL = "https://example.org/data?Expires=1000";
+  private static final String VALID_URL =
+      "https://example.org/data?Expires=" + (System.currentTimeMillis() / 1000 + 3600);
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testRefreshedUrlsKeepCompletedParts() throws Exception {
+    val dir = tmp.newFolder();
+    val store = createStore();
+    store.init(dir, new ObjectSpecification("key", OBJECT_ID, OBJECT_ID, Lists.newArrayList(
+        new Part(1, 10, 0, EXPIRED_URL, null, null),
+        new Part(2, 10, 10, EXPIRED_URL, null, null),
+        new Part(3, 10, 20, VALID_URL, null, null)), 30, null, false));
+    store.commit(dir, OBJECT_ID, new Part(1, 10, 0, EXPIRED_URL, "md5", null));
+
+    val spec = store.getProgress(dir, OBJECT_ID);
+    val expired = store.getExpiredParts(spec);
+    assertThat(expired).extracting("partNumber").containsExactly(2);
+
+    expired.get(0).setUrl(VALID_URL);
+    store.updateSpecification(dir, spec);
+
+    // Read back from disk
+    val reloaded = createStore().getProgress(dir, OBJECT_ID);
+    assertThat(reloaded.getParts().get(0).isCompleted()).isTrue();
+    assertThat(reloaded.getParts().get(1).getUrl()).isEqualTo(VALID_URL);
+    assertThat(createStore().getExpiredParts(reloaded)).isEmpty();
+  }
+
+  @Test
+  public void testProgressIsCopied() throws Exception {
+    val dir = tmp.newFolder();
+    val store = createStore();
+    store.init(dir, new ObjectSpecification("key", OBJECT_ID, OBJECT_ID, Lists.newArrayList(
+        new Part(1, 10, 0, VALID_URL, null, null)), 10, null, false));
+
+    // E.g. a failed attempt leaving a bad checksum behind
+    store.getProgress(dir, OBJECT_ID).getParts().get(0).setMd5("bad");
+
+    assertThat(store.getProgress(dir, OBJECT_ID).getParts().get(0).getMd5()).isNull();
+    assertThat(store.loadSpecification(dir, OBJECT_ID).getParts().get(0).getMd5()).isNull();
+  }
+
+  @Test
+  public void testAbortedDownloadIsResumed() throws Exception {
+    val dir = tmp.newFolder();
+    val store = createStore();
+    store.init(dir, new ObjectSpecification("key", OBJECT_ID, OBJECT_ID, Lists.newArrayList(
+        new Part(1, 10, 0, VALID_URL, null, null),
+        new Part(2, 10, 10, VALID_URL, null, null)), 20, null, false));
+    store.commit(dir, OBJECT_ID, new Part(1, 10, 0, VALID_URL, "md5", null));
+
+    store.abort(dir, OBJECT_ID);
+
+    val spec = store.getProgress(dir, OBJECT_ID);
+    assertThat(spec.getParts().get(0).isCompleted()).isTrue();
+    assertThat(spec.getParts().get(1).isCompleted()).isFalse();
+  }
+
+  private static DownloadStateStore createStore() {
+    val store = new DownloadStateStore();
+    ReflectionTestUtils.setField(store, "urlValidator", new S3PresignedUrlValidator());
+
+    return store;
+  }
+
+}
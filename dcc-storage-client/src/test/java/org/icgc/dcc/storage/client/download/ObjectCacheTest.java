@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.download;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.hash.Hashing;
+
+import lombok.val;
+
+public class ObjectCacheTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testStoredObjectIsFetched() throws Exception {
+    val cache = new ObjectCache(tmp.newFolder(), 100);
+    val source = write("a", "0123456789");
+    val md5 = md5("0123456789");
+
+    val target = new File(tmp.newFolder(), "a");
+    assertThat(cache.fetch("a", md5, 10, target)).isFalse();
+
+    cache.store("a", md5, source);
+    assertThat(cache.fetch("a", md5, 10, target)).isTrue();
+    assertThat(new String(Files.readAllBytes(target.toPath()), US_ASCII)).isEqualTo("0123456789");
+
+    // A changed object is not served
+    assertThat(cache.fetch("a", md5("changed"), 10, new File(tmp.newFolder(), "a"))).isFalse();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() throws Exception {
+    val dir = tmp.newFolder();
+    val cache = new ObjectCache(dir, 25);
+    cache.store("a", md5("a"), write("a", "0123456789"));
+    cache.store("b", md5("b"), write("b", "0123456789"));
+
+    // Leave b as the least recently used
+    setLastUsed(dir, "b", 1000);
+    assertThat(cache.fetch("a", md5("a"), 10, new File(tmp.newFolder(), "a"))).isTrue();
+
+    cache.store("c", md5("c"), write("c", "0123456789"));
+
+    assertThat(cache.fetch("a", md5("a"), 10, new File(tmp.newFolder(), "a"))).isTrue();
+    assertThat(cache.fetch("b", md5("b"), 10, new File(tmp.newFolder(), "b"))).isFalse();
+    assertThat(cache.fetch("c", md5("c"), 10, new File(tmp.newFolder(), "c"))).isTrue();
+  }
+
+  @Test
+  public void testStoredObjectIsLinked() throws Exception {
+    val dir = tmp.newFolder();
+    val cache = new ObjectCache(dir, 100);
+    val source = write("a", "0123456789");
+    cache.store("a", md5("a"), source);
+
+    val entry = dir.toPath().resolve("objects").resolve("a-" + md5("a"));
+    assertThat(Files.isSameFile(entry, source.toPath())).isTrue();
+  }
+
+  @Test
+  public void testModifiedEntryIsEvicted() throws Exception {
+    val dir = tmp.newFolder();
+    val cache = new ObjectCache(dir, 100);
+    val source = write("a", "0123456789");
+    cache.store("a", md5("a"), source);
+
+    // Edited in place through the user's link
+    Files.write(source.toPath(), "9876543210".getBytes(US_ASCII));
+    Files.setLastModifiedTime(source.toPath(), FileTime.fromMillis(1000));
+
+    assertThat(cache.fetch("a", md5("a"), 10, new File(tmp.newFolder(), "a"))).isFalse();
+    assertThat(dir.toPath().resolve("objects").resolve("a-" + md5("a")).toFile().exists()).isFalse();
+  }
+
+  @Test
+  public void testUnlinkableTargetIsCopied() throws Exception {
+    val dir = tmp.newFolder();
+    val cache = new ObjectCache(dir, 100);
+    cache.store("a", md5("a"), write("a", "0123456789"));
+
+    // An existing target cannot be linked over
+    val target = write("a", "old");
+    assertThat(cache.fetch("a", md5("a"), 10, target)).isTrue();
+
+    assertThat(new String(Files.readAllBytes(target.toPath()), US_ASCII)).isEqualTo("0123456789");
+    assertThat(Files.isSameFile(target.toPath(), dir.toPath().resolve("objects").resolve("a-" + md5("a")))).isFalse();
+    assertThat(dir.toPath().resolve("tmp").toFile().list()).isEmpty();
+  }
+
+  @Test
+  public void testStaleTempIsSwept() throws Exception {
+    val dir = tmp.newFolder();
+    val temps = dir.toPath().resolve("tmp");
+    Files.createDirectories(temps);
+    val stale = Files.write(temps.resolve("1000-crashed"), "0123456789".getBytes(US_ASCII));
+    val fresh = Files.write(temps.resolve(System.currentTimeMillis() + "-running"), "0123456789".getBytes(US_ASCII));
+
+    new ObjectCache(dir, 100).store("a", md5("a"), write("a", "0123456789"));
+
+    assertThat(stale.toFile().exists()).isFalse();
+    assertThat(fresh.toFile().exists()).isTrue();
+  }
+
+  @Test
+  public void testDisabledCacheIsNoop() throws Exception {
+    val cache = new ObjectCache(null, 100);
+    cache.store("a", md5("a"), write("a", "0123456789"));
+
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(cache.fetch("a", md5("a"), 10, new File(tmp.newFolder(), "a"))).isFalse();
+  }
+
+  private File write(String name, String content) throws Exception {
+    val file = new File(tmp.newFolder(), name);
+    Files.write(file.toPath(), content.getBytes(US_ASCII));
+    return file;
+  }
+
+  private static void setLastUsed(File dir, String objectId, long millis) throws Exception {
+    val marker = dir.toPath().resolve("objects").resolve(objectId + "-" + md5(objectId) + ".used");
+    Files.setLastModifiedTime(marker, FileTime.fromMillis(millis));
+  }
+
+  private static String md5(String content) {
+    return Hashing.md5().hashString(content, US_ASCII).toString();
+  }
+
+}
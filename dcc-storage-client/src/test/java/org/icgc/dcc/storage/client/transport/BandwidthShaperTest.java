@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+import lombok.val;
+
+public class BandwidthShaperTest {
+
+  private static final long LIMIT = 1024 * 1024;
+
+  @Test
+  public void testUnlimitedPassesStreamsThrough() throws Exception {
+    val shaper = new BandwidthShaper(0);
+    val inputStream = new ByteArrayInputStream(new byte[1]);
+    val outputStream = new ByteArrayOutputStream();
+
+    assertThat(shaper.isEnabled()).isFalse();
+    assertThat(shaper.wrap(inputStream)).isSameAs(inputStream);
+    assertThat(shaper.wrap(outputStream)).isSameAs(outputStream);
+  }
+
+  @Test
+  public void testBurstIsNotDelayed() throws Exception {
+    val shaper = new BandwidthShaper(LIMIT, MILLISECONDS.toNanos(500));
+
+    val elapsed = time(() -> shaper.acquire(LIMIT / 4));
+    assertThat(elapsed).isLessThan(MILLISECONDS.toNanos(200));
+  }
+
+  @Test
+  public void testStreamsArePaced() throws Exception {
+    val shaper = new BandwidthShaper(LIMIT, 0);
+    val data = new byte[(int) (LIMIT / 4)];
+
+    val outputStream = new ByteArrayOutputStream();
+    val written = time(() -> shaper.wrap(outputStream).write(data));
+    assertThat(outputStream.size()).isEqualTo(data.length);
+    assertThat(written).isGreaterThanOrEqualTo(MILLISECONDS.toNanos(200));
+
+    val read = time(() -> ByteStreams.toByteArray(shaper.wrap(new ByteArrayInputStream(data))));
+    assertThat(read).isGreaterThanOrEqualTo(MILLISECONDS.toNanos(200));
+    assertThat(shaper.getShapedBytes()).isEqualTo(2L * data.length);
+  }
+
+  @Test
+  public void testThreadsShareTheLimit() throws Exception {
+    val shaper = new BandwidthShaper(LIMIT, 0);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      val start = System.nanoTime();
+      val results = Lists.<Future<?>> newArrayList();
+      for (int i = 0; i < 4; i++) {
+        results.add(executor.submit(() -> {
+          for (int j = 0; j < 8; j++) {
+            shaper.acquire(LIMIT / 64);
+          }
+
+          return null;
+        }));
+      }
+      for (val result : results) {
+        result.get();
+      }
+
+      // 4 x 8 x 1/64 s of budget
+      assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(MILLISECONDS.toNanos(450));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static long time(Action action) throws Exception {
+    val start = System.nanoTime();
+    action.run();
+    return System.nanoTime() - start;
+  }
+
+  private interface Action {
+
+    void run() throws Exception;
+
+  }
+
+}
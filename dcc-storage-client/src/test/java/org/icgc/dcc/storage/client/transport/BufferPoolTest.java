@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import lombok.val;
+
+public class BufferPoolTest {
+
+  private static final byte[] DATA = "0123456789abcdefghij".getBytes(US_ASCII);
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testBuffersAreReused() throws Exception {
+    val pool = new BufferPool(16, 2);
+    val first = pool.acquire();
+    val second = pool.acquire();
+    assertThat(first.isDirect()).isTrue();
+    assertThat(pool.getAllocated()).isEqualTo(2);
+
+    val waiting = CompletableFuture.supplyAsync(() -> {
+      try {
+        return pool.acquire();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    Thread.sleep(100);
+    assertThat(waiting.isDone()).isFalse();
+
+    first.put((byte) 1);
+    pool.release(first);
+    val third = waiting.get();
+
+    assertThat(third).isSameAs(first);
+    assertThat(third.position()).isEqualTo(0);
+    assertThat(pool.getAllocated()).isEqualTo(2);
+
+    pool.release(second);
+    pool.release(third);
+    pool.close();
+    assertThat(pool.getAllocated()).isEqualTo(0);
+  }
+
+  @Test
+  public void testBuffersAreChargedToBudget() throws Exception {
+    val budget = new MemoryBudget(40);
+    val pool = new BufferPool(16, 4, budget);
+
+    // Only two buffers fit, further users wait for one of them
+    val first = pool.acquire();
+    pool.acquire();
+    assertThat(budget.getAllocated()).isEqualTo(32);
+
+    val waiting = CompletableFuture.supplyAsync(() -> {
+      try {
+        return pool.acquire();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    Thread.sleep(100);
+    assertThat(waiting.isDone()).isFalse();
+    assertThat(pool.getAllocated()).isEqualTo(2);
+
+    pool.release(first);
+    pool.release(waiting.get());
+    pool.close();
+    assertThat(budget.getAllocated()).isEqualTo(16);
+  }
+
+  @Test
+  public void testPartIsLoadedAndCommittedInPlace() throws Exception {
+    val file = tmp.newFile().toPath();
+    Files.write(file, DATA);
+
+    val pool = new BufferPool(DATA.length, 1);
+    try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+      val source = PooledBufferDataChannel.acquire(pool, channel, 5, 5, 10);
+      source.load();
+      assertThat(source.getData()).isEqualTo(ByteBuffer.wrap(DATA, 5, 10));
+      source.release();
+
+      val target = PooledBufferDataChannel.acquire(pool, channel, 10, 10, 10);
+      target.readFrom(new ByteArrayInputStream("ABCDEFGHIJ".getBytes(US_ASCII)));
+      target.commitToDisk();
+      target.release();
+    }
+
+    assertThat(new String(Files.readAllBytes(file), US_ASCII)).isEqualTo("0123456789ABCDEFGHIJ");
+    assertThat(pool.getAllocated()).isEqualTo(1);
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import lombok.val;
+
+public class ConcurrencyControllerTest {
+
+  @Test
+  public void testFixedConcurrency() {
+    val controller = new ConcurrencyController(4, 4, 4);
+    for (int i = 0; i < 10; i++) {
+      controller.acquire();
+      controller.congested();
+      controller.acquire();
+      controller.completed(100);
+    }
+
+    assertThat(controller.isAdaptive()).isFalse();
+    assertThat(controller.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void testCongestionHalvesLimitOncePerRound() {
+    val controller = new ConcurrencyController(1, 8, 16);
+    for (int i = 0; i < 8; i++) {
+      controller.acquire();
+    }
+    for (int i = 0; i < 8; i++) {
+      controller.congested();
+    }
+
+    assertThat(controller.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void testLimitStaysWithinBounds() {
+    val controller = new ConcurrencyController(2, 2, 3);
+    for (int i = 0; i < 100; i++) {
+      controller.acquire();
+      controller.completed(1000);
+    }
+    assertThat(controller.getLimit()).isBetween(2, 3);
+
+    controller.acquire();
+    controller.congested();
+    assertThat(controller.getLimit()).isEqualTo(2);
+  }
+
+}
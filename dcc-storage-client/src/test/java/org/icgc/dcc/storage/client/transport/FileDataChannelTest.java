@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.hash.Hashing;
+
+import lombok.val;
+
+public class FileDataChannelTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testPartIsSentAndHashed() throws Exception {
+    val data = new byte[100_000];
+    new Random(1).nextBytes(data);
+    val file = tmp.newFile();
+    Files.write(file.toPath(), data);
+
+    val channel = new FileDataChannel(file, 1000, 50_000, null);
+    val os = new ByteArrayOutputStream();
+    channel.writeTo(os);
+
+    val md5 = Hashing.md5().hashBytes(data, 1000, 50_000).toString();
+    assertThat(os.toByteArray()).isEqualTo(Arrays.copyOfRange(data, 1000, 51_000));
+    assertThat(channel.getMd5()).isEqualTo(md5);
+    assertThat(new FileDataChannel(file, 1000, 50_000, null).verifyMd5(md5)).isTrue();
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedFileFails() throws Exception {
+    val file = tmp.newFile();
+    Files.write(file.toPath(), new byte[10]);
+
+    new FileDataChannel(file, 0, 20, null).writeTo(new ByteArrayOutputStream());
+  }
+
+}
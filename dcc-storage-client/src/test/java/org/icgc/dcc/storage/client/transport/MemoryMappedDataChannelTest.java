@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import lombok.val;
+
+public class MemoryMappedDataChannelTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testCommittedPartIsUnmapped() throws Exception {
+    val file = tmp.newFile().toPath();
+    Files.write(file, new byte[20]);
+
+    try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+      val mapped = new MemoryMappedDataChannel(channel.map(MapMode.READ_WRITE, 10, 10), 10, 10, null);
+      assertThat(mapped.getMapped()).isEqualTo(10);
+
+      mapped.readFrom(new ByteArrayInputStream("ABCDEFGHIJ".getBytes(US_ASCII)));
+      mapped.commitToDisk();
+
+      assertThat(mapped.getMapped()).isEqualTo(0);
+      assertThat(mapped.release()).isEqualTo(0);
+    }
+
+    assertThat(new String(Files.readAllBytes(file), US_ASCII)).endsWith("ABCDEFGHIJ");
+  }
+
+  @Test
+  public void testDirectBuffersAreFreed() {
+    assertThat(DirectBuffers.free(ByteBuffer.allocateDirect(16))).isTrue();
+    assertThat(DirectBuffers.free(ByteBuffer.allocate(16))).isFalse();
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.client.cli.Terminal;
+import org.icgc.dcc.storage.client.progress.Progress;
+import org.icgc.dcc.storage.client.transport.Transport.Mode;
+import org.icgc.dcc.storage.core.model.DataChannel;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import lombok.val;
+
+public class MemoryMappedParallelPartObjectTransportTest {
+
+  private static final String OBJECT_ID = "a82efa12-9aef-4ac4-9e83-b0e1e1ab0c1a";
+  private static final int PART_SIZE = 4096;
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testPartsAreReadAheadOfTheWorkers() throws Exception {
+    val file = createFile(5);
+    val proxy = createProxy();
+    val budget = new MemoryBudget(1L << 30);
+
+    val sending = new CountDownLatch(1);
+    val sent = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      sending.countDown();
+      sent.await();
+      return null;
+    }).when(proxy).uploadPart(any(DataChannel.class), any(Part.class), anyString(), anyString(), any(File.class));
+
+    val transport = createTransport(proxy, budget, null, createParts(5));
+    val executor = Executors.newSingleThreadExecutor();
+    val result = executor.submit(() -> transport.send(file));
+
+    // The only worker holds the first part while the next readAhead parts are mapped and loaded
+    assertThat(sending.await(10, TimeUnit.SECONDS)).isTrue();
+    Thread.sleep(200);
+    assertThat(budget.getAllocated()).isEqualTo(3 * PART_SIZE);
+
+    sent.countDown();
+    result.get(10, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    assertThat(budget.getAllocated()).isEqualTo(0);
+    verify(proxy, times(5)).uploadPart(any(DataChannel.class), any(Part.class), eq(OBJECT_ID), eq(OBJECT_ID),
+        eq(file));
+  }
+
+  @Test
+  public void testFailedLoadReleasesMemory() throws Exception {
+    val file = createFile(3);
+    val proxy = createProxy();
+    val budget = new MemoryBudget(1L << 30);
+    val digester = mock(ObjectDigester.class);
+    doThrow(new IllegalStateException("load")).when(digester).complete(any(Part.class));
+
+    try {
+      createTransport(proxy, budget, digester, createParts(3)).send(file);
+      fail("Expected the upload to fail");
+    } catch (Exception e) {
+      // Expected
+    }
+
+    assertThat(budget.getAllocated()).isEqualTo(0);
+    verify(proxy, never()).uploadPart(any(DataChannel.class), any(Part.class), anyString(), anyString(),
+        any(File.class));
+    verify(digester).close();
+  }
+
+  @Test
+  public void testFailedMappingReleasesMemory() throws Exception {
+    // The last part is past the end of the file, so it cannot be mapped
+    val file = createFile(2);
+    val proxy = createProxy();
+    val budget = new MemoryBudget(1L << 30);
+
+    try {
+      createTransport(proxy, budget, null, createParts(3)).send(file);
+      fail("Expected the upload to fail");
+    } catch (Exception e) {
+      // Expected
+    }
+
+    assertThat(budget.getAllocated()).isEqualTo(0);
+    verify(proxy, times(2)).uploadPart(any(DataChannel.class), any(Part.class), anyString(), anyString(),
+        any(File.class));
+    verify(proxy, never()).finalizeUpload(anyString(), anyString(), any(String.class));
+  }
+
+  private File createFile(int parts) throws Exception {
+    val file = tmp.newFile();
+    Files.write(new byte[parts * PART_SIZE], file);
+    return file;
+  }
+
+  private static List<Part> createParts(int count) {
+    val parts = Lists.<Part> newArrayList();
+    for (int i = 0; i < count; i++) {
+      parts.add(new Part(i + 1, PART_SIZE, i * PART_SIZE, "https://example.org/" + i, null, null));
+    }
+
+    return parts;
+  }
+
+  private static StorageService createProxy() {
+    val proxy = mock(StorageService.class);
+    when(proxy.getShaper(any(Mode.class))).thenReturn(new BandwidthShaper(0));
+    return proxy;
+  }
+
+  private static Transport createTransport(StorageService proxy, MemoryBudget budget, ObjectDigester digester,
+      List<Part> parts) {
+    return MemoryMappedParallelPartObjectTransport.builder()
+        .withMemoryBudget(budget)
+        .withReadAhead(2)
+        .withNumberOfWorkerThreads(1)
+        .withProxy(proxy)
+        .withProgressBar(new Progress(new Terminal(false, true), true, parts.size(), 0))
+        .withParts(parts)
+        .withObjectId(OBJECT_ID)
+        .withSessionId(OBJECT_ID)
+        .withTransportMode(Mode.UPLOAD)
+        .withDigester(digester)
+        .build();
+  }
+
+}
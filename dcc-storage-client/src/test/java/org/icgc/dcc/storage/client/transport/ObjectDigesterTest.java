@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import lombok.val;
+
+public class ObjectDigesterTest {
+
+  private static final int PART_SIZE = 1000;
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testPartsReportedOutOfOrder() throws Exception {
+    val data = new byte[5 * PART_SIZE - 300];
+    new Random(1).nextBytes(data);
+    val file = tmp.newFile();
+    Files.write(data, file);
+
+    val parts = createParts(data.length, PART_SIZE);
+    val digester = new ObjectDigester(file, parts);
+    for (val index : new int[] { 3, 1, 4, 0, 2 }) {
+      digester.complete(parts.get(index));
+    }
+
+    assertThat(digester.getMd5()).contains(Hashing.md5().hashBytes(data).toString());
+  }
+
+  @Test
+  public void testRangedObject() throws Exception {
+    // The file holds the object from the offset of its first part
+    val data = new byte[2 * PART_SIZE];
+    new Random(2).nextBytes(data);
+    val file = tmp.newFile();
+    Files.write(data, file);
+
+    val parts = Lists.newArrayList(new Part(4, PART_SIZE, 3 * PART_SIZE, null, null, null),
+        new Part(5, PART_SIZE, 4 * PART_SIZE, null, null, null));
+    val digester = new ObjectDigester(file, parts);
+    digester.complete(parts.get(1));
+    digester.complete(parts.get(0));
+
+    assertThat(digester.getMd5()).contains(Hashing.md5().hashBytes(data).toString());
+  }
+
+  @Test
+  public void testPartNeverReported() throws Exception {
+    val file = tmp.newFile();
+    Files.write(new byte[3 * PART_SIZE], file);
+
+    val parts = createParts(3 * PART_SIZE, PART_SIZE);
+    val digester = new ObjectDigester(file, parts);
+    digester.complete(parts.get(0));
+    digester.complete(parts.get(2));
+
+    assertThat(digester.getMd5()).isEmpty();
+    assertThat(digester.getFileMd5()).isEqualTo(Hashing.md5().hashBytes(new byte[3 * PART_SIZE]).toString());
+  }
+
+  @Test
+  public void testCloseDuringRead() throws Exception {
+    // Large enough for the read to still be going on when the digester is closed
+    val size = 256L * 1024 * 1024;
+    val file = tmp.newFile();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(size);
+    }
+
+    val parts = createParts(size, 16 * 1024 * 1024);
+    val digester = new ObjectDigester(file, parts);
+    parts.forEach(digester::complete);
+
+    val watch = Stopwatch.createStarted();
+    digester.close();
+    assertThat(watch.elapsed(TimeUnit.SECONDS)).isLessThan(2);
+
+    assertThat(digester.getMd5()).isEmpty();
+    val channel = (FileChannel) ReflectionTestUtils.getField(digester, "channel");
+    if (channel != null) {
+      assertThat(channel.isOpen()).isFalse();
+    }
+  }
+
+  private static List<Part> createParts(long size, int partSize) {
+    val parts = Lists.<Part> newArrayList();
+    for (long offset = 0; offset < size; offset += partSize) {
+      parts.add(new Part(parts.size() + 1, Math.min(partSize, size - offset), offset, null, null, null));
+    }
+
+    return parts;
+  }
+
+}
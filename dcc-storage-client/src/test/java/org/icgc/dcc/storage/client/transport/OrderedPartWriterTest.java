@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.icgc.dcc.storage.client.exception.NotRetryableException;
+import org.junit.After;
+import org.junit.Test;
+
+import lombok.val;
+
+public class OrderedPartWriterTest {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testPartsAreWrittenInOrder() throws Exception {
+    val output = new ByteArrayOutputStream();
+    val writer = new OrderedPartWriter(output, 100, 1000);
+
+    writer.write(120, data("CCCCCCCCCC"));
+    writer.write(110, data("BBBBBBBBBB"));
+    assertThat(output.size()).isEqualTo(0);
+
+    writer.write(100, data("AAAAAAAAAA"));
+    assertThat(new String(output.toByteArray(), US_ASCII)).isEqualTo("AAAAAAAAAABBBBBBBBBBCCCCCCCCCC");
+    assertThat(writer.getPosition()).isEqualTo(130);
+  }
+
+  @Test
+  public void testPartsWaitForTheWindow() throws Exception {
+    val output = new ByteArrayOutputStream();
+    val writer = new OrderedPartWriter(output, 0, 20);
+
+    // The head of the window is admitted right away, the part after the window is not
+    writer.awaitWindow(0, 10);
+    val waiting = executor.submit(() -> {
+      writer.awaitWindow(20, 10);
+      return null;
+    });
+
+    try {
+      waiting.get(200, TimeUnit.MILLISECONDS);
+      fail("Expected the part to wait for the window");
+    } catch (TimeoutException e) {
+      // Expected
+    }
+
+    writer.write(0, data("AAAAAAAAAA"));
+    waiting.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testAbortWakesUpWaitingParts() throws Exception {
+    val writer = new OrderedPartWriter(new ByteArrayOutputStream(), 0, 10);
+    val waiting = executor.submit(() -> {
+      writer.awaitWindow(10, 10);
+      return null;
+    });
+
+    writer.abort(new IOException("Part #1 failed"));
+
+    try {
+      waiting.get(10, TimeUnit.SECONDS);
+      fail("Expected the waiting part to be aborted");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(NotRetryableException.class);
+    }
+
+    try {
+      writer.write(0, data("AAAAAAAAAA"));
+      fail("Expected the aborted writer to reject parts");
+    } catch (NotRetryableException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testFailedOutputAbortsTheWriter() throws Exception {
+    val writer = new OrderedPartWriter(new OutputStream() {
+
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+
+    }, 0, 100);
+
+    try {
+      writer.write(0, data("AAAAAAAAAA"));
+      fail("Expected the write to fail");
+    } catch (IOException e) {
+      // Expected
+    }
+
+    try {
+      writer.awaitWindow(10, 10);
+      fail("Expected the writer to be aborted");
+    } catch (NotRetryableException e) {
+      // Expected
+    }
+  }
+
+  private static ByteBuffer data(String text) {
+    return ByteBuffer.wrap(text.getBytes(US_ASCII));
+  }
+
+}
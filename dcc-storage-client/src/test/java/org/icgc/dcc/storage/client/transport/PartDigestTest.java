@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import lombok.val;
+
+public class PartDigestTest {
+
+  private static final byte[] DATA = "0123456789abcdefghij".getBytes(US_ASCII);
+
+  @Test
+  public void testInterruptedPartIsResumed() throws Exception {
+    val channel = new ByteBufferDataChannel(ByteBuffer.allocate(DATA.length), 0, DATA.length, null);
+    val digest = new PartDigest();
+
+    try {
+      channel.readFrom(digest.wrap(interrupted(new ByteArrayInputStream(DATA), 7)));
+    } catch (IOException e) {
+      // Expected
+    }
+
+    assertThat(digest.getLength()).isEqualTo(7);
+    assertThat(channel.getWritten()).isEqualTo(7);
+
+    channel.readFrom(digest.wrap(new ByteArrayInputStream(DATA, 7, DATA.length - 7)));
+
+    assertThat(channel.getWritten()).isEqualTo(DATA.length);
+    assertThat(channel.getData()).isEqualTo(ByteBuffer.wrap(DATA));
+    assertThat(digest.hash()).isEqualTo(Hashing.md5().hashBytes(DATA).toString());
+  }
+
+  @Test
+  public void testReset() throws Exception {
+    val digest = new PartDigest();
+    ByteStreams.toByteArray(digest.wrap(new ByteArrayInputStream(DATA)));
+    digest.reset();
+    ByteStreams.toByteArray(digest.wrap(new ByteArrayInputStream(DATA, 0, 3)));
+
+    assertThat(digest.getLength()).isEqualTo(3);
+    assertThat(digest.hash()).isEqualTo(Hashing.md5().hashBytes(DATA, 0, 3).toString());
+  }
+
+  /**
+   * @return a stream that fails after {@code count} bytes, like a dropped connection
+   */
+  private static InputStream interrupted(InputStream is, int count) {
+    return new InputStream() {
+
+      int remaining = count;
+
+      @Override
+      public int read() throws IOException {
+        if (remaining == 0) {
+          throw new IOException("Connection reset");
+        }
+
+        remaining--;
+        return is.read();
+      }
+
+    };
+  }
+
+}
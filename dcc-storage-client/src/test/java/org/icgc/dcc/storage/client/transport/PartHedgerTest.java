@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Test;
+
+import lombok.val;
+
+public class PartHedgerTest {
+
+  @Test
+  public void testNoDeadlineWithoutSamples() {
+    val hedger = new PartHedger(95, new ConcurrencyController(1, 1, 1));
+    assertThat(hedger.getDeadline(1000)).isEqualTo(-1);
+
+    for (int i = 0; i < 10; i++) {
+      hedger.record(1000, MILLISECONDS.toNanos(2000));
+    }
+    assertThat(hedger.getDeadline(1000)).isEqualTo(MILLISECONDS.toNanos(2000));
+    assertThat(new PartHedger(0, new ConcurrencyController(1, 1, 1)).getDeadline(1000)).isEqualTo(-1);
+  }
+
+  @Test
+  public void testSlowPartIsHedged() throws Exception {
+    val concurrency = new ConcurrencyController(2, 2, 2);
+    val hedger = new PartHedger(95, concurrency);
+    for (int i = 0; i < 10; i++) {
+      hedger.record(4, 1);
+    }
+
+    val channel = new ByteBufferDataChannel(ByteBuffer.allocate(4), 0, 4, null);
+    val aborted = new CountDownLatch(1);
+
+    concurrency.acquire();
+    val md5 = hedger.fetch(channel, channel.duplicate(), part(), (target, attempt) -> {
+      if (target != channel) {
+        return "hedge";
+      }
+
+      // Stuck until the hedge wins
+      attempt.started(() -> aborted.countDown());
+      aborted.await();
+      throw new IOException("aborted");
+    });
+
+    assertThat(md5).isEqualTo("hedge");
+    assertThat(aborted.getCount()).isEqualTo(0);
+
+    // The slot of the hedge was handed back
+    assertThat(concurrency.tryAcquire()).isTrue();
+  }
+
+  private static Part part() {
+    return new Part(1, 4, 0, null, null, null);
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import lombok.val;
+
+public class PartSchedulerTest {
+
+  @Test
+  public void testMemoryCeilingIsEnforced() throws Exception {
+    val scheduler = new PartScheduler("test", 4, 8, 100);
+    val inUse = new AtomicLong();
+    val peak = new AtomicLong();
+
+    for (int i = 0; i < 20; i++) {
+      scheduler.submit(40, () -> {
+        val current = inUse.addAndGet(40);
+        peak.accumulateAndGet(current, Math::max);
+        Thread.sleep(10);
+        inUse.addAndGet(-40);
+        return null;
+      });
+    }
+
+    scheduler.shutdown();
+    assertThat(scheduler.awaitTermination(10, SECONDS)).isTrue();
+    assertThat(peak.get()).isLessThanOrEqualTo(100);
+    assertThat(scheduler.getAllocated()).isZero();
+  }
+
+  @Test
+  public void testOversizedPartIsAdmittedAlone() throws Exception {
+    val scheduler = new PartScheduler("test", 2, 2, 10);
+
+    val result = scheduler.submit(50, () -> "done");
+
+    assertThat(result.get(10, SECONDS)).isEqualTo("done");
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void testFailureIsRecorded() throws Exception {
+    val scheduler = new PartScheduler("test", 1, 1, 10);
+    val error = new IllegalStateException("boom");
+
+    scheduler.submit(1, () -> {
+      throw error;
+    });
+
+    scheduler.shutdown();
+    scheduler.awaitTermination(10, SECONDS);
+    assertThat(scheduler.getFailure()).isSameAs(error);
+    assertThat(scheduler.getAllocated()).isZero();
+  }
+
+  @Test
+  public void testShutdownNowReleasesQueuedTasks() throws Exception {
+    val scheduler = new PartScheduler("test", 1, 4, 100);
+    val started = new CountDownLatch(1);
+    val running = scheduler.submit(10, () -> {
+      started.countDown();
+      Thread.sleep(Long.MAX_VALUE);
+      return null;
+    });
+    started.await();
+    val queued = scheduler.submit(10, () -> "never");
+
+    scheduler.shutdownNow();
+
+    assertThat(scheduler.awaitTermination(10, SECONDS)).isTrue();
+    assertThat(running.isDone()).isTrue();
+    assertThat(queued.isCancelled()).isTrue();
+    assertThat(scheduler.getAllocated()).isZero();
+  }
+
+}
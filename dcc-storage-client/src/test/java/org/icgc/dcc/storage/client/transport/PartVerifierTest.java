@@ -17,55 +17,48 @@
  */
 package org.icgc.dcc.storage.client.transport;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PipedInputStream;
+import java.util.HashSet;
 
-import org.apache.commons.compress.utils.IOUtils;
-import org.icgc.dcc.storage.client.exception.NotRetryableException;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Test;
 
-import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingOutputStream;
+import lombok.val;
 
-import lombok.AllArgsConstructor;
-import lombok.Getter;
-import lombok.extern.slf4j.Slf4j;
+public class PartVerifierTest {
 
-/**
- * Channels that use pipe
- */
-@Slf4j
-@AllArgsConstructor
-public class PipedDataChannel extends AbstractDataChannel {
+  @Test
+  public void testCorruptedPartsAreReturned() throws Exception {
+    val verifier = new PartVerifier("test", 2, 0, part -> part.getPartNumber() % 2 == 0);
+    for (int i = 1; i <= 10; i++) {
+      verifier.submit(part(i));
+    }
 
-  private final PipedInputStream is;
-  @Getter
-  private final long offset;
-  @Getter
-  private final long length;
-  @Getter
-  private String md5 = null;
+    val corrupted = new HashSet<Integer>();
+    for (Part part = verifier.take(); part != null; part = verifier.take()) {
+      corrupted.add(part.getPartNumber());
+    }
 
-  @Override
-  public void reset() throws IOException {
-    log.warn("cannot be reset");
-    throw new NotRetryableException();
+    assertThat(corrupted).containsOnly(2, 4, 6, 8, 10);
+    verifier.shutdownNow();
   }
 
-  @Override
-  public void writeTo(OutputStream os) throws IOException {
-    HashingOutputStream hos = new HashingOutputStream(Hashing.md5(), os);
-    IOUtils.copy(is, hos);
-    md5 = hos.hash().toString();
+  @Test
+  public void testUnverifiablePartIsTreatedAsCorrupted() throws Exception {
+    val verifier = new PartVerifier("test", 1, 0, part -> {
+      throw new IOException("unreadable");
+    });
+    verifier.submit(part(1));
+
+    assertThat(verifier.take().getPartNumber()).isEqualTo(1);
+    assertThat(verifier.take()).isNull();
+    verifier.shutdownNow();
   }
 
-  @Override
-  public void commitToDisk() {
-    try {
-      is.close();
-    } catch (IOException e) {
-      log.warn("fail to close the input pipe", e);
-    }
+  private static Part part(int partNumber) {
+    return new Part(partNumber, 1024, (partNumber - 1) * 1024L, null, "md5", "md5");
   }
 
 }
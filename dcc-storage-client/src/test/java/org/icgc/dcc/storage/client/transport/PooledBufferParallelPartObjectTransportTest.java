@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.icgc.dcc.storage.client.cli.Terminal;
+import org.icgc.dcc.storage.client.progress.Progress;
+import org.icgc.dcc.storage.client.transport.Transport.Mode;
+import org.icgc.dcc.storage.core.model.DataChannel;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.common.primitives.Bytes;
+
+import lombok.val;
+
+public class PooledBufferParallelPartObjectTransportTest {
+
+  private static final String OBJECT_ID = "a82efa12-9aef-4ac4-9e83-b0e1e1ab0c1a";
+  private static final int PART_SIZE = 4096;
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testReceive() throws Exception {
+    val outputDir = tmp.newFolder();
+    val proxy = createProxy();
+    doAnswer(invocation -> {
+      DataChannel channel = invocation.getArgumentAt(0, DataChannel.class);
+      Part part = invocation.getArgumentAt(1, Part.class);
+      channel.readFrom(new ByteArrayInputStream(content(part.getPartNumber())));
+      return null;
+    }).when(proxy).streamPart(any(DataChannel.class), any(Part.class));
+
+    val budget = new MemoryBudget(1L << 30);
+    createTransport(proxy, budget, Mode.DOWNLOAD, createParts(3)).receive(outputDir);
+
+    val data = Files.toByteArray(new File(outputDir, OBJECT_ID));
+    assertThat(data).hasSize(3 * PART_SIZE);
+    for (int i = 0; i < 3; i++) {
+      assertThat(Arrays.copyOfRange(data, i * PART_SIZE, (i + 1) * PART_SIZE)).isEqualTo(content(i + 1));
+    }
+
+    verify(proxy, times(3)).commitPart(eq(outputDir), eq(OBJECT_ID), any(Part.class));
+    verify(proxy).finalizeDownload(outputDir, OBJECT_ID);
+    assertThat(budget.getAllocated()).isEqualTo(0);
+  }
+
+  @Test
+  public void testSend() throws Exception {
+    val file = tmp.newFile();
+    Files.write(Bytes.concat(content(1), content(2), content(3)), file);
+
+    val proxy = createProxy();
+    val sent = new ConcurrentHashMap<Integer, byte[]>();
+    doAnswer(invocation -> {
+      DataChannel channel = invocation.getArgumentAt(0, DataChannel.class);
+      Part part = invocation.getArgumentAt(1, Part.class);
+      val bytes = new ByteArrayOutputStream();
+      channel.writeTo(bytes);
+      sent.put(part.getPartNumber(), bytes.toByteArray());
+      return null;
+    }).when(proxy).uploadPart(any(DataChannel.class), any(Part.class), anyString(), anyString(), any(File.class));
+
+    val budget = new MemoryBudget(1L << 30);
+    createTransport(proxy, budget, Mode.UPLOAD, createParts(3)).send(file);
+
+    assertSent(sent);
+    verify(proxy).finalizeUpload(OBJECT_ID, OBJECT_ID, null);
+    assertThat(budget.getAllocated()).isEqualTo(0);
+  }
+
+  @Test
+  public void testInterruptedReceiveStopsWorkersBeforeFreeingBuffers() throws Exception {
+    val outputDir = tmp.newFolder();
+    val proxy = createProxy();
+
+    // A missing part holds a buffer while a completed part is still being verified
+    val streaming = new CountDownLatch(1);
+    val stopped = new AtomicBoolean();
+    doAnswer(invocation -> {
+      streaming.countDown();
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        stopped.set(true);
+        throw e;
+      }
+      return null;
+    }).when(proxy).streamPart(any(DataChannel.class), any(Part.class));
+
+    val verifying = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      verifying.countDown();
+      new CountDownLatch(1).await();
+      return null;
+    }).when(proxy).deleteDownloadPart(any(File.class), anyString(), any(Part.class));
+
+    val parts = createParts(2);
+    parts.get(0).setMd5("md5");
+    parts.get(0).setSourceMd5("md5");
+
+    val budget = new MemoryBudget(1L << 30);
+    val transport = createTransport(proxy, budget, Mode.DOWNLOAD, parts);
+    val failure = new AtomicReference<Throwable>();
+    val receiver = new Thread(() -> {
+      try {
+        transport.receive(outputDir);
+      } catch (Throwable t) {
+        failure.set(t);
+      }
+    });
+    receiver.start();
+
+    assertThat(streaming.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(verifying.await(10, TimeUnit.SECONDS)).isTrue();
+    receiver.interrupt();
+    receiver.join(TimeUnit.SECONDS.toMillis(10));
+
+    assertThat(receiver.isAlive()).isFalse();
+    assertThat(failure.get()).isInstanceOf(InterruptedException.class);
+    assertThat(stopped.get()).isTrue();
+    assertThat(budget.getAllocated()).isEqualTo(0);
+  }
+
+  private static void assertSent(Map<Integer, byte[]> sent) {
+    assertThat(sent).hasSize(3);
+    for (int i = 0; i < 3; i++) {
+      assertThat(sent.get(i + 1)).isEqualTo(content(i + 1));
+    }
+  }
+
+  private static byte[] content(int partNumber) {
+    val content = new byte[PART_SIZE];
+    Arrays.fill(content, (byte) partNumber);
+    return content;
+  }
+
+  private static List<Part> createParts(int count) {
+    val parts = Lists.<Part> newArrayList();
+    for (int i = 0; i < count; i++) {
+      parts.add(new Part(i + 1, PART_SIZE, i * PART_SIZE, "https://example.org/" + i, null, null));
+    }
+
+    return parts;
+  }
+
+  private static StorageService createProxy() {
+    val proxy = mock(StorageService.class);
+    when(proxy.getShaper(any(Mode.class))).thenReturn(new BandwidthShaper(0));
+    return proxy;
+  }
+
+  private static Transport createTransport(StorageService proxy, MemoryBudget budget, Mode mode, List<Part> parts) {
+    return PooledBufferParallelPartObjectTransport.builder()
+        .withMemoryBudget(budget)
+        .withNumberOfWorkerThreads(2)
+        .withProxy(proxy)
+        .withProgressBar(new Progress(new Terminal(false, true), true, parts.size(), 0))
+        .withParts(parts)
+        .withObjectId(OBJECT_ID)
+        .withSessionId(OBJECT_ID)
+        .withTransportMode(mode)
+        .withChecksum(true)
+        .build();
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.hash.Hashing;
+
+import lombok.val;
+
+public class PositionalFileDataChannelTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testPartIsWrittenAndReadInPlace() throws Exception {
+    val data = data(1000);
+    val file = tmp.newFile();
+    Files.write(file.toPath(), new byte[3000]);
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      val channel = new PositionalFileDataChannel(raf.getChannel(), 1000, 1000, null);
+      channel.readFrom(new ByteArrayInputStream(data));
+
+      val os = new ByteArrayOutputStream();
+      new PositionalFileDataChannel(raf.getChannel(), 1000, 1000, null).writeTo(os);
+      assertThat(os.toByteArray()).isEqualTo(data);
+      assertThat(channel.verifyMd5(Hashing.md5().hashBytes(data).toString())).isTrue();
+    }
+
+    // Neighbouring ranges are untouched
+    val written = Files.readAllBytes(file.toPath());
+    assertThat(Arrays.copyOfRange(written, 0, 1000)).isEqualTo(new byte[1000]);
+    assertThat(Arrays.copyOfRange(written, 1000, 2000)).isEqualTo(data);
+    assertThat(Arrays.copyOfRange(written, 2000, 3000)).isEqualTo(new byte[1000]);
+  }
+
+  @Test
+  public void testInterruptedReadIsResumed() throws Exception {
+    val data = data(1000);
+    val file = tmp.newFile();
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(1000);
+      val channel = new PositionalFileDataChannel(raf.getChannel(), 0, 1000, null);
+
+      // The stream ends early, as when a connection drops
+      channel.readFrom(new ByteArrayInputStream(data, 0, 400));
+      assertThat(channel.getWritten()).isEqualTo(400);
+
+      channel.readFrom(new ByteArrayInputStream(data, 400, 600));
+      assertThat(channel.getWritten()).isEqualTo(1000);
+    }
+
+    assertThat(Files.readAllBytes(file.toPath())).isEqualTo(data);
+  }
+
+  private static byte[] data(int size) {
+    val data = new byte[size];
+    new Random(1).nextBytes(data);
+    return data;
+  }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.client.cli.Terminal;
+import org.icgc.dcc.storage.client.progress.Progress;
+import org.icgc.dcc.storage.client.transport.Transport.Mode;
+import org.icgc.dcc.storage.core.model.DataChannel;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.primitives.Bytes;
+
+import lombok.val;
+
+public class PositionalParallelPartObjectTransportTest {
+
+  private static final String OBJECT_ID = "a82efa12-9aef-4ac4-9e83-b0e1e1ab0c1a";
+  private static final int PART_SIZE = 4096;
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testPartsCompletingOutOfOrderAreWrittenAtTheirOffsets() throws Exception {
+    val outputDir = tmp.newFolder();
+    val proxy = createProxy();
+
+    // The first part only completes after the last one
+    val lastWritten = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      DataChannel channel = invocation.getArgumentAt(0, DataChannel.class);
+      Part part = invocation.getArgumentAt(1, Part.class);
+      if (part.getPartNumber() == 1) {
+        assertThat(lastWritten.await(10, TimeUnit.SECONDS)).isTrue();
+      }
+
+      channel.readFrom(new ByteArrayInputStream(content(part.getPartNumber())));
+      if (part.getPartNumber() == 4) {
+        lastWritten.countDown();
+      }
+      return null;
+    }).when(proxy).downloadPart(any(DataChannel.class), any(Part.class), anyString(), any(File.class));
+
+    createTransport(proxy, createParts(4, 0)).receive(outputDir);
+
+    assertContent(new File(outputDir, OBJECT_ID), 1, 2, 3, 4);
+    verify(proxy, times(4)).downloadPart(any(DataChannel.class), any(Part.class), anyString(), any(File.class));
+    verify(proxy).finalizeDownload(outputDir, OBJECT_ID);
+  }
+
+  @Test
+  public void testResumeKeepsCompletedParts() throws Exception {
+    val outputDir = tmp.newFolder();
+    val file = new File(outputDir, OBJECT_ID);
+    Files.write(Bytes.concat(content(1), content(2), new byte[PART_SIZE]), file);
+
+    val parts = createParts(3, 0);
+    for (val part : parts.subList(0, 2)) {
+      val md5 = md5(content(part.getPartNumber()));
+      part.setMd5(md5);
+      part.setSourceMd5(md5);
+    }
+
+    val proxy = createProxy();
+    doAnswer(invocation -> {
+      DataChannel channel = invocation.getArgumentAt(0, DataChannel.class);
+      Part part = invocation.getArgumentAt(1, Part.class);
+      assertThat(part.getPartNumber()).isEqualTo(3);
+      channel.readFrom(new ByteArrayInputStream(content(part.getPartNumber())));
+      return null;
+    }).when(proxy).downloadPart(any(DataChannel.class), any(Part.class), anyString(), any(File.class));
+
+    createTransport(proxy, parts).receive(outputDir);
+
+    assertContent(file, 1, 2, 3);
+    verify(proxy, times(1)).downloadPart(any(DataChannel.class), any(Part.class), anyString(), any(File.class));
+    verify(proxy, never()).deleteDownloadPart(any(File.class), anyString(), any(Part.class));
+  }
+
+  @Test
+  public void testRangedDownloadStartsAtTheBeginningOfTheFile() throws Exception {
+    val outputDir = tmp.newFolder();
+    val proxy = createProxy();
+    doAnswer(invocation -> {
+      DataChannel channel = invocation.getArgumentAt(0, DataChannel.class);
+      Part part = invocation.getArgumentAt(1, Part.class);
+      channel.readFrom(new ByteArrayInputStream(content(part.getPartNumber())));
+      return null;
+    }).when(proxy).downloadPart(any(DataChannel.class), any(Part.class), anyString(), any(File.class));
+
+    // Parts 6 and 7 of the object
+    createTransport(proxy, createParts(2, 5)).receive(outputDir);
+
+    assertContent(new File(outputDir, OBJECT_ID), 6, 7);
+  }
+
+  private static void assertContent(File file, int... partNumbers) throws Exception {
+    val data = Files.toByteArray(file);
+    assertThat(data).hasSize(partNumbers.length * PART_SIZE);
+    for (int i = 0; i < partNumbers.length; i++) {
+      assertThat(Arrays.copyOfRange(data, i * PART_SIZE, (i + 1) * PART_SIZE)).isEqualTo(content(partNumbers[i]));
+    }
+  }
+
+  private static byte[] content(int partNumber) {
+    val content = new byte[PART_SIZE];
+    Arrays.fill(content, (byte) partNumber);
+    return content;
+  }
+
+  private static String md5(byte[] content) {
+    return Hashing.md5().hashBytes(content).toString();
+  }
+
+  /**
+   * @param first the number of parts of the object that precede the requested ones
+   */
+  private static List<Part> createParts(int count, int first) {
+    val parts = Lists.<Part> newArrayList();
+    for (int i = first; i < first + count; i++) {
+      parts.add(new Part(i + 1, PART_SIZE, (long) i * PART_SIZE, "https://example.org/" + i, null, null));
+    }
+
+    return parts;
+  }
+
+  private static StorageService createProxy() {
+    val proxy = mock(StorageService.class);
+    when(proxy.getShaper(any(Mode.class))).thenReturn(new BandwidthShaper(0));
+    return proxy;
+  }
+
+  private static Transport createTransport(StorageService proxy, List<Part> parts) {
+    return PositionalParallelPartObjectTransport.builder()
+        .withNumberOfWorkerThreads(2)
+        .withProxy(proxy)
+        .withProgressBar(new Progress(new Terminal(false, true), true, parts.size(), 0))
+        .withParts(parts)
+        .withObjectId(OBJECT_ID)
+        .withSessionId(OBJECT_ID)
+        .withTransportMode(Mode.DOWNLOAD)
+        .withChecksum(true)
+        .build();
+  }
+
+}
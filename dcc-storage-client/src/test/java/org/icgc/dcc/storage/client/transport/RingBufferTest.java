@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import lombok.val;
+
+public class RingBufferTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testContentWrapsAroundTheRing() throws Exception {
+    val data = randomBytes(100_000);
+    val ring = new RingBuffer(1000);
+
+    val writer = CompletableFuture.runAsync(() -> {
+      try (val os = ring.getOutputStream()) {
+        for (int off = 0; off < data.length; off += 777) {
+          os.write(data, off, Math.min(777, data.length - off));
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    assertThat(ByteStreams.toByteArray(ring.getInputStream())).isEqualTo(data);
+    writer.get();
+  }
+
+  @Test(expected = IOException.class)
+  public void testWriterFailureReachesReader() throws Exception {
+    val ring = new RingBuffer(16);
+    ring.getOutputStream().write(1);
+    ring.fail(new IllegalStateException("disk"));
+
+    val is = ring.getInputStream();
+    assertThat(is.read()).isEqualTo(1);
+    is.read();
+  }
+
+  @Test(expected = IOException.class)
+  public void testClosedReaderStopsWriter() throws Exception {
+    val ring = new RingBuffer(16);
+    ring.getInputStream().close();
+    ring.getOutputStream().write(new byte[32]);
+  }
+
+  @Test
+  public void testPartIsStreamedFromFile() throws Exception {
+    val data = randomBytes(50_000);
+    val file = tmp.newFile();
+    Files.write(file.toPath(), data);
+
+    val readers = Executors.newSingleThreadExecutor();
+    try {
+      val channel = new RingBufferDataChannel(file, 1000, 40_000, 4096, readers);
+      for (int i = 0; i < 2; i++) {
+        val os = new ByteArrayOutputStream();
+        channel.writeTo(os);
+
+        assertThat(os.size()).isEqualTo(40_000);
+        assertThat(channel.getMd5()).isEqualTo(Hashing.md5().hashBytes(data, 1000, 40_000).toString());
+      }
+    } finally {
+      readers.shutdownNow();
+    }
+  }
+
+  private static byte[] randomBytes(int size) {
+    val data = new byte[size];
+    new Random(1).nextBytes(data);
+    return data;
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import org.icgc.dcc.storage.client.cli.Terminal;
+import org.icgc.dcc.storage.client.progress.Progress;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import lombok.val;
+
+public class SequentialPartObjectTransportTest {
+
+  private static final String OBJECT_ID = "a82efa12-9aef-4ac4-9e83-b0e1e1ab0c1a";
+  private static final int PART_SIZE = 1000;
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testUploadIsFinalizedWithComputedMd5() throws Exception {
+    val file = createFile(3 * PART_SIZE - 100);
+    val parts = createParts(file.length());
+    val proxy = mock(StorageService.class);
+
+    createTransport(proxy, parts, new ObjectDigester(file, parts)).send(file);
+
+    verify(proxy).finalizeUpload(OBJECT_ID, OBJECT_ID, Files.hash(file, Hashing.md5()).toString());
+  }
+
+  @Test
+  public void testUploadFallsBackToFileMd5() throws Exception {
+    val file = createFile(3 * PART_SIZE);
+    val parts = createParts(file.length());
+    val proxy = mock(StorageService.class);
+
+    // E.g. a resumed upload whose remaining parts were never handed to the digester
+    val digester = new ObjectDigester(file, parts);
+    createTransport(proxy, parts.subList(1, parts.size()), digester).send(file);
+
+    verify(proxy).finalizeUpload(OBJECT_ID, OBJECT_ID, Files.hash(file, Hashing.md5()).toString());
+  }
+
+  private File createFile(int size) throws Exception {
+    val data = new byte[size];
+    new Random(1).nextBytes(data);
+    val file = tmp.newFile();
+    Files.write(data, file);
+
+    return file;
+  }
+
+  private static List<Part> createParts(long size) {
+    val parts = Lists.<Part> newArrayList();
+    for (long offset = 0; offset < size; offset += PART_SIZE) {
+      parts.add(new Part(parts.size() + 1, Math.min(PART_SIZE, size - offset), offset, null, null, null));
+    }
+
+    return parts;
+  }
+
+  private static Transport createTransport(StorageService proxy, List<Part> parts, ObjectDigester digester) {
+    return SequentialPartObjectTransport.builder()
+        .withProxy(proxy)
+        .withProgressBar(new Progress(new Terminal(false, true), true, parts.size(), 0))
+        .withParts(parts)
+        .withObjectId(OBJECT_ID)
+        .withSessionId(OBJECT_ID)
+        .withDigester(digester)
+        .build();
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+
+import org.icgc.dcc.storage.client.exception.RetryableException;
+import org.icgc.dcc.storage.core.model.DataChannel;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import lombok.val;
+
+public class StorageServiceTest {
+
+  private static final String OBJECT_ID = "a82efa12-9aef-4ac4-9e83-b0e1e1ab0c1a";
+
+  private final ConcurrencyController concurrency = new ConcurrencyController(1, 8, 16);
+  private final RestTemplate dataTemplate = mock(RestTemplate.class);
+  private final DataChannel channel = mock(DataChannel.class);
+  private final StorageService storageService = new StorageService();
+
+  @Before
+  public void setUp() {
+    val retry = new RetryTemplate();
+    retry.setRetryPolicy(new SimpleRetryPolicy(1));
+
+    ReflectionTestUtils.setField(storageService, "retry", retry);
+    ReflectionTestUtils.setField(storageService, "concurrency", concurrency);
+    ReflectionTestUtils.setField(storageService, "hedger", new PartHedger(0, concurrency));
+    ReflectionTestUtils.setField(storageService, "dataTemplate", dataTemplate);
+    ReflectionTestUtils.setField(storageService, "downloadShaper", new BandwidthShaper(0));
+    ReflectionTestUtils.setField(storageService, "uploadShaper", new BandwidthShaper(0));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCorruptedDownloadDoesNotReduceConcurrency() throws Exception {
+    when(dataTemplate.execute(any(URI.class), eq(HttpMethod.GET), any(RequestCallback.class),
+        any(ResponseExtractor.class))).thenReturn("corrupted");
+
+    try {
+      storageService.streamPart(channel, createPart());
+      fail("Expected the checksum to fail");
+    } catch (RetryableException e) {
+      // Expected
+    }
+
+    assertThat(concurrency.getLimit()).isEqualTo(8);
+    assertThat(concurrency.tryAcquire()).isTrue();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCorruptedUploadDoesNotReduceConcurrency() throws Exception {
+    val headers = new HttpHeaders();
+    headers.setETag("\"etag\"");
+    when(dataTemplate.execute(any(URI.class), eq(HttpMethod.PUT), any(RequestCallback.class),
+        any(ResponseExtractor.class))).thenReturn(headers);
+    when(channel.getMd5()).thenReturn("corrupted");
+
+    try {
+      storageService.uploadPart(channel, createPart(), OBJECT_ID, OBJECT_ID);
+      fail("Expected the checksum to fail");
+    } catch (RetryableException e) {
+      // Expected
+    }
+
+    assertThat(concurrency.getLimit()).isEqualTo(8);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFailedTransferReducesConcurrency() throws Exception {
+    when(dataTemplate.execute(any(URI.class), eq(HttpMethod.GET), any(RequestCallback.class),
+        any(ResponseExtractor.class))).thenThrow(new ResourceAccessException("Read timed out"));
+
+    try {
+      storageService.streamPart(channel, createPart());
+      fail("Expected the transfer to fail");
+    } catch (RetryableException e) {
+      // Expected
+    }
+
+    assertThat(concurrency.getLimit()).isEqualTo(4);
+  }
+
+  private static Part createPart() {
+    return new Part(1, 4, 0, "https://example.org/part", null, "expected");
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.icgc.dcc.storage.client.cli.Terminal;
+import org.icgc.dcc.storage.client.exception.NotRetryableException;
+import org.icgc.dcc.storage.client.progress.Progress;
+import org.icgc.dcc.storage.client.transport.Transport.Mode;
+import org.icgc.dcc.storage.core.model.DataChannel;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Bytes;
+
+import lombok.val;
+
+public class StreamingParallelPartObjectTransportTest {
+
+  private static final String OBJECT_ID = "a82efa12-9aef-4ac4-9e83-b0e1e1ab0c1a";
+  private static final int PART_SIZE = 1000;
+
+  @Test
+  public void testPartsAreStreamedInOrder() throws Exception {
+    val proxy = createProxy();
+    doAnswer(invocation -> {
+      DataChannel channel = invocation.getArgumentAt(0, DataChannel.class);
+      Part part = invocation.getArgumentAt(1, Part.class);
+
+      // Later parts complete first
+      Thread.sleep(50 * (4 - part.getPartNumber()));
+      channel.readFrom(new ByteArrayInputStream(content(part.getPartNumber())));
+      return null;
+    }).when(proxy).streamPart(any(DataChannel.class), any(Part.class));
+
+    val output = new ByteArrayOutputStream();
+    createTransport(proxy, createParts(3, PART_SIZE), 1024 * 1024).receive(output);
+
+    assertThat(output.toByteArray()).isEqualTo(Bytes.concat(content(1), content(2), content(3)));
+  }
+
+  @Test
+  public void testFailedPartAbortsTheStream() throws Exception {
+    val proxy = createProxy();
+    doAnswer(invocation -> {
+      DataChannel channel = invocation.getArgumentAt(0, DataChannel.class);
+      Part part = invocation.getArgumentAt(1, Part.class);
+      if (part.getPartNumber() == 2) {
+        throw new IOException("Connection reset");
+      }
+
+      channel.readFrom(new ByteArrayInputStream(content(part.getPartNumber())));
+      return null;
+    }).when(proxy).streamPart(any(DataChannel.class), any(Part.class));
+
+    val output = new ByteArrayOutputStream();
+    try {
+      createTransport(proxy, createParts(3, PART_SIZE), 1024 * 1024).receive(output);
+      fail("Expected the stream to fail");
+    } catch (Exception e) {
+      // Expected
+    }
+
+    // Nothing after the failed part makes it to the output
+    assertThat(output.size()).isLessThanOrEqualTo(PART_SIZE);
+  }
+
+  @Test
+  public void testPartLargerThanTheWindowIsRejected() throws Exception {
+    val proxy = createProxy();
+
+    try {
+      createTransport(proxy, createParts(2, 4 * 1024 * 1024), 1024 * 1024).receive(new ByteArrayOutputStream());
+      fail("Expected the part size to be rejected");
+    } catch (NotRetryableException e) {
+      assertThat(e.getCause().getMessage()).contains("does not fit");
+    }
+
+    verify(proxy, never()).streamPart(any(DataChannel.class), any(Part.class));
+  }
+
+  private static byte[] content(int partNumber) {
+    val content = new byte[PART_SIZE];
+    Arrays.fill(content, (byte) partNumber);
+    return content;
+  }
+
+  private static List<Part> createParts(int count, int partSize) {
+    val parts = Lists.<Part> newArrayList();
+    for (int i = 0; i < count; i++) {
+      parts.add(new Part(i + 1, partSize, (long) i * partSize, "https://example.org/" + i, null, null));
+    }
+
+    return parts;
+  }
+
+  private static StorageService createProxy() {
+    val proxy = mock(StorageService.class);
+    when(proxy.getShaper(any(Mode.class))).thenReturn(new BandwidthShaper(0));
+    return proxy;
+  }
+
+  private static StreamingParallelPartObjectTransport createTransport(StorageService proxy, List<Part> parts,
+      long memory) {
+    val builder = StreamingParallelPartObjectTransport.builder();
+    builder
+        .withMemory(memory)
+        .withNumberOfWorkerThreads(3)
+        .withProxy(proxy)
+        .withProgressBar(new Progress(new Terminal(false, true), true, parts.size(), 0))
+        .withParts(parts)
+        .withObjectId(OBJECT_ID)
+        .withSessionId(OBJECT_ID)
+        .withTransportMode(Mode.DOWNLOAD);
+
+    return builder.build();
+  }
+
+}
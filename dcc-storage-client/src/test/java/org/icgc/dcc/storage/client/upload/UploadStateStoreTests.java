@@ -4,14 +4,23 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Optional;
 
 import lombok.val;
 
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
 
 public class UploadStateStoreTests {
 
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
   File getTestResourceRoot() {
     return new File(getClass().getClassLoader().getResource("fixtures/upload/placeholder-upload-file.txt").getFile());
   }
@@ -37,4 +46,19 @@ public class UploadStateStoreTests {
     val resultFile = UploadStateStore.getContainingDir(testFile);
     assertThat(resultFile).isNotNull();
   }
+
+  @Test
+  public void test_fingerprinted_parts_are_unchanged_until_file_is_modified() throws IOException {
+    val uploadFile = tmp.newFile("file.bam");
+    Files.write(uploadFile.toPath(), new byte[100]);
+    UploadStateStore.getObjectStateDir(tmp.getRoot(), "object-id").mkdirs();
+
+    val part = new Part(1, 100, 0, null, "md5", null);
+    UploadStateStore.commitPart(uploadFile, "object-id", part, "md5");
+    assertThat(UploadStateStore.fetchUnchangedParts(uploadFile, "object-id", ImmutableList.of(part))).containsOnly(1);
+
+    uploadFile.setLastModified(uploadFile.lastModified() - 60000);
+    assertThat(UploadStateStore.fetchUnchangedParts(uploadFile, "object-id", ImmutableList.of(part))).isEmpty();
+  }
+
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.upload.s3;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.icgc.dcc.storage.client.cli.Terminal;
+import org.icgc.dcc.storage.client.transport.StorageService;
+import org.icgc.dcc.storage.client.transport.Transport;
+import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.core.model.Part;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+import lombok.val;
+
+public class S3UploadServiceTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testConcurrentUploadsKeepTheirOwnTransport() throws Exception {
+    val storageService = mock(StorageService.class);
+    when(storageService.initiateUpload(anyString(), anyLong(), anyBoolean(), anyString()))
+        .thenAnswer(invocation -> {
+          String objectId = invocation.getArgumentAt(0, String.class);
+          return new ObjectSpecification(objectId, objectId, "upload-" + objectId,
+              ImmutableList.of(new Part(1, 4, 0, "https://example.org/" + objectId, null, null)), 4, null, false);
+        });
+
+    val builder = new RecordingBuilder();
+    val service = new S3UploadService();
+    ReflectionTestUtils.setField(service, "retryNumber", 1);
+    ReflectionTestUtils.setField(service, "quiet", true);
+    ReflectionTestUtils.setField(service, "storageService", storageService);
+    ReflectionTestUtils.setField(service, "transportBuilder", builder);
+    ReflectionTestUtils.setField(service, "terminal", new Terminal(false, true));
+
+    val start = new CountDownLatch(1);
+    val executor = Executors.newFixedThreadPool(2);
+    for (val objectId : ImmutableList.of("a", "b")) {
+      val file = new File(tmp.newFolder(), objectId);
+      Files.write(objectId.getBytes(), file);
+
+      executor.submit(() -> {
+        start.await();
+        service.upload(file, objectId, "md5", true);
+        return null;
+      });
+    }
+
+    start.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(builder.sent).containsOnlyKeys("a", "b");
+    for (val objectId : ImmutableList.of("a", "b")) {
+      val sent = builder.sent.get(objectId);
+      assertThat(sent.getUploadId()).isEqualTo("upload-" + objectId);
+      assertThat(sent.getParts()).extracting("url").containsExactly("https://example.org/" + objectId);
+      assertThat(sent.getKey()).isEqualTo(objectId);
+    }
+  }
+
+  /**
+   * Builder that is slow to configure, so that concurrent uploads overlap while they use it.
+   */
+  private static class RecordingBuilder extends Transport.AbstractBuilder {
+
+    private final Map<String, ObjectSpecification> sent = new ConcurrentHashMap<>();
+
+    @Override
+    public Transport.Builder withObjectId(String objectId) {
+      super.withObjectId(objectId);
+      sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+      return this;
+    }
+
+    @Override
+    public Transport build() {
+      String objectId = this.objectId;
+      String uploadId = this.uploadId;
+      List<Part> parts = this.parts;
+
+      return new Transport() {
+
+        @Override
+        public void send(File file) {
+          // Records the object the file was uploaded as, keyed by the file it came from
+          sent.put(file.getName(), new ObjectSpecification(objectId, objectId, uploadId, parts, 0, null, false));
+        }
+
+        @Override
+        public void receive(File file) {
+          throw new UnsupportedOperationException();
+        }
+
+      };
+    }
+
+  }
+
+}
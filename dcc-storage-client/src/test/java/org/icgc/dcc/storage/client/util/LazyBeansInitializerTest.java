@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.client.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.storage.client.util.LazyBeansInitializer.lazyBeans;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+public class LazyBeansInitializerTest {
+
+  private static final AtomicInteger eagerCreated = new AtomicInteger();
+  private static final AtomicInteger lazyCreated = new AtomicInteger();
+
+  @Test
+  public void testLazyBeans() {
+    try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+      context.register(EagerBean.class, LazyBean.class);
+      lazyBeans(EagerBean.class).initialize(context);
+      context.refresh();
+
+      assertThat(eagerCreated.get()).isEqualTo(1);
+      assertThat(lazyCreated.get()).isEqualTo(0);
+
+      context.getBean(LazyBean.class);
+      assertThat(lazyCreated.get()).isEqualTo(1);
+    }
+  }
+
+  public static class EagerBean {
+
+    public EagerBean() {
+      eagerCreated.incrementAndGet();
+    }
+
+  }
+
+  public static class LazyBean {
+
+    public LazyBean() {
+      lazyCreated.incrementAndGet();
+    }
+
+  }
+
+}
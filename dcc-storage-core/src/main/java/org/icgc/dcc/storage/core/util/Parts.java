@@ -34,7 +34,14 @@ public final class Parts {
    * Generates Range header for part URL.
    */
   public static String getHttpRangeValue(@NonNull Part part) {
-    return String.valueOf("bytes=" + part.getOffset()) + "-"
+    return getHttpRangeValue(part, 0L);
+  }
+
+  /**
+   * Generates Range header for the remainder of a part, starting {@code start} bytes into it.
+   */
+  public static String getHttpRangeValue(@NonNull Part part, long start) {
+    return String.valueOf("bytes=" + (part.getOffset() + start)) + "-"
         + String.valueOf(part.getOffset() + part.getPartSize() - 1L);
   }
 
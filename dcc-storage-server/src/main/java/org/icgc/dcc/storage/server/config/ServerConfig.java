@@ -17,9 +17,9 @@
  */
 package org.icgc.dcc.storage.server.config;
 
+import org.icgc.dcc.storage.server.repository.AdaptivePartCalculator;
 import org.icgc.dcc.storage.server.repository.BucketNamingService;
 import org.icgc.dcc.storage.server.repository.PartCalculator;
-import org.icgc.dcc.storage.server.repository.SimplePartCalculator;
 import org.icgc.dcc.storage.server.repository.URLGenerator;
 import org.icgc.dcc.storage.server.repository.UploadStateStore;
 import org.icgc.dcc.storage.server.repository.s3.S3BucketNamingService;
@@ -39,6 +39,8 @@ public class ServerConfig {
 
   @Value("${upload.partsize}")
   private int partSize;
+  @Value("${upload.maxpartsize}")
+  private long maxPartSize;
 
   @Bean
   public UploadStateStore stateStore() {
@@ -47,7 +49,7 @@ public class ServerConfig {
 
   @Bean
   public PartCalculator calculator() {
-    return new SimplePartCalculator(partSize);
+    return new AdaptivePartCalculator(partSize, maxPartSize);
   }
 
   @Bean
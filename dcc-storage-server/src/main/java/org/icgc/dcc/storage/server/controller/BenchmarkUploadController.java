@@ -24,6 +24,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.apache.tomcat.util.http.fileupload.IOUtils;
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.server.repository.PartHints;
 import org.icgc.dcc.storage.server.repository.UploadService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
@@ -68,9 +69,14 @@ public class BenchmarkUploadController extends UploadController {
       @RequestParam(value = "overwrite", required = false, defaultValue = "false") boolean overwrite,
       @RequestParam(value = "fileSize", required = true) long fileSize,
       @RequestParam(value = "md5", required = false) String md5,
+      @RequestParam(value = "partSize", defaultValue = "0") long partSize,
+      @RequestParam(value = "maxPartSize", defaultValue = "0") long maxPartSize,
+      @RequestParam(value = "parallelism", defaultValue = "0") int parallelism,
+      @RequestParam(value = "bandwidth", defaultValue = "0") long bandwidth,
       @RequestHeader(value = "User-Agent", defaultValue = "unknown") String userAgent,
       HttpServletRequest request) {
-    return uploadService.initiateUpload(objectId, fileSize, md5, overwrite);
+    return uploadService.initiateUpload(objectId, fileSize, md5, overwrite,
+        new PartHints(partSize, maxPartSize, parallelism, bandwidth));
   }
 
   @Override
@@ -105,7 +111,8 @@ public class BenchmarkUploadController extends UploadController {
   public void finalizeUpload(
       @RequestHeader(value = "access-token", required = true) final String accessToken,
       @PathVariable(value = "object-id") String objectId,
-      @RequestParam(value = "uploadId", required = true) String uploadId) {
+      @RequestParam(value = "uploadId", required = true) String uploadId,
+      @RequestParam(value = "md5", required = false) String md5) {
     // NO-OP
   }
 
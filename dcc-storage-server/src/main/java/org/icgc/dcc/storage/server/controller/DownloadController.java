@@ -17,10 +17,14 @@
  */
 package org.icgc.dcc.storage.server.controller;
 
+import java.util.List;
+
 import javax.servlet.http.HttpServletRequest;
 
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.core.model.Part;
 import org.icgc.dcc.storage.server.repository.DownloadService;
+import org.icgc.dcc.storage.server.repository.PartHints;
 import org.icgc.dcc.storage.server.security.TokenHasher;
 import org.icgc.dcc.storage.server.util.HttpServletRequests;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +36,7 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -76,6 +81,10 @@ public class DownloadController {
       @RequestParam(value = "offset", required = true) long offset,
       @RequestParam(value = "length", required = true) long length,
       @RequestParam(value = "external", defaultValue = "false") boolean external,
+      @RequestParam(value = "partSize", defaultValue = "0") long partSize,
+      @RequestParam(value = "maxPartSize", defaultValue = "0") long maxPartSize,
+      @RequestParam(value = "parallelism", defaultValue = "0") int parallelism,
+      @RequestParam(value = "bandwidth", defaultValue = "0") long bandwidth,
       @RequestHeader(value = "User-Agent", defaultValue = "unknown") String userAgent,
       HttpServletRequest request) {
 
@@ -83,7 +92,25 @@ public class DownloadController {
 
     log.info("Requesting download of object id {} with access token {} (MD5) from {} and client version {}", objectId,
         identifier(accessToken), ipAddress, userAgent);
-    return downloadService.download(objectId, offset, length, external);
+    return downloadService.download(objectId, offset, length, external,
+        new PartHints(partSize, maxPartSize, parallelism, bandwidth));
+  }
+
+  @PreAuthorize("@projectSecurity.authorize(authentication,#objectId)")
+  @RequestMapping(method = RequestMethod.POST, value = "/{object-id}/parts")
+  public @ResponseBody List<Part> refreshPartUrls(
+      @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) final String accessToken,
+      @PathVariable(value = "object-id") String objectId,
+      @RequestParam(value = "objectMd5", required = false) String objectMd5,
+      @RequestBody List<Part> parts,
+      @RequestHeader(value = "User-Agent", defaultValue = "unknown") String userAgent,
+      HttpServletRequest request) {
+
+    val ipAddress = HttpServletRequests.getIpAddress(request);
+
+    log.info("Refreshing URLs of {} parts of object id {} with access token {} (MD5) from {} and client version {}",
+        parts.size(), objectId, identifier(accessToken), ipAddress, userAgent);
+    return downloadService.getPartUrls(objectId, objectMd5, parts);
   }
 
   protected String identifier(String accessToken) {
@@ -25,6 +25,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
 import org.icgc.dcc.storage.core.model.UploadProgress;
+import org.icgc.dcc.storage.server.repository.PartHints;
 import org.icgc.dcc.storage.server.repository.UploadService;
 import org.icgc.dcc.storage.server.security.TokenHasher;
 import org.icgc.dcc.storage.server.util.HttpServletRequests;
@@ -72,6 +73,10 @@ public class UploadController {
       @RequestParam(value = "overwrite", required = false, defaultValue = "false") boolean overwrite,
       @RequestParam(value = "fileSize", required = true) long fileSize,
       @RequestParam(value = "md5", required = false) String md5,
+      @RequestParam(value = "partSize", defaultValue = "0") long partSize,
+      @RequestParam(value = "maxPartSize", defaultValue = "0") long maxPartSize,
+      @RequestParam(value = "parallelism", defaultValue = "0") int parallelism,
+      @RequestParam(value = "bandwidth", defaultValue = "0") long bandwidth,
       @RequestHeader(value = "User-Agent", defaultValue = "unknown") String userAgent,
       HttpServletRequest request) {
 
@@ -85,7 +90,8 @@ public class UploadController {
         Long.toString(fileSize),
         ipAddress,
         userAgent);
-    return uploadService.initiateUpload(objectId, fileSize, md5, overwrite);
+    return uploadService.initiateUpload(objectId, fileSize, md5, overwrite,
+        new PartHints(partSize, maxPartSize, parallelism, bandwidth));
   }
 
   @ProjectCodeScoped
@@ -128,9 +134,10 @@ public class UploadController {
   public void finalizeUpload(
       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = true) final String accessToken,
       @PathVariable(value = "object-id") String objectId,
-      @RequestParam(value = "uploadId", required = true) String uploadId) {
+      @RequestParam(value = "uploadId", required = true) String uploadId,
+      @RequestParam(value = "md5", required = false) String md5) {
     val watch = Stopwatch.createStarted();
-    uploadService.finalizeUpload(objectId, uploadId);
+    uploadService.finalizeUpload(objectId, uploadId, md5);
     log.info("Finalize upload completed in {}", watch);
   }
 
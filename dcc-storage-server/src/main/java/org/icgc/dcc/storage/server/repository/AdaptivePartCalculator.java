@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.repository;
+
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.icgc.dcc.storage.core.model.Part;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableList.Builder;
+
+/**
+ * Picks the part size from the hints sent by the client.
+ * <p>
+ * Parts have to be large enough for the per-request overhead (round trip, pre-signing, TLS) to be small compared to
+ * the time spent moving data, and small enough that every connection of the client gets several parts and a retried
+ * part doesn't throw away minutes of work. Sizes derived from hints are rounded down to whole MiB. Without hints the
+ * configured part size is used unchanged, as by {@link SimplePartCalculator}.
+ */
+@Slf4j
+public class AdaptivePartCalculator implements PartCalculator {
+
+  private static final int MAX_NUM_PART = 10000;
+  private static final long MIN_PART_SIZE = 5 * 1024 * 1024; // 5MB, smallest multipart part S3 accepts
+  private static final long DEFAULT_PART_SIZE = 20 * 1024 * 1024; // 20MB
+  private static final long PART_SIZE_ALIGNMENT = 1024 * 1024;
+
+  /**
+   * Time a part request costs on top of the transfer itself.
+   */
+  private static final long REQUEST_OVERHEAD_MILLIS = 100;
+
+  /**
+   * Transfer time of a part relative to its overhead, i.e. overhead stays below 5%.
+   */
+  private static final int OVERHEAD_RATIO = 20;
+
+  /**
+   * Longest a part should take on a single connection, which bounds the work lost by a retry.
+   */
+  private static final long MAX_PART_SECONDS = 60;
+
+  /**
+   * Parts per connection so that the last parts of an object don't leave most connections idle.
+   */
+  private static final int PARTS_PER_CONNECTION = 4;
+
+  private final long defaultPartSize;
+  private final long maxPartSize;
+
+  public AdaptivePartCalculator(long defaultPartSize, long maxPartSize) {
+    this.defaultPartSize = Math.max(defaultPartSize, DEFAULT_PART_SIZE);
+    this.maxPartSize = Math.max(maxPartSize, this.defaultPartSize);
+  }
+
+  @Override
+  public List<Part> divide(long fileSize) {
+    return divide(0, fileSize);
+  }
+
+  @Override
+  public List<Part> divide(long offset, long objectLength) {
+    return divide(offset, objectLength, PartHints.NONE);
+  }
+
+  @Override
+  public List<Part> divide(long offset, long objectLength, PartHints hints) {
+    long partSize = getPartSize(objectLength, hints);
+    log.debug("Part Size: {} ({})", partSize, hints);
+
+    Builder<Part> parts = ImmutableList.builder();
+    long currentTotalLength = 0;
+    for (int i = 1; currentTotalLength < objectLength; ++i) {
+      long size = Math.min(partSize, objectLength - currentTotalLength);
+      parts.add(new Part(i, size, offset + currentTotalLength, null, null, null));
+      currentTotalLength += size;
+    }
+    return parts.build();
+  }
+
+  @Override
+  public List<Part> specify(long offset, long length) {
+    return ImmutableList.of(new Part(1, length, offset, null, null, null));
+  }
+
+  long getPartSize(long objectLength, PartHints hints) {
+    long partSize;
+    boolean hinted = true;
+    if (hints.getPartSize() > 0) {
+      partSize = hints.getPartSize();
+    } else if (hints.getParallelism() > 0 || hints.getBandwidth() > 0) {
+      partSize = getBalancedPartSize(objectLength, Math.max(1, hints.getParallelism()), hints.getBandwidth());
+    } else {
+      partSize = defaultPartSize;
+      hinted = false;
+    }
+
+    long upperBound = maxPartSize;
+    if (hints.getMaxPartSize() > 0) {
+      upperBound = Math.max(Math.min(hints.getMaxPartSize(), upperBound), MIN_PART_SIZE);
+    }
+
+    partSize = Math.min(Math.max(partSize, MIN_PART_SIZE), upperBound);
+    if (hinted) {
+      partSize = align(partSize);
+    }
+
+    // The part count limit is a hard one, so it wins over everything else
+    return Math.max(partSize, (objectLength + MAX_NUM_PART - 1) / MAX_NUM_PART);
+  }
+
+  private long getBalancedPartSize(long objectLength, int parallelism, long bandwidth) {
+    // Enough parts to keep every connection busy until the end
+    long partSize = objectLength / (parallelism * PARTS_PER_CONNECTION);
+    if (bandwidth <= 0) {
+      return Math.max(partSize, defaultPartSize);
+    }
+
+    long connectionBandwidth = Math.max(1, bandwidth / parallelism);
+    long overheadPartSize = connectionBandwidth * REQUEST_OVERHEAD_MILLIS * OVERHEAD_RATIO / 1000;
+    long retryPartSize = connectionBandwidth * MAX_PART_SECONDS;
+
+    return Math.min(Math.max(partSize, overheadPartSize), retryPartSize);
+  }
+
+  private static long align(long partSize) {
+    // Rounds down, so the bounds above still hold
+    return partSize - partSize % PART_SIZE_ALIGNMENT;
+  }
+
+}
@@ -17,11 +17,27 @@
  */
 package org.icgc.dcc.storage.server.repository;
 
+import java.util.List;
+
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.core.model.Part;
 
 public interface DownloadService {
 
-  ObjectSpecification download(String objectId, long offset, long length, boolean forExternalUse);
+  /**
+   * Returns the specification of the requested range of the object. The part sizes are chosen from the client's
+   * {@code hints}, which are ignored for external use since that always yields a single part.
+   */
+  ObjectSpecification download(String objectId, long offset, long length, boolean forExternalUse, PartHints hints);
+
+  /**
+   * Generates fresh pre-signed URLs for parts of an object, so that a download whose URLs expired can continue with
+   * the parts it still needs.
+   * @param objectMd5 MD5 of the object when the download started, if known. The request fails if the object has changed
+   * since.
+   * @return the same parts with their URLs replaced
+   */
+  List<Part> getPartUrls(String objectId, String objectMd5, List<Part> parts);
 
   /**
    * Attempts to fetch a pre-defined object id (defined in application.yml) from the object repository. Used to confirm
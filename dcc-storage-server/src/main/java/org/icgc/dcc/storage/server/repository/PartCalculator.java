@@ -30,6 +30,11 @@ public interface PartCalculator {
 
   public List<Part> divide(long fileSize);
 
+  /**
+   * Divides the range into parts, taking into account how the client intends to transfer them.
+   */
+  public List<Part> divide(long offset, long fileSize, PartHints hints);
+
   public List<Part> specify(long offset, long length);
 
 }
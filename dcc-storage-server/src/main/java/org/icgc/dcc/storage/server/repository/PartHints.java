@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.repository;
+
+import lombok.Value;
+
+/**
+ * Hints a client sends along with a request for an object specification, describing how it intends to transfer the
+ * parts. A value of {@code 0} means the client has no preference.
+ */
+@Value
+public class PartHints {
+
+  public static final PartHints NONE = new PartHints(0L, 0L, 0, 0L);
+
+  /**
+   * Part size (bytes) the client would like to use.
+   */
+  long partSize;
+
+  /**
+   * Largest part (bytes) the client can hold in memory while keeping all its connections busy.
+   */
+  long maxPartSize;
+
+  /**
+   * Number of parts the client transfers at the same time.
+   */
+  int parallelism;
+
+  /**
+   * Expected throughput (bytes/s) of the client's link.
+   */
+  long bandwidth;
+
+  public boolean isEmpty() {
+    return partSize <= 0 && maxPartSize <= 0 && parallelism <= 0 && bandwidth <= 0;
+  }
+
+}
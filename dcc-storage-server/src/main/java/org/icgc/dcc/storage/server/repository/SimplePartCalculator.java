@@ -60,6 +60,12 @@ public class SimplePartCalculator implements PartCalculator {
     return parts.build();
   }
 
+  @Override
+  public List<Part> divide(long offset, long objectLength, PartHints hints) {
+    // Fixed part size, hints are ignored
+    return divide(offset, objectLength);
+  }
+
   @Override
   public List<Part> specify(long offset, long length) {
     return ImmutableList.of(new Part(1, length, offset, null, null, null));
@@ -27,13 +27,20 @@ import com.amazonaws.services.s3.model.ObjectMetadata;
 
 public interface UploadService {
 
-  ObjectSpecification initiateUpload(String objectId, long fileSize, String md5, boolean overwrite);
+  /**
+   * Starts a multipart upload. The part sizes are chosen from the client's {@code hints}.
+   */
+  ObjectSpecification initiateUpload(String objectId, long fileSize, String md5, boolean overwrite, PartHints hints);
 
   boolean exists(String objectId);
 
   void finalizeUploadPart(String objectId, String uploadId, int partNumber, String md5, String eTag);
 
-  void finalizeUpload(String objectId, String uploadId);
+  /**
+   * Completes the upload. {@code md5} is the MD5 of the whole object as computed by the client while uploading, or
+   * {@code null} if it was supplied when the upload was initiated.
+   */
+  void finalizeUpload(String objectId, String uploadId, String md5);
 
   String getUploadId(String objectId);
 
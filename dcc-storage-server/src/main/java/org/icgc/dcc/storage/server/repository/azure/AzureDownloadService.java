@@ -18,6 +18,7 @@
 package org.icgc.dcc.storage.server.repository.azure;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.isNullOrEmpty;
 
 import lombok.Setter;
 import lombok.val;
@@ -28,6 +29,7 @@ import java.util.List;
 
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
 import org.icgc.dcc.storage.core.model.Part;
+import org.icgc.dcc.storage.core.util.MD5s;
 import org.icgc.dcc.storage.core.util.ObjectKeys;
 import org.icgc.dcc.storage.server.exception.IdNotFoundException;
 import org.icgc.dcc.storage.server.exception.InternalUnrecoverableError;
@@ -35,6 +37,7 @@ import org.icgc.dcc.storage.server.exception.NotRetryableException;
 import org.icgc.dcc.storage.server.repository.BucketNamingService;
 import org.icgc.dcc.storage.server.repository.DownloadService;
 import org.icgc.dcc.storage.server.repository.PartCalculator;
+import org.icgc.dcc.storage.server.repository.PartHints;
 import org.icgc.dcc.storage.server.repository.URLGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -70,7 +73,8 @@ public class AzureDownloadService implements DownloadService {
   private String sentinelObjectId;
 
   @Override
-  public ObjectSpecification download(String objectId, long offset, long length, boolean forExternalUse) {
+  public ObjectSpecification download(String objectId, long offset, long length, boolean forExternalUse,
+      PartHints hints) {
     try {
       checkArgument(offset >= 0L);
 
@@ -97,7 +101,7 @@ public class AzureDownloadService implements DownloadService {
         // Return as a single part
         parts = partCalculator.specify(0L, blobSize);
       } else {
-        parts = partCalculator.divide(offset, rangeLength);
+        parts = partCalculator.divide(offset, rangeLength, hints);
       }
       fillPartUrls(objectId, parts);
 
@@ -115,6 +119,31 @@ public class AzureDownloadService implements DownloadService {
     return null;
   }
 
+  @Override
+  public List<Part> getPartUrls(String objectId, String objectMd5, List<Part> parts) {
+    try {
+      val blob = getBlobReference(objectId); // checks for existence
+      val blobMd5 = blob.getProperties().getContentMD5();
+      if (!isNullOrEmpty(objectMd5) && !isNullOrEmpty(blobMd5) && !MD5s.isEqual(objectMd5, blobMd5)) {
+        throw new NotRetryableException(new IllegalStateException(
+            String.format("Object id %s has changed since the download started", objectId)));
+      }
+
+      for (val part : parts) {
+        if (part.getOffset() < 0L || (part.getOffset() + part.getPartSize()) > blob.getProperties().getLength()) {
+          throw new NotRetryableException(new IllegalArgumentException(
+              String.format("Part %s exceeds object size (object id: %s)", part.getPartNumber(), objectId)));
+        }
+      }
+
+      fillPartUrls(objectId, parts);
+      return parts;
+    } catch (StorageException | URISyntaxException e) {
+      log.error("Failed to refresh part URLs of objectId: {}: {}", objectId, e);
+      throw new NotRetryableException(e);
+    }
+  }
+
   public CloudBlockBlob getBlobReference(String objectId) throws URISyntaxException, StorageException {
     val result = container.getBlockBlobReference(objectId);
     if (result.exists()) {
@@ -24,6 +24,7 @@ import java.util.List;
 
 import org.icgc.dcc.storage.core.model.Part;
 import org.icgc.dcc.storage.server.repository.PartCalculator;
+import org.icgc.dcc.storage.server.repository.PartHints;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
@@ -66,6 +67,12 @@ public class AzurePartCalculator implements PartCalculator {
     return parts.build();
   }
 
+  @Override
+  public List<Part> divide(long offset, long objectLength, PartHints hints) {
+    // Part size is bound by the Azure block size, hints are ignored
+    return divide(offset, objectLength);
+  }
+
   @Override
   public List<Part> specify(long offset, long length) {
     return ImmutableList.of(new Part(1, length, offset, null, null, null));
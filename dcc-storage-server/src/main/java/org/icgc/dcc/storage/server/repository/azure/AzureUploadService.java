@@ -31,6 +31,7 @@ import org.icgc.dcc.storage.core.util.ObjectKeys;
 import org.icgc.dcc.storage.server.exception.InternalUnrecoverableError;
 import org.icgc.dcc.storage.server.exception.NotRetryableException;
 import org.icgc.dcc.storage.server.repository.PartCalculator;
+import org.icgc.dcc.storage.server.repository.PartHints;
 import org.icgc.dcc.storage.server.repository.URLGenerator;
 import org.icgc.dcc.storage.server.repository.UploadService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -58,7 +59,9 @@ public class AzureUploadService implements UploadService {
   public PartCalculator partCalculator;
 
   @Override
-  public ObjectSpecification initiateUpload(String objectId, long fileSize, String md5, boolean overwrite) {
+  public ObjectSpecification initiateUpload(String objectId, long fileSize, String md5, boolean overwrite,
+      PartHints hints) {
+    // Uploads are a single block blob, hints don't apply
     ObjectSpecification result;
     try {
       val blob = container.getBlockBlobReference(objectId);
@@ -109,7 +112,7 @@ public class AzureUploadService implements UploadService {
   }
 
   @Override
-  public void finalizeUpload(String objectId, String uploadId) {
+  public void finalizeUpload(String objectId, String uploadId, String md5) {
     // Empty implementation - not applicable for Azure Upload since we're using the Upload implementation supplied by
     // SDK
   }
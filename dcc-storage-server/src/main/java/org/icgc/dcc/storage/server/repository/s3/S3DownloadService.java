@@ -18,6 +18,7 @@
 package org.icgc.dcc.storage.server.repository.s3;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.isNullOrEmpty;
 
 import lombok.Cleanup;
 import lombok.Setter;
@@ -33,6 +34,7 @@ import java.util.List;
 import org.icgc.dcc.storage.core.model.ObjectKey;
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
 import org.icgc.dcc.storage.core.model.Part;
+import org.icgc.dcc.storage.core.util.MD5s;
 import org.icgc.dcc.storage.core.util.ObjectKeys;
 import org.icgc.dcc.storage.server.exception.IdNotFoundException;
 import org.icgc.dcc.storage.server.exception.InternalUnrecoverableError;
@@ -41,6 +43,7 @@ import org.icgc.dcc.storage.server.exception.RetryableException;
 import org.icgc.dcc.storage.server.repository.BucketNamingService;
 import org.icgc.dcc.storage.server.repository.DownloadService;
 import org.icgc.dcc.storage.server.repository.PartCalculator;
+import org.icgc.dcc.storage.server.repository.PartHints;
 import org.icgc.dcc.storage.server.repository.URLGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -93,15 +96,17 @@ public class S3DownloadService implements DownloadService {
   private PartCalculator partCalculator;
 
   @Override
-  public ObjectSpecification download(String objectId, long offset, long length, boolean forExternalUse) {
+  public ObjectSpecification download(String objectId, long offset, long length, boolean forExternalUse,
+      PartHints hints) {
     try {
       checkArgument(offset > -1L);
 
       // Retrieve our meta file for object id
       val objectSpec = getSpecification(objectId);
 
-      // Short-circuit in default case
-      if (!forExternalUse && (offset == 0L && length < 0L)) {
+      // Short-circuit in default case. The uploaded parts carry their source MD5s, so they are only re-divided when the
+      // client asks for a specific part size
+      if (!forExternalUse && (offset == 0L && length < 0L) && hints.getPartSize() <= 0) {
         return objectSpec;
       }
 
@@ -127,7 +132,7 @@ public class S3DownloadService implements DownloadService {
         // Return as a single part - no matter how large
         parts = partCalculator.specify(0L, -1L);
       } else {
-        parts = partCalculator.divide(offset, length);
+        parts = partCalculator.divide(offset, length, hints);
       }
 
       fillPartUrls(objectKey, parts, objectSpec.isRelocated(), forExternalUse);
@@ -142,6 +147,27 @@ public class S3DownloadService implements DownloadService {
     }
   }
 
+  @Override
+  public List<Part> getPartUrls(String objectId, String objectMd5, List<Part> parts) {
+    // Also tells whether the object was relocated, which the URLs depend on
+    val objectSpec = getSpecification(objectId);
+    if (!isNullOrEmpty(objectMd5) && !isNullOrEmpty(objectSpec.getObjectMd5())
+        && !MD5s.isEqual(objectMd5, objectSpec.getObjectMd5())) {
+      throw new NotRetryableException(new IllegalStateException(
+          String.format("Object id %s has changed since the download started", objectId)));
+    }
+
+    for (val part : parts) {
+      if (part.getOffset() < 0L || (part.getOffset() + part.getPartSize()) > objectSpec.getObjectSize()) {
+        throw new NotRetryableException(new IllegalArgumentException(
+            String.format("Part %s exceeds object size (object id: %s)", part.getPartNumber(), objectId)));
+      }
+    }
+
+    fillPartUrls(ObjectKeys.getObjectKey(dataDir, objectId), parts, objectSpec.isRelocated(), false);
+    return parts;
+  }
+
   // This really is a misleading method name - should be retrieveMetaFile() or something
   public ObjectSpecification getSpecification(String objectId) {
     val objectKey = ObjectKeys.getObjectKey(dataDir, objectId);
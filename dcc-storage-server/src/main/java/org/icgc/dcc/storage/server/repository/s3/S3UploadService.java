@@ -1,5 +1,7 @@
 package org.icgc.dcc.storage.server.repository.s3;
 
+import static com.google.common.base.Strings.emptyToNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import lombok.NonNull;
@@ -21,6 +23,7 @@ import java.util.stream.Collectors;
 import org.icgc.dcc.storage.core.model.ObjectKey;
 import org.icgc.dcc.storage.core.model.ObjectSpecification;
 import org.icgc.dcc.storage.core.model.UploadProgress;
+import org.icgc.dcc.storage.core.util.MD5s;
 import org.icgc.dcc.storage.core.util.ObjectKeys;
 import org.icgc.dcc.storage.server.config.S3Config;
 import org.icgc.dcc.storage.server.exception.IdNotFoundException;
@@ -29,6 +32,7 @@ import org.icgc.dcc.storage.server.exception.NotRetryableException;
 import org.icgc.dcc.storage.server.exception.RetryableException;
 import org.icgc.dcc.storage.server.metadata.MetadataService;
 import org.icgc.dcc.storage.server.repository.PartCalculator;
+import org.icgc.dcc.storage.server.repository.PartHints;
 import org.icgc.dcc.storage.server.repository.URLGenerator;
 import org.icgc.dcc.storage.server.repository.UploadPartDetail;
 import org.icgc.dcc.storage.server.repository.UploadService;
@@ -99,7 +103,8 @@ public class S3UploadService implements UploadService {
   private PartCalculator partCalculator;
 
   @Override
-  public ObjectSpecification initiateUpload(String objectId, long fileSize, String md5, boolean overwrite) {
+  public ObjectSpecification initiateUpload(String objectId, long fileSize, String md5, boolean overwrite,
+      PartHints hints) {
     // First ensure that the system is aware of the requested object
     checkRegistered(objectId);
 
@@ -134,7 +139,7 @@ public class S3UploadService implements UploadService {
       // uploadPart(UploadPartRequest) requests. You also include this upload ID in the final request to either
       // complete, or abort the multipart upload request.
       val result = s3Client.initiateMultipartUpload(request);
-      val parts = partCalculator.divide(fileSize);
+      val parts = partCalculator.divide(0, fileSize, hints);
 
       val now = LocalDateTime.now();
       val expirationDate = Date.from(now.plusDays(expiration).atZone(ZoneId.systemDefault()).toInstant());
@@ -144,7 +149,8 @@ public class S3UploadService implements UploadService {
       }
 
       val spec =
-          new ObjectSpecification(objectKey.getKey(), objectId, result.getUploadId(), parts, fileSize, md5, false);
+          new ObjectSpecification(objectKey.getKey(), objectId, result.getUploadId(), parts, fileSize,
+              emptyToNull(md5), false);
 
       // Write out .meta file
       stateStore.create(spec);
@@ -268,7 +274,7 @@ public class S3UploadService implements UploadService {
   }
 
   @Override
-  public void finalizeUpload(String objectId, String uploadId) {
+  public void finalizeUpload(String objectId, String uploadId, String md5) {
     log.info("finalizing object id {} with upload id: {}", objectId, uploadId);
 
     val actualBucketName = bucketNamingService.getObjectBucketName(objectId);
@@ -276,6 +282,10 @@ public class S3UploadService implements UploadService {
 
     if (stateStore.isCompleted(objectId, uploadId)) {
       try {
+        // Check the object MD5 before the upload is completed
+        val spec = stateStore.read(objectId, uploadId);
+        recordObjectMd5(spec, md5);
+
         val details = stateStore.getUploadStatePartDetails(objectId, uploadId);
         val etags = details.values().stream().map(detail -> detail.getEtag()).collect(Collectors.toList());
         val objectKey = ObjectKeys.getObjectKey(dataDir, objectId);
@@ -283,7 +293,6 @@ public class S3UploadService implements UploadService {
 
         s3Client.completeMultipartUpload(request);
 
-        val spec = stateStore.read(objectId, uploadId);
         // Update meta with md5's
         spec.getParts().forEach(part -> {
           UploadPartDetail detail = details.get(part.getPartNumber());
@@ -314,6 +323,23 @@ public class S3UploadService implements UploadService {
     }
   }
 
+  /**
+   * Records the object MD5 computed by the client while uploading, unless one was supplied up front.
+   */
+  private void recordObjectMd5(ObjectSpecification spec, String md5) {
+    if (isNullOrEmpty(md5)) {
+      return;
+    }
+
+    if (isNullOrEmpty(spec.getObjectMd5())) {
+      spec.setObjectMd5(md5);
+    } else if (!MD5s.isEqual(md5, spec.getObjectMd5())) {
+      val message = String.format("Uploaded object %s has MD5 %s but %s was expected", spec.getObjectId(), md5,
+          spec.getObjectMd5());
+      throw new NotRetryableException(new IOException(message));
+    }
+  }
+
   @Override
   public String getUploadId(String objectId) {
     return stateStore.getUploadId(objectId);
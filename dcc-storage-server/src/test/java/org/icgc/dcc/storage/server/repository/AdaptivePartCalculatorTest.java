@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import lombok.val;
+
+import org.junit.Test;
+
+public class AdaptivePartCalculatorTest {
+
+  private static final long MB = 1024L * 1024L;
+  private static final long GB = 1024L * MB;
+
+  AdaptivePartCalculator sut = new AdaptivePartCalculator(20000000, 256 * MB);
+
+  @Test
+  public void test_no_hints_uses_default_part_size() {
+    val parts = sut.divide(50 * GB);
+
+    assertThat(parts).hasSize(2560);
+    assertThat(parts.get(0).getPartSize()).isEqualTo(20 * MB);
+  }
+
+  @Test
+  public void test_no_hints_keeps_configured_part_size_unaligned() {
+    val configured = new AdaptivePartCalculator(250000000, 256 * MB);
+
+    assertThat(configured.getPartSize(50 * GB, PartHints.NONE)).isEqualTo(250000000);
+  }
+
+  @Test
+  public void test_parallelism_spreads_large_objects() {
+    val parts = sut.divide(0, 50 * GB, new PartHints(0, 0, 6, 0));
+
+    assertThat(parts).hasSize(200);
+    assertThat(parts.get(0).getPartSize()).isEqualTo(256 * MB);
+  }
+
+  @Test
+  public void test_bandwidth_bounds_overhead() {
+    val hints = new PartHints(0, 0, 4, 100 * MB);
+
+    // Every connection gets four parts
+    assertThat(sut.getPartSize(GB, hints)).isEqualTo(64 * MB);
+
+    // But a part takes at least two seconds on a 25 MB/s connection
+    assertThat(sut.getPartSize(100 * MB, hints)).isEqualTo(50 * MB);
+  }
+
+  @Test
+  public void test_requested_part_size_is_bounded() {
+    assertThat(sut.getPartSize(GB, new PartHints(MB, 0, 0, 0))).isEqualTo(5 * MB);
+    assertThat(sut.getPartSize(GB, new PartHints(64 * MB, 0, 0, 0))).isEqualTo(64 * MB);
+    assertThat(sut.getPartSize(GB, new PartHints(GB, 0, 0, 0))).isEqualTo(256 * MB);
+  }
+
+  @Test
+  public void test_client_memory_bounds_part_size() {
+    val parts = sut.divide(0, 50 * GB, new PartHints(0, 170 * MB, 6, 0));
+
+    assertThat(parts.get(0).getPartSize()).isEqualTo(170 * MB);
+  }
+
+  @Test
+  public void test_part_count_limit() {
+    val length = 10 * 1024 * GB;
+
+    assertThat(sut.getPartSize(length, PartHints.NONE) * 10000).isGreaterThanOrEqualTo(length);
+    assertThat(sut.getPartSize(length, new PartHints(5 * MB, 0, 0, 0)) * 10000).isGreaterThanOrEqualTo(length);
+  }
+
+  @Test
+  public void test_offset() {
+    val parts = sut.divide(100, 30 * MB, PartHints.NONE);
+
+    assertThat(parts).hasSize(2);
+    assertThat(parts.get(1).getOffset()).isEqualTo(100 + 20 * MB);
+    assertThat(parts.get(1).getPartSize()).isEqualTo(10 * MB);
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 The Ontario Institute for Cancer Research. All rights reserved.                             
+ *                                                                                                               
+ * This program and the accompanying materials are made available under the terms of the GNU Public License v3.0.
+ * You should have received a copy of the GNU General Public License along with                                  
+ * this program. If not, see <http://www.gnu.org/licenses/>.                                                     
+ *                                                                                                               
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY                           
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES                          
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT                           
+ * SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,                                
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED                          
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;                               
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER                              
+ * IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN                         
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.icgc.dcc.storage.server.repository.s3;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+
+import org.icgc.dcc.storage.core.model.ObjectSpecification;
+import org.icgc.dcc.storage.core.model.Part;
+import org.icgc.dcc.storage.server.exception.NotRetryableException;
+import org.icgc.dcc.storage.server.repository.UploadPartDetail;
+import org.icgc.dcc.storage.server.repository.UploadStateStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import lombok.val;
+
+@RunWith(MockitoJUnitRunner.class)
+public class S3UploadServiceObjectMd5Test {
+
+  /**
+   * Constants.
+   */
+  private static final String BUCKET_NAME = "oicr.icgc";
+  private static final String OBJECT_ID = "a82efa12-9aef-4ac4-9e83-b0e1e1ab0c1a";
+  private static final String UPLOAD_ID = "upload-id";
+  private static final String MD5 = "9e107d9d372bb6826bd81d3542a419d6";
+  private static final String OTHER_MD5 = "e4d909c290d0fb1ca068ffaddf22cbd0";
+
+  /**
+   * Dependencies.
+   */
+  @Mock
+  AmazonS3 s3Client;
+  @Mock
+  UploadStateStore stateStore;
+
+  /**
+   * Subject.
+   */
+  @InjectMocks
+  S3UploadService uploadService;
+
+  @Before
+  public void setUp() {
+    val namingService = new S3BucketNamingService();
+    namingService.setObjectBucketName(BUCKET_NAME);
+    namingService.setStateBucketName(BUCKET_NAME);
+    namingService.setBucketPoolSize(0);
+    uploadService.setBucketNamingService(namingService);
+    uploadService.setDataDir("data");
+
+    when(stateStore.isCompleted(OBJECT_ID, UPLOAD_ID)).thenReturn(true);
+    when(stateStore.getUploadStatePartDetails(OBJECT_ID, UPLOAD_ID)).thenReturn(ImmutableMap.of(1,
+        UploadPartDetail.builder().partNumber(1).md5("part-md5").etag(new PartETag(1, "etag")).build()));
+  }
+
+  @Test
+  public void testComputedMd5IsRecorded() throws Exception {
+    when(stateStore.read(OBJECT_ID, UPLOAD_ID)).thenReturn(createSpec(null));
+
+    uploadService.finalizeUpload(OBJECT_ID, UPLOAD_ID, MD5);
+
+    assertThat(getStoredSpec().getObjectMd5()).isEqualTo(MD5);
+  }
+
+  @Test
+  public void testMatchingMd5IsAccepted() throws Exception {
+    when(stateStore.read(OBJECT_ID, UPLOAD_ID)).thenReturn(createSpec(MD5));
+
+    uploadService.finalizeUpload(OBJECT_ID, UPLOAD_ID, MD5);
+
+    assertThat(getStoredSpec().getObjectMd5()).isEqualTo(MD5);
+  }
+
+  @Test
+  public void testMissingMd5KeepsSupplied() throws Exception {
+    when(stateStore.read(OBJECT_ID, UPLOAD_ID)).thenReturn(createSpec(MD5));
+
+    uploadService.finalizeUpload(OBJECT_ID, UPLOAD_ID, null);
+
+    assertThat(getStoredSpec().getObjectMd5()).isEqualTo(MD5);
+  }
+
+  @Test
+  public void testMismatchedMd5IsRejected() throws Exception {
+    when(stateStore.read(OBJECT_ID, UPLOAD_ID)).thenReturn(createSpec(OTHER_MD5));
+
+    try {
+      uploadService.finalizeUpload(OBJECT_ID, UPLOAD_ID, MD5);
+      fail("Expected the upload to be rejected");
+    } catch (NotRetryableException e) {
+      // Expected
+    }
+
+    verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(stateStore, never()).delete(OBJECT_ID, UPLOAD_ID);
+  }
+
+  private ObjectSpecification getStoredSpec() throws Exception {
+    val data = ArgumentCaptor.forClass(InputStream.class);
+    verify(s3Client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    verify(s3Client).putObject(anyString(), anyString(), data.capture(), any(ObjectMetadata.class));
+
+    return new ObjectMapper().readValue(data.getValue(), ObjectSpecification.class);
+  }
+
+  private static ObjectSpecification createSpec(String md5) {
+    return new ObjectSpecification("data/" + OBJECT_ID, OBJECT_ID, UPLOAD_ID,
+        Lists.newArrayList(new Part(1, 10, 0, null, null, null)), 10, md5, false);
+  }
+
+}
@@ -29,6 +29,7 @@ import java.util.regex.Pattern;
 import org.icgc.dcc.storage.core.util.ObjectKeys;
 import org.icgc.dcc.storage.server.config.ServerConfig;
 import org.icgc.dcc.storage.server.exception.IdNotFoundException;
+import org.icgc.dcc.storage.server.repository.PartHints;
 import org.icgc.dcc.storage.server.repository.SimplePartCalculator;
 import org.icgc.dcc.storage.server.repository.s3.S3BucketNamingService;
 import org.icgc.dcc.storage.server.repository.s3.S3DownloadService;
@@ -100,7 +101,7 @@ public class ObjectDownloadServiceTest extends S3DownloadService {
     firstException.setStatusCode(HttpStatus.NOT_FOUND.value());
     when(s3Client.getObject(Mockito.any())).thenThrow(firstException, firstException); // stubs first two calls to
                                                                                        // s3Client.getObject()
-    service.download(objectId, 0, 1000, false);
+    service.download(objectId, 0, 1000, false, PartHints.NONE);
   }
 
   @Test
@@ -134,7 +135,7 @@ public class ObjectDownloadServiceTest extends S3DownloadService {
     val sut = spy(service);
     doReturn(os).when(sut).getSpecification(objectId);
 
-    val objSpec = sut.download(objectId, 0, 104857600, false);
+    val objSpec = sut.download(objectId, 0, 104857600, false, PartHints.NONE);
 
     val p = objSpec.getParts().get(0);
 
@@ -180,7 +181,7 @@ public class ObjectDownloadServiceTest extends S3DownloadService {
     val sut = spy(service);
     doReturn(os).when(sut).getSpecification(objectId);
 
-    val objSpec = sut.download(objectId, 0, 104857600, false);
+    val objSpec = sut.download(objectId, 0, 104857600, false, PartHints.NONE);
 
     val p = objSpec.getParts().get(0);
 